@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.benchmark;
+
+import com.jpexs.graphs.codestructure.SyntheticGraphGenerator;
+
+/**
+ * DOT sources of generated code graphs for benchmarks.
+ *
+ * @author JPEXS
+ */
+public class BenchmarkGraphs {
+
+    /**
+     * Ifs and statements only.
+     */
+    public static final String SHAPE_IFS = "ifs";
+
+    /**
+     * Loops of all kinds with continues.
+     */
+    public static final String SHAPE_LOOPS = "loops";
+
+    /**
+     * Mix of all constructs including switches and gotos.
+     */
+    public static final String SHAPE_MIXED = "mixed";
+
+    /**
+     * Generates digraph with approximately given number of nodes.
+     *
+     * @param shape One of SHAPE_ constants
+     * @param size Number of nodes
+     * @param seed Random seed
+     * @return DOT source
+     */
+    public static String generate(String shape, int size, long seed) {
+        return createGenerator(shape, size, seed).generateDot();
+    }
+
+    public static SyntheticGraphGenerator createGenerator(String shape, int size, long seed) {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(seed);
+        switch (shape) {
+            case SHAPE_IFS:
+                generator.setIfCount(size / 4);
+                generator.setStatementCount(size / 2);
+                break;
+            case SHAPE_LOOPS:
+                generator.setWhileCount(size / 20);
+                generator.setDoWhileCount(size / 20);
+                generator.setForCount(size / 20);
+                generator.setContinueCount(size / 20);
+                generator.setStatementCount(size / 4);
+                break;
+            case SHAPE_MIXED:
+                generator.setIfCount(size / 10);
+                generator.setWhileCount(size / 40);
+                generator.setDoWhileCount(size / 40);
+                generator.setForCount(size / 40);
+                generator.setSwitchCount(size / 40);
+                generator.setBreakCount(size / 40);
+                generator.setContinueCount(size / 40);
+                generator.setGotoCount(size / 100);
+                generator.setStatementCount(size / 4);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        return generator;
+    }
+}
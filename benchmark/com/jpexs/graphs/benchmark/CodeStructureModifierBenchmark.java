@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.benchmark;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.operations.CodeStructureModifier;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.StructuredGraphFacade;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Code structure detection. The modifier changes the graph, so every
+ * invocation gets freshly decomposed graph.
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodeStructureModifierBenchmark {
+
+    //detection does not finish on mixed shape yet
+    @Param({BenchmarkGraphs.SHAPE_IFS, BenchmarkGraphs.SHAPE_LOOPS})
+    public String shape;
+
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    private final StructuredGraphFacade facade = new StructuredGraphFacade();
+    private String source;
+    private EditableNode head;
+
+    @Setup
+    public void setupSource() {
+        source = BenchmarkGraphs.generate(shape, size, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupGraph() {
+        head = facade.decomposedGraphsFromString(source).get(0).getNodes().iterator().next();
+    }
+
+    @Benchmark
+    public EditableNode execute() {
+        return new CodeStructureModifier().execute(head, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.benchmark;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotLexer;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseAdapter;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import com.jpexs.graphs.graphviz.dot.parser.DotParsedSymbol;
+import com.jpexs.graphs.graphviz.dot.parser.DotParser;
+import com.jpexs.graphs.graphviz.graph.Graph;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lexing and parsing of DOT source.
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DotParserBenchmark {
+
+    @Param({BenchmarkGraphs.SHAPE_IFS, BenchmarkGraphs.SHAPE_LOOPS, BenchmarkGraphs.SHAPE_MIXED})
+    public String shape;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = BenchmarkGraphs.generate(shape, size, 1);
+    }
+
+    private int lex(boolean flyweight) throws IOException, DotParseException {
+        DotLexer lexer = new DotLexer(new StringReader(source));
+        lexer.setFlyweight(flyweight);
+        int count = 0;
+        while (lexer.lex().type != DotParsedSymbol.TYPE_EOF) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int lex() throws IOException, DotParseException {
+        return lex(false);
+    }
+
+    @Benchmark
+    public int lexFlyweight() throws IOException, DotParseException {
+        return lex(true);
+    }
+
+    @Benchmark
+    public Graph parse() throws IOException, DotParseException {
+        return new DotParser().parse(new StringReader(source));
+    }
+
+    @Benchmark
+    public void parseToListener() throws IOException, DotParseException {
+        new DotParser().parse(new StringReader(source), new DotParseAdapter());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.benchmark;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import com.jpexs.graphs.graphviz.graph.Graph;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.DecomposedGraph;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.StructuredGraphFacade;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversions between DOT, Graph and decomposed graphs.
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructuredGraphFacadeBenchmark {
+
+    @Param({BenchmarkGraphs.SHAPE_IFS, BenchmarkGraphs.SHAPE_LOOPS, BenchmarkGraphs.SHAPE_MIXED})
+    public String shape;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private final StructuredGraphFacade facade = new StructuredGraphFacade();
+    private String source;
+    private Graph graph;
+    private List<DecomposedGraph> decomposedGraphs;
+
+    @Setup
+    public void setup() {
+        source = BenchmarkGraphs.generate(shape, size, 1);
+        graph = facade.graphFromString(source);
+        decomposedGraphs = facade.decomposedGraphsFromString(source);
+    }
+
+    @Benchmark
+    public List<DecomposedGraph> decomposeGraph() {
+        return facade.decomposeGraph(graph);
+    }
+
+    @Benchmark
+    public List<DecomposedGraph> decomposeGraphFromSource() throws IOException, DotParseException {
+        return facade.decomposeGraph(new StringReader(source));
+    }
+
+    @Benchmark
+    public Graph composeGraph() {
+        return facade.composeGraph(decomposedGraphs);
+    }
+
+    @Benchmark
+    public String graphToString() {
+        return graph.toString();
+    }
+}
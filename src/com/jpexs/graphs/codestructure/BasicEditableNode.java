@@ -19,6 +19,7 @@ package com.jpexs.graphs.codestructure;
 import com.jpexs.graphs.codestructure.nodes.EditableNode;
 import com.jpexs.graphs.codestructure.nodes.Node;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -31,6 +32,8 @@ public class BasicEditableNode implements EditableNode {
     private String id;
     private List<EditableNode> nextNodes = new ArrayList<>();
     private List<EditableNode> prevNodes = new ArrayList<>();
+    private final List<EditableNode> nextNodesView = Collections.unmodifiableList(nextNodes);
+    private final List<EditableNode> prevNodesView = Collections.unmodifiableList(prevNodes);
 
     public BasicEditableNode(String id) {
         this.id = id;
@@ -51,12 +54,32 @@ public class BasicEditableNode implements EditableNode {
 
     @Override
     public List<? extends EditableNode> getNext() {
-        return new ArrayList<>(nextNodes);
+        return nextNodesView;
     }
 
     @Override
     public List<? extends EditableNode> getPrev() {
-        return new ArrayList<>(prevNodes);
+        return prevNodesView;
+    }
+
+    @Override
+    public int getNextCount() {
+        return nextNodes.size();
+    }
+
+    @Override
+    public EditableNode getNext(int index) {
+        return nextNodes.get(index);
+    }
+
+    @Override
+    public int getPrevCount() {
+        return prevNodes.size();
+    }
+
+    @Override
+    public EditableNode getPrev(int index) {
+        return prevNodes.get(index);
     }
 
     @Override
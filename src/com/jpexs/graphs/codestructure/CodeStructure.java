@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableEndIfNode;
+import com.jpexs.graphs.codestructure.nodes.EditableJoinedNode;
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.Node;
+import com.jpexs.graphs.codestructure.operations.DetectionStatus;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Structures detected by CodeStructureModifier. Nodes are the nodes of the
+ * modified graph, after joining and endif injection, in depth first preorder
+ * from heads.
+ *
+ * @author JPEXS
+ */
+public class CodeStructure {
+
+    private final List<EditableNode> heads;
+    private final List<EditableNode> nodes = new ArrayList<>();
+    private final List<EditableEndIfNode> endIfNodes = new ArrayList<>();
+    private final List<EditableJoinedNode> joinedNodes = new ArrayList<>();
+    private final DetectionStatus status;
+    private final Region<EditableNode> regionTree;
+    private final List<Node> loopContinues;
+    private final List<Edge<EditableNode>> gotoEdges;
+    private final List<Edge<EditableNode>> backEdges;
+    private final List<Edge<EditableNode>> exitIfEdges;
+
+    public CodeStructure(Collection<? extends EditableNode> heads, DetectionStatus status, Region<EditableNode> regionTree, List<Node> loopContinues, List<Edge<EditableNode>> gotoEdges, List<Edge<EditableNode>> backEdges, List<Edge<EditableNode>> exitIfEdges) {
+        this.heads = Collections.unmodifiableList(new ArrayList<>(heads));
+        this.status = status;
+        this.regionTree = regionTree;
+        this.loopContinues = Collections.unmodifiableList(loopContinues);
+        this.gotoEdges = Collections.unmodifiableList(gotoEdges);
+        this.backEdges = Collections.unmodifiableList(backEdges);
+        this.exitIfEdges = Collections.unmodifiableList(exitIfEdges);
+
+        Set<EditableNode> visited = new HashSet<>();
+        List<EditableNode> stack = new ArrayList<>();
+        for (int h = this.heads.size() - 1; h >= 0; h--) {
+            stack.add(this.heads.get(h));
+        }
+        while (!stack.isEmpty()) {
+            EditableNode node = stack.remove(stack.size() - 1);
+            if (!visited.add(node)) {
+                continue;
+            }
+            nodes.add(node);
+            if (node instanceof EditableEndIfNode) {
+                endIfNodes.add((EditableEndIfNode) node);
+            }
+            if (node instanceof EditableJoinedNode) {
+                joinedNodes.add((EditableJoinedNode) node);
+            }
+            for (int i = node.getNextCount() - 1; i >= 0; i--) {
+                stack.add(node.getNext(i));
+            }
+        }
+    }
+
+    public List<EditableNode> getHeads() {
+        return heads;
+    }
+
+    /**
+     * Gets all nodes reachable from heads.
+     *
+     * @return Nodes in depth first preorder
+     */
+    public List<EditableNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Gets injected endif nodes. Each one closes if statement of its
+     * getIfNode.
+     *
+     * @return Endif nodes
+     */
+    public List<EditableEndIfNode> getEndIfNodes() {
+        return Collections.unmodifiableList(endIfNodes);
+    }
+
+    /**
+     * Gets nodes which replace chains of sequential statements.
+     *
+     * @return Joined nodes
+     */
+    public List<EditableJoinedNode> getJoinedNodes() {
+        return Collections.unmodifiableList(joinedNodes);
+    }
+
+    /**
+     * Gets status of detection. When it is not COMPLETE, structures are
+     * partial.
+     *
+     * @return Status
+     */
+    public DetectionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets region tree. Endif nodes are not in the tree, end of if region is
+     * its end.
+     *
+     * @return Root sequence
+     */
+    public Region<EditableNode> getRegionTree() {
+        return regionTree;
+    }
+
+    public List<Node> getLoopContinues() {
+        return loopContinues;
+    }
+
+    public List<Edge<EditableNode>> getGotoEdges() {
+        return gotoEdges;
+    }
+
+    public List<Edge<EditableNode>> getBackEdges() {
+        return backEdges;
+    }
+
+    public List<Edge<EditableNode>> getExitIfEdges() {
+        return exitIfEdges;
+    }
+}
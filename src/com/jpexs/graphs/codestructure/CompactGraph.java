@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable graph with int indexed nodes.
+ *
+ * Successors and predecessors are stored in compressed sparse row arrays,
+ * node ids in a table of interned strings. Per node cost is few ints instead
+ * of node object with two lists, so it suits analysis of large graphs. Nodes
+ * can be presented as Node objects by getNode, algorithms in this package
+ * recognize them and run on the arrays directly.
+ *
+ * The graph cannot be changed, so detection which needs injecting endif
+ * nodes must still run on editable nodes.
+ *
+ * @author JPEXS
+ */
+public final class CompactGraph {
+
+    private final String[] ids;
+    private final int[] nextOffsets;
+    private final int[] nextTargets;
+    private final int[] prevOffsets;
+    private final int[] prevTargets;
+    private final int[] heads;
+
+    private CompactNode[] nodes;
+    private Map<String, Integer> idIndices;
+
+    /**
+     * Creates graph of nodes reachable from heads. Nodes are numbered in
+     * depth first preorder, predecessors which are not reachable are left
+     * out.
+     *
+     * @param heads Start nodes
+     */
+    public CompactGraph(Collection<? extends Node> heads) {
+        this(heads, new ArrayList<Node>());
+    }
+
+    /**
+     * Creates graph of nodes reachable from heads.
+     *
+     * @param heads Start nodes
+     * @param numberedNodes List to which original nodes are added in order of
+     * their indices
+     */
+    <N extends Node> CompactGraph(Collection<? extends N> heads, List<N> numberedNodes) {
+        Map<Node, Integer> ordinals = new HashMap<>();
+        List<N> stack = new ArrayList<>();
+        List<N> headList = new ArrayList<>(heads);
+        for (int h = headList.size() - 1; h >= 0; h--) {
+            stack.add(headList.get(h));
+        }
+        int edgeCount = 0;
+        while (!stack.isEmpty()) {
+            N n = stack.remove(stack.size() - 1);
+            if (ordinals.containsKey(n)) {
+                continue;
+            }
+            ordinals.put(n, numberedNodes.size());
+            numberedNodes.add(n);
+            int nextCount = n.getNextCount();
+            edgeCount += nextCount;
+            for (int i = nextCount - 1; i >= 0; i--) {
+                if (!ordinals.containsKey(n.getNext(i))) {
+                    @SuppressWarnings("unchecked")
+                    N nextT = (N) n.getNext(i);
+                    stack.add(nextT);
+                }
+            }
+        }
+        int count = numberedNodes.size();
+        Map<String, String> internedIds = new HashMap<>();
+        ids = new String[count];
+        nextOffsets = new int[count + 1];
+        nextTargets = new int[edgeCount];
+        prevOffsets = new int[count + 1];
+        int[] prev = new int[edgeCount];
+        int prevCount = 0;
+        int nextCount = 0;
+        for (int i = 0; i < count; i++) {
+            Node n = numberedNodes.get(i);
+            ids[i] = intern(internedIds, n.getId());
+            nextOffsets[i] = nextCount;
+            for (int j = 0; j < n.getNextCount(); j++) {
+                nextTargets[nextCount++] = ordinals.get(n.getNext(j));
+            }
+            prevOffsets[i] = prevCount;
+            for (int j = 0; j < n.getPrevCount(); j++) {
+                Integer p = ordinals.get(n.getPrev(j));
+                if (p != null) {
+                    prev[prevCount++] = p;
+                }
+            }
+        }
+        nextOffsets[count] = nextCount;
+        prevOffsets[count] = prevCount;
+        prevTargets = prevCount == prev.length ? prev : Arrays.copyOf(prev, prevCount);
+        this.heads = new int[headList.size()];
+        for (int h = 0; h < headList.size(); h++) {
+            this.heads[h] = ordinals.get(headList.get(h));
+        }
+    }
+
+    /**
+     * Creates graph from edge arrays. Successors and predecessors of each
+     * node are in the order of the edges.
+     *
+     * @param ids Node ids, index in array is index of the node
+     * @param edgeFrom Source node of each edge
+     * @param edgeTo Target node of each edge
+     * @param heads Start nodes
+     */
+    public CompactGraph(String[] ids, int[] edgeFrom, int[] edgeTo, int[] heads) {
+        if (edgeFrom.length != edgeTo.length) {
+            throw new IllegalArgumentException("Edge arrays have different length");
+        }
+        int count = ids.length;
+        for (int e = 0; e < edgeFrom.length; e++) {
+            checkIndex(edgeFrom[e], count);
+            checkIndex(edgeTo[e], count);
+        }
+        for (int head : heads) {
+            checkIndex(head, count);
+        }
+        Map<String, String> internedIds = new HashMap<>();
+        this.ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            this.ids[i] = intern(internedIds, ids[i]);
+        }
+        nextOffsets = new int[count + 1];
+        nextTargets = new int[edgeFrom.length];
+        prevOffsets = new int[count + 1];
+        prevTargets = new int[edgeFrom.length];
+        fillRows(edgeFrom, edgeTo, nextOffsets, nextTargets);
+        fillRows(edgeTo, edgeFrom, prevOffsets, prevTargets);
+        this.heads = heads.clone();
+    }
+
+    private static void checkIndex(int index, int count) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Node index " + index + " out of range");
+        }
+    }
+
+    private static String intern(Map<String, String> internedIds, String id) {
+        String ret = internedIds.get(id);
+        if (ret == null) {
+            internedIds.put(id, id);
+            ret = id;
+        }
+        return ret;
+    }
+
+    /**
+     * Counting sort of edges by row node, order of edges in the row is kept.
+     */
+    private static void fillRows(int[] rowNodes, int[] targetNodes, int[] offsets, int[] targets) {
+        for (int rowNode : rowNodes) {
+            offsets[rowNode + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] pos = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int e = 0; e < rowNodes.length; e++) {
+            targets[pos[rowNodes[e]]++] = targetNodes[e];
+        }
+    }
+
+    public int getNodeCount() {
+        return ids.length;
+    }
+
+    public int getEdgeCount() {
+        return nextTargets.length;
+    }
+
+    public String getId(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Finds node with the id.
+     *
+     * @param id Id
+     * @return Node index or -1 when there is no such node
+     */
+    public int indexOf(String id) {
+        if (idIndices == null) {
+            Map<String, Integer> m = new HashMap<>();
+            for (int i = ids.length - 1; i >= 0; i--) {
+                m.put(ids[i], i);
+            }
+            idIndices = m;
+        }
+        Integer ret = idIndices.get(id);
+        return ret == null ? -1 : ret;
+    }
+
+    public int getHeadCount() {
+        return heads.length;
+    }
+
+    public int getHead(int index) {
+        return heads[index];
+    }
+
+    public int getNextCount(int node) {
+        return nextOffsets[node + 1] - nextOffsets[node];
+    }
+
+    public int getNext(int node, int index) {
+        return nextTargets[nextOffsets[node] + index];
+    }
+
+    public int getPrevCount(int node) {
+        return prevOffsets[node + 1] - prevOffsets[node];
+    }
+
+    public int getPrev(int node, int index) {
+        return prevTargets[prevOffsets[node] + index];
+    }
+
+    /**
+     * Gets node as Node object. Objects are created on demand, same index
+     * gives always the same object.
+     *
+     * @param node Node index
+     * @return Node
+     */
+    public CompactNode getNode(int node) {
+        if (nodes == null) {
+            nodes = new CompactNode[ids.length];
+        }
+        CompactNode ret = nodes[node];
+        if (ret == null) {
+            ret = new CompactNode(this, node);
+            nodes[node] = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Gets start nodes as Node objects.
+     *
+     * @return List of nodes
+     */
+    public List<CompactNode> getHeadNodes() {
+        return new AbstractList<CompactNode>() {
+            @Override
+            public CompactNode get(int index) {
+                return getNode(heads[index]);
+            }
+
+            @Override
+            public int size() {
+                return heads.length;
+            }
+        };
+    }
+}
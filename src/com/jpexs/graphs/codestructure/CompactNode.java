@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Node of CompactGraph. It is read-only, all data stays in the graph.
+ *
+ * @author JPEXS
+ */
+public final class CompactNode implements Node {
+
+    private final CompactGraph graph;
+    private final int index;
+
+    CompactNode(CompactGraph graph, int index) {
+        this.graph = graph;
+        this.index = index;
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public List<CompactNode> getNext() {
+        return new AbstractList<CompactNode>() {
+            @Override
+            public CompactNode get(int i) {
+                return getNext(i);
+            }
+
+            @Override
+            public int size() {
+                return getNextCount();
+            }
+        };
+    }
+
+    @Override
+    public List<CompactNode> getPrev() {
+        return new AbstractList<CompactNode>() {
+            @Override
+            public CompactNode get(int i) {
+                return getPrev(i);
+            }
+
+            @Override
+            public int size() {
+                return getPrevCount();
+            }
+        };
+    }
+
+    @Override
+    public int getNextCount() {
+        return graph.getNextCount(index);
+    }
+
+    @Override
+    public CompactNode getNext(int i) {
+        if (i < 0 || i >= getNextCount()) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + getNextCount());
+        }
+        return graph.getNode(graph.getNext(index, i));
+    }
+
+    @Override
+    public int getPrevCount() {
+        return graph.getPrevCount(index);
+    }
+
+    @Override
+    public CompactNode getPrev(int i) {
+        if (i < 0 || i >= getPrevCount()) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + getPrevCount());
+        }
+        return graph.getNode(graph.getPrev(index, i));
+    }
+
+    @Override
+    public String getId() {
+        return graph.getId(index);
+    }
+
+    @Override
+    public int compareTo(Node o) {
+        return getId().compareTo(o.getId());
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + getId() + "\"";
+    }
+}
@@ -1,61 +1,365 @@
 /*
  * Copyright (C) 2018 JPEXS, All rights reserved.
- * 
+ *
  * This library is free software; you can redistribute it and/or
  * modify it under the terms of the GNU Lesser General Public
  * License as published by the Free Software Foundation; either
  * version 3.0 of the License, or (at your option) any later version.
- * 
+ *
  * This library is distributed in the hope that it will be useful,
  * but WITHOUT ANY WARRANTY; without even the implied warranty of
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
  * Lesser General Public License for more details.
- * 
+ *
  * You should have received a copy of the GNU Lesser General Public
  * License along with this library.
  */
 package com.jpexs.graphs.codestructure;
 
 import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
+ * List of decisions leading to an edge.
+ *
+ * Decisions are stored in immutable cells, each pointing to the cell of its
+ * prefix, so copies, appending and removing of the last decision are O(1)
+ * and lists derived from each other share their common prefix. Hashes of
+ * all prefixes are kept in the cells.
  *
  * @author JPEXS
+ * @param <T> Node type
  */
-public class DecisionList<T extends Node> extends ArrayList<Decision<T>> {
+public class DecisionList<T extends Node> extends AbstractList<Decision<T>> {
+
+    private static final class Cell<T extends Node> {
+
+        final Cell<T> prefix;
+        final Decision<T> decision;
+        final int size;
+        final int hash;
+        final int ifNodesHash;
+
+        Cell(Cell<T> prefix, Decision<T> decision) {
+            this.prefix = prefix;
+            this.decision = decision;
+            if (prefix == null) {
+                size = 1;
+                hash = 31 + Objects.hashCode(decision);
+                ifNodesHash = 31 + Objects.hashCode(decision.getIfNode());
+            } else {
+                size = prefix.size + 1;
+                hash = 31 * prefix.hash + Objects.hashCode(decision);
+                ifNodesHash = 31 * prefix.ifNodesHash + Objects.hashCode(decision.getIfNode());
+            }
+        }
+    }
+
+    private Cell<T> last;
+    private boolean locked = false;
 
     public DecisionList() {
     }
 
     public DecisionList(Collection<? extends Decision<T>> c) {
-        super(c);
+        if (c instanceof DecisionList) {
+            @SuppressWarnings("unchecked")
+            DecisionList<T> other = (DecisionList<T>) c;
+            last = other.last;
+        } else {
+            for (Decision<T> d : c) {
+                last = new Cell<>(last, d);
+            }
+        }
+    }
+
+    private DecisionList(Cell<T> last) {
+        this.last = last;
+        this.locked = true;
     }
 
+    /**
+     * Freezes the list. Any later modification throws
+     * UnsupportedOperationException.
+     *
+     * @return This list
+     */
     public DecisionList<T> lockForChanges() {
+        locked = true;
         return this;
     }
 
-    /*@Override
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Creates locked list with the decision appended. This list is not
+     * modified.
+     *
+     * @param decision Decision
+     * @return New list
+     */
+    public DecisionList<T> append(Decision<T> decision) {
+        return new DecisionList<>(new Cell<>(last, decision));
+    }
+
+    /**
+     * Creates locked list without the last decision. This list is not
+     * modified.
+     *
+     * @return New list
+     */
+    public DecisionList<T> withoutLast() {
+        if (last == null) {
+            throw new NoSuchElementException();
+        }
+        return new DecisionList<>(last.prefix);
+    }
+
+    /**
+     * Creates locked list of first decisions of this list.
+     *
+     * @param size Number of decisions
+     * @return New list
+     */
+    public DecisionList<T> prefix(int size) {
+        return new DecisionList<>(cellAt(size - 1));
+    }
+
+    /**
+     * Gets last decision.
+     *
+     * @return Decision
+     */
+    public Decision<T> getLast() {
+        if (last == null) {
+            throw new NoSuchElementException();
+        }
+        return last.decision;
+    }
+
+    private Cell<T> cellAt(int index) {
+        if (index < -1 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Cell<T> c = last;
+        for (int i = size() - 1; i > index; i--) {
+            c = c.prefix;
+        }
+        return c;
+    }
+
+    private void checkNotLocked() {
+        if (locked) {
+            throw new UnsupportedOperationException("DecisionList is locked for changes");
+        }
+    }
+
+    private void rebuild(List<Decision<T>> decisions) {
+        last = null;
+        for (Decision<T> d : decisions) {
+            last = new Cell<>(last, d);
+        }
+    }
+
+    @Override
+    public Decision<T> get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return cellAt(index).decision;
+    }
+
+    @Override
+    public int size() {
+        return last == null ? 0 : last.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return last == null;
+    }
+
+    @Override
+    public boolean add(Decision<T> decision) {
+        checkNotLocked();
+        last = new Cell<>(last, decision);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Decision<T> decision) {
+        if (index == size()) {
+            add(decision);
+            return;
+        }
+        checkNotLocked();
+        List<Decision<T>> decisions = new ArrayList<>(this);
+        decisions.add(index, decision);
+        rebuild(decisions);
+        modCount++;
+    }
+
+    @Override
+    public Decision<T> remove(int index) {
+        checkNotLocked();
+        Decision<T> ret;
+        if (index == size() - 1) {
+            ret = last.decision;
+            last = last.prefix;
+        } else {
+            List<Decision<T>> decisions = new ArrayList<>(this);
+            ret = decisions.remove(index);
+            rebuild(decisions);
+        }
+        modCount++;
+        return ret;
+    }
+
+    @Override
+    public Decision<T> set(int index, Decision<T> decision) {
+        checkNotLocked();
+        List<Decision<T>> decisions = new ArrayList<>(this);
+        Decision<T> ret = decisions.set(index, decision);
+        rebuild(decisions);
+        modCount++;
+        return ret;
+    }
+
+    @Override
+    public void clear() {
+        checkNotLocked();
+        last = null;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (toIndex == size()) {
+            checkNotLocked();
+            if (fromIndex < toIndex) {
+                last = cellAt(fromIndex - 1);
+                modCount++;
+            }
+            return;
+        }
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<Decision<T>> iterator() {
+        final Decision<T>[] decisions = new Decision[size()];
+        int i = decisions.length - 1;
+        for (Cell<T> c = last; c != null; c = c.prefix) {
+            decisions[i--] = c.decision;
+        }
+        return new Iterator<Decision<T>>() {
+            private int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                return pos < decisions.length;
+            }
+
+            @Override
+            public Decision<T> next() {
+                if (pos >= decisions.length) {
+                    throw new NoSuchElementException();
+                }
+                return decisions[pos++];
+            }
+        };
+    }
+
+    /**
+     * Iterates decisions from the last one, without copying the list.
+     *
+     * @return Iterator
+     */
+    public Iterator<Decision<T>> descendingIterator() {
+        return new Iterator<Decision<T>>() {
+            private Cell<T> next = last;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Decision<T> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Decision<T> ret = next.decision;
+                next = next.prefix;
+                return ret;
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        return last == null ? 1 : last.hash;
+    }
+
+    @Override
     public boolean equals(Object o) {
-        throw new RuntimeException("called equals"); //FIXME
-    }*/
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof DecisionList)) {
+            return super.equals(o);
+        }
+        DecisionList<?> other = (DecisionList<?>) o;
+        if (other.size() != size() || other.hashCode() != hashCode()) {
+            return false;
+        }
+        Cell<?> a = last;
+        Cell<?> b = other.last;
+        while (a != b) {
+            if (!Objects.equals(a.decision, b.decision)) {
+                return false;
+            }
+            a = a.prefix;
+            b = b.prefix;
+        }
+        return true;
+    }
+
     public boolean ifNodesEquals(DecisionList<T> other) {
         if (other.size() != size()) {
             return false;
         }
-        for (int i = 0; i < size(); i++) {
-            if (!get(i).getIfNode().equals(other.get(i).getIfNode())) {
+        if (last == null) {
+            return true;
+        }
+        if (last.ifNodesHash != other.last.ifNodesHash) {
+            return false;
+        }
+        Cell<T> a = last;
+        Cell<T> b = other.last;
+        while (a != b) {
+            if (!a.decision.getIfNode().equals(b.decision.getIfNode())) {
                 return false;
             }
+            a = a.prefix;
+            b = b.prefix;
         }
         return true;
     }
 
     public boolean containsOneOfNodes(Collection<T> nodes) {
-        for (Decision<T> dec : this) {
-            if (nodes.contains(dec.getIfNode())) {
+        for (Cell<T> c = last; c != null; c = c.prefix) {
+            if (nodes.contains(c.decision.getIfNode())) {
                 return true;
             }
         }
@@ -67,8 +371,8 @@ public class DecisionList<T extends Node> extends ArrayList<Decision<T>> {
     }
 
     public boolean containsDecisionNode(T node) {
-        for (Decision<T> dec : this) {
-            if (dec.getIfNode().equals(node)) {
+        for (Cell<T> c = last; c != null; c = c.prefix) {
+            if (c.decision.getIfNode().equals(node)) {
                 return true;
             }
         }
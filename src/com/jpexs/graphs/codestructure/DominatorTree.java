@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dominator or post-dominator tree of a node graph.
+ *
+ * Computed by iterative algorithm of Cooper, Harvey and Kennedy over
+ * reverse postorder numbering. When there are more roots (more heads or more
+ * exit nodes), a virtual root is used, which is not visible from outside -
+ * nodes immediately dominated by it have no immediate dominator.
+ *
+ * Post-dominators are computed on nodes reachable from heads, roots are the
+ * nodes without next nodes. Nodes, which do not lead to any exit (for
+ * example infinite loops), are not part of post-dominator tree.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ */
+public class DominatorTree<N extends Node> {
+
+    private static final int UNDEFINED = -1;
+    private static final int VIRTUAL_ROOT = 0;
+
+    private final boolean postDominators;
+
+    /**
+     * Node to index in reverse postorder. Index 0 is the virtual root.
+     */
+    private final Map<Node, Integer> indices = new HashMap<>();
+    private final List<N> nodes = new ArrayList<>();
+    private int[] idom;
+    private int[] treeEnter;
+    private int[] treeExit;
+    private int[][] treeChildren;
+
+    /**
+     * Creates dominator tree.
+     *
+     * @param heads Start nodes of the graph
+     */
+    public DominatorTree(Collection<? extends N> heads) {
+        this(heads, false);
+    }
+
+    /**
+     * Creates dominator or post-dominator tree.
+     *
+     * @param heads Start nodes of the graph
+     * @param postDominators True to calculate post-dominators
+     */
+    public DominatorTree(Collection<? extends N> heads, boolean postDominators) {
+        this.postDominators = postDominators;
+        Collection<? extends N> roots = heads;
+        Set<Node> reachable = null;
+        if (postDominators) {
+            reachable = collectReachable(heads);
+            List<N> exits = new ArrayList<>();
+            for (Node n : reachable) {
+                if (n.getNext().isEmpty()) {
+                    @SuppressWarnings("unchecked")
+                    N nT = (N) n;
+                    exits.add(nT);
+                }
+            }
+            roots = exits;
+        }
+        numberNodes(roots, reachable);
+        calculateDominators(roots, reachable);
+        calculateTreeIntervals();
+    }
+
+    public boolean isPostDominatorTree() {
+        return postDominators;
+    }
+
+    /**
+     * Checks whether node is part of the tree.
+     *
+     * @param node Node
+     * @return True when the node is in the tree
+     */
+    public boolean contains(Node node) {
+        return indices.containsKey(node);
+    }
+
+    /**
+     * Gets nodes of the tree in reverse postorder of the (possibly reversed)
+     * graph.
+     *
+     * @return List of nodes
+     */
+    public List<N> getNodes() {
+        return new ArrayList<>(nodes.subList(1, nodes.size()));
+    }
+
+    /**
+     * Gets immediate dominator (post-dominator) of the node. Immediate
+     * post-dominator of a decision node is the point where its branches join
+     * (endif).
+     *
+     * @param node Node
+     * @return Immediate dominator or null when node is root or not in tree
+     */
+    public N getImmediateDominator(Node node) {
+        Integer index = indices.get(node);
+        if (index == null) {
+            return null;
+        }
+        int d = idom[index];
+        if (d == VIRTUAL_ROOT) {
+            return null;
+        }
+        return nodes.get(d);
+    }
+
+    /**
+     * Gets nodes immediately dominated by the node.
+     *
+     * @param node Node
+     * @return List of nodes
+     */
+    public List<N> getChildren(Node node) {
+        List<N> ret = new ArrayList<>();
+        Integer index = indices.get(node);
+        if (index == null) {
+            return ret;
+        }
+        for (int child : treeChildren[index]) {
+            ret.add(nodes.get(child));
+        }
+        return ret;
+    }
+
+    /**
+     * Gets root nodes of the tree - nodes without immediate dominator.
+     *
+     * @return List of nodes
+     */
+    public List<N> getRoots() {
+        List<N> ret = new ArrayList<>();
+        for (int child : treeChildren[VIRTUAL_ROOT]) {
+            ret.add(nodes.get(child));
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether node dominates (post-dominates) other node. Every node
+     * dominates itself.
+     *
+     * @param dominator Dominator node
+     * @param node Dominated node
+     * @return True when dominator dominates the node
+     */
+    public boolean dominates(Node dominator, Node node) {
+        Integer a = indices.get(dominator);
+        Integer b = indices.get(node);
+        if (a == null || b == null) {
+            return false;
+        }
+        return treeEnter[a] <= treeEnter[b] && treeExit[b] <= treeExit[a];
+    }
+
+    /**
+     * Checks whether node strictly dominates (post-dominates) other node.
+     *
+     * @param dominator Dominator node
+     * @param node Dominated node
+     * @return True when dominator dominates the node and they differ
+     */
+    public boolean strictlyDominates(Node dominator, Node node) {
+        return !dominator.equals(node) && dominates(dominator, node);
+    }
+
+    /**
+     * Gets nearest common dominator of two nodes.
+     *
+     * @param a First node
+     * @param b Second node
+     * @return Nearest common dominator or null when there is none
+     */
+    public N getNearestCommonDominator(Node a, Node b) {
+        Integer ia = indices.get(a);
+        Integer ib = indices.get(b);
+        if (ia == null || ib == null) {
+            return null;
+        }
+        int ret = intersect(ia, ib);
+        if (ret == VIRTUAL_ROOT) {
+            return null;
+        }
+        return nodes.get(ret);
+    }
+
+    private static Set<Node> collectReachable(Collection<? extends Node> heads) {
+        Set<Node> ret = new LinkedHashSet<>();
+        List<Node> stack = new ArrayList<>();
+        for (Node head : heads) {
+            if (ret.add(head)) {
+                stack.add(head);
+            }
+        }
+        while (!stack.isEmpty()) {
+            Node n = stack.remove(stack.size() - 1);
+            for (Node next : n.getNext()) {
+                if (ret.add(next)) {
+                    stack.add(next);
+                }
+            }
+        }
+        return ret;
+    }
+
+    private List<? extends Node> getSuccessors(Node node) {
+        return postDominators ? node.getPrev() : node.getNext();
+    }
+
+    private List<? extends Node> getPredecessors(Node node) {
+        return postDominators ? node.getNext() : node.getPrev();
+    }
+
+    /**
+     * Numbers nodes in reverse postorder using iterative depth first search.
+     */
+    private void numberNodes(Collection<? extends N> roots, Set<Node> allowed) {
+        List<N> postOrder = new ArrayList<>();
+        Map<Node, Boolean> visited = new HashMap<>();
+        List<N> stackNodes = new ArrayList<>();
+        List<List<? extends Node>> stackSuccessors = new ArrayList<>();
+        int[] stackPos = new int[16];
+
+        for (N root : roots) {
+            if (visited.containsKey(root)) {
+                continue;
+            }
+            visited.put(root, Boolean.TRUE);
+            stackNodes.add(root);
+            stackSuccessors.add(getSuccessors(root));
+            stackPos[0] = 0;
+            while (!stackNodes.isEmpty()) {
+                int top = stackNodes.size() - 1;
+                List<? extends Node> successors = stackSuccessors.get(top);
+                if (stackPos[top] < successors.size()) {
+                    Node next = successors.get(stackPos[top]++);
+                    if (allowed != null && !allowed.contains(next)) {
+                        continue;
+                    }
+                    if (visited.containsKey(next)) {
+                        continue;
+                    }
+                    visited.put(next, Boolean.TRUE);
+                    @SuppressWarnings("unchecked")
+                    N nextT = (N) next;
+                    stackNodes.add(nextT);
+                    stackSuccessors.add(getSuccessors(nextT));
+                    if (top + 1 >= stackPos.length) {
+                        stackPos = Arrays.copyOf(stackPos, stackPos.length * 2);
+                    }
+                    stackPos[top + 1] = 0;
+                } else {
+                    postOrder.add(stackNodes.remove(top));
+                    stackSuccessors.remove(top);
+                }
+            }
+        }
+
+        nodes.add(null); //virtual root
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            N n = postOrder.get(i);
+            indices.put(n, nodes.size());
+            nodes.add(n);
+        }
+    }
+
+    private void calculateDominators(Collection<? extends N> roots, Set<Node> allowed) {
+        int count = nodes.size();
+        int[][] preds = new int[count][];
+        Set<Node> rootSet = new LinkedHashSet<>(roots);
+        for (int i = 1; i < count; i++) {
+            N n = nodes.get(i);
+            List<? extends Node> predNodes = getPredecessors(n);
+            int[] p = new int[predNodes.size() + 1];
+            int pc = 0;
+            if (rootSet.contains(n)) {
+                p[pc++] = VIRTUAL_ROOT;
+            }
+            for (Node pred : predNodes) {
+                Integer pi = indices.get(pred);
+                if (pi != null) {
+                    p[pc++] = pi;
+                }
+            }
+            preds[i] = Arrays.copyOf(p, pc);
+        }
+
+        idom = new int[count];
+        Arrays.fill(idom, UNDEFINED);
+        idom[VIRTUAL_ROOT] = VIRTUAL_ROOT;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < count; i++) {
+                int newIdom = UNDEFINED;
+                for (int p : preds[i]) {
+                    if (idom[p] == UNDEFINED) {
+                        continue;
+                    }
+                    newIdom = newIdom == UNDEFINED ? p : intersect(p, newIdom);
+                }
+                if (newIdom != UNDEFINED && idom[i] != newIdom) {
+                    idom[i] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Intersects dominator paths. In reverse postorder numbering, dominator
+     * always has lower index than dominated node.
+     */
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = idom[a];
+            }
+            while (b > a) {
+                b = idom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Calculates enter/exit numbers of the tree nodes for constant time
+     * dominance checks.
+     */
+    private void calculateTreeIntervals() {
+        int count = nodes.size();
+        int[] childCounts = new int[count];
+        for (int i = 1; i < count; i++) {
+            childCounts[idom[i]]++;
+        }
+        treeChildren = new int[count][];
+        for (int i = 0; i < count; i++) {
+            treeChildren[i] = new int[childCounts[i]];
+            childCounts[i] = 0;
+        }
+        for (int i = 1; i < count; i++) {
+            int parent = idom[i];
+            treeChildren[parent][childCounts[parent]++] = i;
+        }
+
+        treeEnter = new int[count];
+        treeExit = new int[count];
+        int[] stack = new int[count];
+        int[] stackPos = new int[count];
+        int top = 0;
+        int time = 0;
+        stack[0] = VIRTUAL_ROOT;
+        stackPos[0] = 0;
+        treeEnter[VIRTUAL_ROOT] = time++;
+        while (top >= 0) {
+            int n = stack[top];
+            if (stackPos[top] < treeChildren[n].length) {
+                int child = treeChildren[n][stackPos[top]++];
+                top++;
+                stack[top] = child;
+                stackPos[top] = 0;
+                treeEnter[child] = time++;
+            } else {
+                treeExit[n] = time++;
+                top--;
+            }
+        }
+    }
+}
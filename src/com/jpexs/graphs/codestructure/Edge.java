@@ -24,17 +24,50 @@ import com.jpexs.graphs.codestructure.nodes.Node;
  */
 public class Edge<N extends Node> implements Comparable<Edge<N>> {
 
-    public N from;
-    public N to;
+    public final N from;
+    public final N to;
+    private int hash;
 
     public Edge(N from, N to) {
         this.from = from;
         this.to = to;
     }
 
+    /**
+     * Calculates hash of edge between two nodes. Same as hashCode of the
+     * edge, but without creating it. Uses cached hashes of node id strings.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @return Hash
+     */
+    public static int hashCode(Node from, Node to) {
+        return 31 * from.getId().hashCode() + to.getId().hashCode();
+    }
+
+    /**
+     * Checks whether this edge connects the nodes. Same as equals, but
+     * without creating other edge.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @return True when the edge is from-&gt;to
+     */
+    public boolean connects(Node from, Node to) {
+        if (this.from != from && !this.from.getId().equals(from.getId())) {
+            return false;
+        }
+        return this.to == to || this.to.getId().equals(to.getId());
+    }
+
     @Override
     public int hashCode() {
-        return (this.from.getId() + ":" + this.to.getId()).hashCode();
+        int h = hash;
+        if (h == 0) {
+            h = hashCode(from, to);
+            hash = h;
+        }
+        return h;
     }
 
     @Override
@@ -49,13 +82,10 @@ public class Edge<N extends Node> implements Comparable<Edge<N>> {
             return false;
         }
         final Edge other = (Edge) obj;
-        if (!this.from.getId().equals(other.from.getId())) {
-            return false;
-        }
-        if (!this.to.getId().equals(other.to.getId())) {
+        if (hash != 0 && other.hash != 0 && hash != other.hash) {
             return false;
         }
-        return true;
+        return connects(other.from, other.to);
     }
 
     @Override
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map keyed by edges. Can be queried by pair of nodes without creating
+ * Edge object. Keeps insertion order like LinkedHashMap.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ * @param <V> Value type
+ */
+public class EdgeMap<N extends Node, V> extends AbstractMap<Edge<N>, V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final class EdgeEntry<N extends Node, V> implements Map.Entry<Edge<N>, V> {
+
+        final Edge<N> key;
+        final int hash;
+        V value;
+        EdgeEntry<N, V> nextInBucket;
+        EdgeEntry<N, V> before;
+        EdgeEntry<N, V> after;
+
+        EdgeEntry(Edge<N> key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        @Override
+        public Edge<N> getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private EdgeEntry<N, V>[] table;
+    private int size = 0;
+    private EdgeEntry<N, V> head;
+    private EdgeEntry<N, V> tail;
+    private int modCount = 0;
+    private Set<Map.Entry<Edge<N>, V>> entrySet;
+
+    public EdgeMap() {
+        table = newTable(INITIAL_CAPACITY);
+    }
+
+    public EdgeMap(Map<? extends Edge<N>, ? extends V> source) {
+        this();
+        putAll(source);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <N extends Node, V> EdgeEntry<N, V>[] newTable(int capacity) {
+        return new EdgeEntry[capacity];
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private EdgeEntry<N, V> findEntry(Node from, Node to) {
+        int h = spread(Edge.hashCode(from, to));
+        for (EdgeEntry<N, V> e = table[h & (table.length - 1)]; e != null; e = e.nextInBucket) {
+            if (e.hash == h && e.key.connects(from, to)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets value of edge from-&gt;to.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @return Value or null
+     */
+    public V get(Node from, Node to) {
+        EdgeEntry<N, V> e = findEntry(from, to);
+        return e == null ? null : e.value;
+    }
+
+    /**
+     * Checks whether map contains edge from-&gt;to.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @return True when contains
+     */
+    public boolean containsKey(Node from, Node to) {
+        return findEntry(from, to) != null;
+    }
+
+    /**
+     * Sets value of edge from-&gt;to. Edge object is created only when the
+     * edge is not in the map yet.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @param value Value
+     * @return Previous value or null
+     */
+    public V put(N from, N to, V value) {
+        EdgeEntry<N, V> e = findEntry(from, to);
+        if (e != null) {
+            return e.setValue(value);
+        }
+        addEntry(new Edge<>(from, to), value);
+        return null;
+    }
+
+    /**
+     * Removes edge from-&gt;to.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @return Removed value or null
+     */
+    public V remove(Node from, Node to) {
+        EdgeEntry<N, V> e = findEntry(from, to);
+        if (e == null) {
+            return null;
+        }
+        removeEntry(e);
+        return e.value;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof Edge)) {
+            return null;
+        }
+        Edge<?> edge = (Edge<?>) key;
+        return get(edge.from, edge.to);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Edge)) {
+            return false;
+        }
+        Edge<?> edge = (Edge<?>) key;
+        return containsKey(edge.from, edge.to);
+    }
+
+    @Override
+    public V put(Edge<N> key, V value) {
+        EdgeEntry<N, V> e = findEntry(key.from, key.to);
+        if (e != null) {
+            return e.setValue(value);
+        }
+        addEntry(key, value);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof Edge)) {
+            return null;
+        }
+        Edge<?> edge = (Edge<?>) key;
+        return remove(edge.from, edge.to);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        table = newTable(INITIAL_CAPACITY);
+        head = null;
+        tail = null;
+        size = 0;
+        modCount++;
+    }
+
+    private void addEntry(Edge<N> key, V value) {
+        if (size + 1 > table.length * 3 / 4) {
+            resize();
+        }
+        int h = spread(key.hashCode());
+        EdgeEntry<N, V> e = new EdgeEntry<>(key, h, value);
+        int bucket = h & (table.length - 1);
+        e.nextInBucket = table[bucket];
+        table[bucket] = e;
+        if (tail == null) {
+            head = e;
+        } else {
+            tail.after = e;
+            e.before = tail;
+        }
+        tail = e;
+        size++;
+        modCount++;
+    }
+
+    private void removeEntry(EdgeEntry<N, V> e) {
+        int bucket = e.hash & (table.length - 1);
+        EdgeEntry<N, V> prev = null;
+        for (EdgeEntry<N, V> b = table[bucket]; b != null; prev = b, b = b.nextInBucket) {
+            if (b == e) {
+                if (prev == null) {
+                    table[bucket] = e.nextInBucket;
+                } else {
+                    prev.nextInBucket = e.nextInBucket;
+                }
+                break;
+            }
+        }
+        if (e.before == null) {
+            head = e.after;
+        } else {
+            e.before.after = e.after;
+        }
+        if (e.after == null) {
+            tail = e.before;
+        } else {
+            e.after.before = e.before;
+        }
+        size--;
+        modCount++;
+    }
+
+    private void resize() {
+        EdgeEntry<N, V>[] newTable = newTable(table.length * 2);
+        for (EdgeEntry<N, V> e = head; e != null; e = e.after) {
+            int bucket = e.hash & (newTable.length - 1);
+            e.nextInBucket = newTable[bucket];
+            newTable[bucket] = e;
+        }
+        table = newTable;
+    }
+
+    @Override
+    public Set<Map.Entry<Edge<N>, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<Edge<N>, V>>() {
+                @Override
+                public Iterator<Map.Entry<Edge<N>, V>> iterator() {
+                    return new Iterator<Map.Entry<Edge<N>, V>>() {
+                        private EdgeEntry<N, V> next = head;
+                        private EdgeEntry<N, V> last = null;
+                        private int expectedModCount = modCount;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Map.Entry<Edge<N>, V> next() {
+                            if (modCount != expectedModCount) {
+                                throw new ConcurrentModificationException();
+                            }
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            last = next;
+                            next = next.after;
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            if (modCount != expectedModCount) {
+                                throw new ConcurrentModificationException();
+                            }
+                            removeEntry(last);
+                            last = null;
+                            expectedModCount = modCount;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    EdgeMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+}
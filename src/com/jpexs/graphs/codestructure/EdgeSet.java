@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Set of edges. Can be queried by pair of nodes without creating Edge
+ * object. Keeps insertion order like LinkedHashSet.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ */
+public class EdgeSet<N extends Node> extends AbstractSet<Edge<N>> {
+
+    private final EdgeMap<N, Boolean> map = new EdgeMap<>();
+
+    /**
+     * Checks whether set contains edge from-&gt;to.
+     *
+     * @param from Source node
+     * @param to Target node
+     * @return True when contains
+     */
+    public boolean contains(Node from, Node to) {
+        return map.containsKey(from, to);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public boolean add(Edge<N> e) {
+        return map.put(e, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public Iterator<Edge<N>> iterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loop of the loop nesting forest.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ */
+public class Loop<N extends Node> {
+
+    private final N header;
+    private final List<N> entries;
+    private final List<N> nodes;
+    private final List<Edge<N>> backEdges;
+    private final List<Edge<N>> exitEdges;
+    private final Loop<N> parent;
+    private final List<Loop<N>> children = new ArrayList<>();
+    private final int depth;
+
+    Loop(N header, List<N> entries, List<N> nodes, List<Edge<N>> backEdges, List<Edge<N>> exitEdges, Loop<N> parent) {
+        this.header = header;
+        this.entries = entries;
+        this.nodes = nodes;
+        this.backEdges = backEdges;
+        this.exitEdges = exitEdges;
+        this.parent = parent;
+        this.depth = parent == null ? 1 : parent.depth + 1;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+    }
+
+    /**
+     * Gets loop header. For irreducible loop, this is the first of its
+     * entries in depth first order.
+     *
+     * @return Header node
+     */
+    public N getHeader() {
+        return header;
+    }
+
+    /**
+     * Gets nodes which are entered from outside of the loop.
+     *
+     * @return List of entry nodes
+     */
+    public List<N> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * Checks whether loop has more than one entry.
+     *
+     * @return True when irreducible
+     */
+    public boolean isIrreducible() {
+        return entries.size() > 1;
+    }
+
+    /**
+     * Gets all nodes of the loop body including header and nodes of nested
+     * loops.
+     *
+     * @return List of nodes
+     */
+    public List<N> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    /**
+     * Gets edges from the loop body to the header.
+     *
+     * @return List of edges
+     */
+    public List<Edge<N>> getBackEdges() {
+        return new ArrayList<>(backEdges);
+    }
+
+    /**
+     * Gets edges from the loop body to nodes outside the loop.
+     *
+     * @return List of edges
+     */
+    public List<Edge<N>> getExitEdges() {
+        return new ArrayList<>(exitEdges);
+    }
+
+    public Loop<N> getParent() {
+        return parent;
+    }
+
+    public List<Loop<N>> getChildren() {
+        return new ArrayList<>(children);
+    }
+
+    /**
+     * Gets nesting depth, outermost loops have depth 1.
+     *
+     * @return Depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return "loop " + header.toString();
+    }
+}
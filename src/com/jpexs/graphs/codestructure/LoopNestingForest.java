@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loop nesting forest of a node graph.
+ *
+ * Loops are strongly connected components found by iterative Tarjan
+ * algorithm. Inner loops are found by removing edges to the header of the
+ * outer loop and searching its body again. All is computed once, without
+ * recursion, so it is usable on deep graphs.
+ *
+ * Nodes are converted to CompactGraph first. When heads are nodes of
+ * CompactGraph, its arrays are used directly.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ */
+public class LoopNestingForest<N extends Node> {
+
+    private final CompactGraph graph;
+    /**
+     * Original nodes by index, null when forest is made of CompactNodes.
+     */
+    private final List<N> nodes;
+    private final Map<Node, Integer> ordinals;
+    private int[] preorder;
+    private int[] preorderRank;
+    private boolean[] isHead;
+
+    private final List<Loop<N>> loops = new ArrayList<>();
+    private final List<Loop<N>> rootLoops = new ArrayList<>();
+    private Loop<N>[] innermostLoops;
+    private Loop<N>[] outermostLoops;
+
+    //Tarjan state, reused between searches
+    private int[] tarjanIndex;
+    private int[] tarjanLow;
+    private boolean[] onStack;
+    private boolean[] inSubgraph;
+    private int[] componentMark;
+    private int lastComponentMark = 0;
+
+    /**
+     * Creates loop nesting forest of nodes reachable from heads.
+     *
+     * @param heads Start nodes
+     */
+    public LoopNestingForest(Collection<? extends N> heads) {
+        CompactGraph compactGraph = getCompactGraph(heads);
+        int[] headOrdinals = new int[heads.size()];
+        if (compactGraph != null) {
+            graph = compactGraph;
+            nodes = null;
+            ordinals = null;
+            int h = 0;
+            for (N head : heads) {
+                headOrdinals[h++] = ((CompactNode) head).getIndex();
+            }
+        } else {
+            nodes = new ArrayList<>();
+            graph = new CompactGraph(heads, nodes);
+            ordinals = new HashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ordinals.put(nodes.get(i), i);
+            }
+            for (int h = 0; h < graph.getHeadCount(); h++) {
+                headOrdinals[h] = graph.getHead(h);
+            }
+        }
+        numberNodes(headOrdinals);
+        int count = graph.getNodeCount();
+        @SuppressWarnings("unchecked")
+        Loop<N>[] innermost = new Loop[count];
+        @SuppressWarnings("unchecked")
+        Loop<N>[] outermost = new Loop[count];
+        innermostLoops = innermost;
+        outermostLoops = outermost;
+        tarjanIndex = new int[count];
+        tarjanLow = new int[count];
+        onStack = new boolean[count];
+        inSubgraph = new boolean[count];
+        componentMark = new int[count];
+
+        List<int[]> subgraphs = new ArrayList<>();
+        List<Loop<N>> subgraphLoops = new ArrayList<>();
+        subgraphs.add(preorder);
+        subgraphLoops.add(null);
+        for (int s = 0; s < subgraphs.size(); s++) {
+            int[] subgraph = subgraphs.get(s);
+            Loop<N> parent = subgraphLoops.get(s);
+            int excludedTarget = parent == null ? -1 : ordinalOf(parent.getHeader());
+            for (int[] component : findComponents(subgraph, excludedTarget)) {
+                if (!isCycle(component, excludedTarget)) {
+                    continue;
+                }
+                Loop<N> loop = createLoop(component, parent);
+                subgraphs.add(component);
+                subgraphLoops.add(loop);
+            }
+            subgraphs.set(s, null);
+        }
+    }
+
+    /**
+     * Checks whether the node was reachable from heads on construction.
+     *
+     * @param node Node
+     * @return True when node is known to the forest
+     */
+    public boolean contains(Node node) {
+        return ordinalOf(node) != -1;
+    }
+
+    /**
+     * Checks whether node lies on any cycle.
+     *
+     * @param node Node
+     * @return True when the node is in a loop
+     */
+    public boolean isInLoop(Node node) {
+        return getInnermostLoop(node) != null;
+    }
+
+    /**
+     * Gets innermost loop containing the node.
+     *
+     * @param node Node
+     * @return Loop or null when node is not in any loop
+     */
+    public Loop<N> getInnermostLoop(Node node) {
+        int ord = ordinalOf(node);
+        if (ord == -1) {
+            return null;
+        }
+        return innermostLoops[ord];
+    }
+
+    /**
+     * Gets outermost loop containing the node. Two nodes can reach each other
+     * only when they have the same outermost loop.
+     *
+     * @param node Node
+     * @return Loop or null when node is not in any loop
+     */
+    public Loop<N> getOutermostLoop(Node node) {
+        int ord = ordinalOf(node);
+        if (ord == -1) {
+            return null;
+        }
+        return outermostLoops[ord];
+    }
+
+    /**
+     * Checks whether the node is header of some loop.
+     *
+     * @param node Node
+     * @return True when node is loop header
+     */
+    public boolean isLoopHeader(Node node) {
+        Loop<N> loop = getInnermostLoop(node);
+        while (loop != null) {
+            if (loop.getHeader().equals(node)) {
+                return true;
+            }
+            loop = loop.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * Gets all loops, outer loops are before their inner loops.
+     *
+     * @return List of loops
+     */
+    public List<Loop<N>> getLoops() {
+        return new ArrayList<>(loops);
+    }
+
+    /**
+     * Gets outermost loops.
+     *
+     * @return List of loops
+     */
+    public List<Loop<N>> getRootLoops() {
+        return new ArrayList<>(rootLoops);
+    }
+
+    /**
+     * Gets all back edges of all loops.
+     *
+     * @return List of edges
+     */
+    public List<Edge<N>> getBackEdges() {
+        List<Edge<N>> ret = new ArrayList<>();
+        for (Loop<N> loop : loops) {
+            ret.addAll(loop.getBackEdges());
+        }
+        return ret;
+    }
+
+    /**
+     * Gets graph of heads when all of them are CompactNodes of one graph.
+     */
+    private static CompactGraph getCompactGraph(Collection<? extends Node> heads) {
+        CompactGraph ret = null;
+        for (Node head : heads) {
+            if (!(head instanceof CompactNode)) {
+                return null;
+            }
+            CompactGraph headGraph = ((CompactNode) head).getGraph();
+            if (ret != null && ret != headGraph) {
+                return null;
+            }
+            ret = headGraph;
+        }
+        return ret;
+    }
+
+    private int ordinalOf(Node node) {
+        if (ordinals != null) {
+            Integer ret = ordinals.get(node);
+            return ret == null ? -1 : ret;
+        }
+        if (node instanceof CompactNode && ((CompactNode) node).getGraph() == graph) {
+            int ret = ((CompactNode) node).getIndex();
+            return preorderRank[ret] == -1 ? -1 : ret;
+        }
+        return -1;
+    }
+
+    private N node(int ordinal) {
+        if (nodes != null) {
+            return nodes.get(ordinal);
+        }
+        @SuppressWarnings("unchecked")
+        N ret = (N) graph.getNode(ordinal);
+        return ret;
+    }
+
+    /**
+     * Numbers nodes reachable from heads in depth first preorder.
+     */
+    private void numberNodes(int[] heads) {
+        int count = graph.getNodeCount();
+        preorderRank = new int[count];
+        Arrays.fill(preorderRank, -1);
+        isHead = new boolean[count];
+        int[] order = new int[count];
+        int orderSize = 0;
+        int[] stack = new int[Math.max(heads.length, 16)];
+        int stackSize = 0;
+        for (int h = heads.length - 1; h >= 0; h--) {
+            stack[stackSize++] = heads[h];
+            isHead[heads[h]] = true;
+        }
+        while (stackSize > 0) {
+            int v = stack[--stackSize];
+            if (preorderRank[v] != -1) {
+                continue;
+            }
+            preorderRank[v] = orderSize;
+            order[orderSize++] = v;
+            for (int i = graph.getNextCount(v) - 1; i >= 0; i--) {
+                int w = graph.getNext(v, i);
+                if (preorderRank[w] == -1) {
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[stackSize++] = w;
+                }
+            }
+        }
+        preorder = Arrays.copyOf(order, orderSize);
+    }
+
+    /**
+     * Sorts nodes by depth first preorder.
+     */
+    private void sortByPreorder(int[] component) {
+        for (int i = 0; i < component.length; i++) {
+            component[i] = preorderRank[component[i]];
+        }
+        Arrays.sort(component);
+        for (int i = 0; i < component.length; i++) {
+            component[i] = preorder[component[i]];
+        }
+    }
+
+    /**
+     * Finds strongly connected components of subgraph using iterative Tarjan
+     * algorithm. Edges to excludedTarget are ignored.
+     */
+    private List<int[]> findComponents(int[] subgraph, int excludedTarget) {
+        for (int v : subgraph) {
+            inSubgraph[v] = true;
+            tarjanIndex[v] = -1;
+            onStack[v] = false;
+        }
+        List<int[]> ret = new ArrayList<>();
+        int[] stack = new int[subgraph.length];
+        int stackSize = 0;
+        int[] callStack = new int[subgraph.length];
+        int[] callEdge = new int[subgraph.length];
+        int index = 0;
+
+        for (int root : subgraph) {
+            if (tarjanIndex[root] != -1) {
+                continue;
+            }
+            int callSize = 0;
+            callStack[callSize] = root;
+            callEdge[callSize] = 0;
+            callSize++;
+            tarjanIndex[root] = tarjanLow[root] = index++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (callSize > 0) {
+                int v = callStack[callSize - 1];
+                if (callEdge[callSize - 1] < graph.getNextCount(v)) {
+                    int w = graph.getNext(v, callEdge[callSize - 1]++);
+                    if (!inSubgraph[w] || w == excludedTarget) {
+                        continue;
+                    }
+                    if (tarjanIndex[w] == -1) {
+                        tarjanIndex[w] = tarjanLow[w] = index++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        callStack[callSize] = w;
+                        callEdge[callSize] = 0;
+                        callSize++;
+                    } else if (onStack[w] && tarjanIndex[w] < tarjanLow[v]) {
+                        tarjanLow[v] = tarjanIndex[w];
+                    }
+                } else {
+                    callSize--;
+                    if (callSize > 0) {
+                        int parent = callStack[callSize - 1];
+                        if (tarjanLow[v] < tarjanLow[parent]) {
+                            tarjanLow[parent] = tarjanLow[v];
+                        }
+                    }
+                    if (tarjanLow[v] == tarjanIndex[v]) {
+                        int start = stackSize;
+                        do {
+                            start--;
+                            onStack[stack[start]] = false;
+                        } while (stack[start] != v);
+                        int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                        sortByPreorder(component);
+                        stackSize = start;
+                        ret.add(component);
+                    }
+                }
+            }
+        }
+        for (int v : subgraph) {
+            inSubgraph[v] = false;
+        }
+        //Tarjan emits components in reverse topological order
+        List<int[]> ordered = new ArrayList<>();
+        for (int i = ret.size() - 1; i >= 0; i--) {
+            ordered.add(ret.get(i));
+        }
+        return ordered;
+    }
+
+    private boolean isCycle(int[] component, int excludedTarget) {
+        if (component.length > 1) {
+            return true;
+        }
+        int v = component[0];
+        if (v == excludedTarget) {
+            return false;
+        }
+        for (int i = 0; i < graph.getNextCount(v); i++) {
+            if (graph.getNext(v, i) == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Loop<N> createLoop(int[] component, Loop<N> parent) {
+        lastComponentMark++;
+        for (int v : component) {
+            componentMark[v] = lastComponentMark;
+        }
+        List<N> entries = new ArrayList<>();
+        List<N> loopNodes = new ArrayList<>();
+        int headerOrdinal = -1;
+        for (int v : component) {
+            loopNodes.add(node(v));
+            boolean entry = isHead[v];
+            for (int i = 0; i < graph.getPrevCount(v); i++) {
+                int p = graph.getPrev(v, i);
+                if (preorderRank[p] != -1 && componentMark[p] != lastComponentMark) {
+                    entry = true;
+                    break;
+                }
+            }
+            if (entry) {
+                entries.add(node(v));
+                if (headerOrdinal == -1) {
+                    headerOrdinal = v;
+                }
+            }
+        }
+        if (headerOrdinal == -1) {
+            headerOrdinal = component[0];
+        }
+        N header = node(headerOrdinal);
+        List<Edge<N>> backEdges = new ArrayList<>();
+        List<Edge<N>> exitEdges = new ArrayList<>();
+        for (int v : component) {
+            for (int i = 0; i < graph.getNextCount(v); i++) {
+                int w = graph.getNext(v, i);
+                if (componentMark[w] != lastComponentMark) {
+                    exitEdges.add(new Edge<>(node(v), node(w)));
+                } else if (w == headerOrdinal) {
+                    backEdges.add(new Edge<>(node(v), node(w)));
+                }
+            }
+        }
+        Loop<N> loop = new Loop<>(header, entries, loopNodes, backEdges, exitEdges, parent);
+        loops.add(loop);
+        if (parent == null) {
+            rootLoops.add(loop);
+        }
+        for (int v : component) {
+            innermostLoops[v] = loop;
+            if (parent == null) {
+                outermostLoops[v] = loop;
+            }
+        }
+        return loop;
+    }
+}
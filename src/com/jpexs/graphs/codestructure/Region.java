@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Region of the region tree built by CodeStructureDetector. Walking the tree
+ * in order of children gives nodes in order of structured code.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ */
+public class Region<N extends Node> {
+
+    public static enum Type {
+        /**
+         * Regions executed one after another.
+         */
+        SEQUENCE,
+        /**
+         * One node. Node with more than one next node is IF or SWITCH.
+         */
+        NODE,
+        /**
+         * Decision node with two branches. Children are branch sequences,
+         * first one is the true branch.
+         */
+        IF,
+        /**
+         * Decision node with more than two branches. Children are branch
+         * sequences in order of next nodes.
+         */
+        SWITCH,
+        /**
+         * Loop with the node as its header. Only child is body sequence,
+         * which starts with the header.
+         */
+        LOOP,
+        /**
+         * Unstructured jump along the edge. Node is the target.
+         */
+        GOTO
+    }
+
+    private final Type type;
+    private final N node;
+    private final Edge<N> edge;
+    private Region<N> parent;
+    private final List<Region<N>> children = new ArrayList<>();
+
+    public Region(Type type, N node) {
+        this(type, node, null);
+    }
+
+    public Region(Type type, N node, Edge<N> edge) {
+        this.type = type;
+        this.node = node;
+        this.edge = edge;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets node of the region.
+     *
+     * @return Node, decision node, loop header or goto target, null for
+     * sequence
+     */
+    public N getNode() {
+        return node;
+    }
+
+    /**
+     * Gets edge of GOTO region.
+     *
+     * @return Edge or null
+     */
+    public Edge<N> getEdge() {
+        return edge;
+    }
+
+    public Region<N> getParent() {
+        return parent;
+    }
+
+    public List<Region<N>> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    public int getChildCount() {
+        return children.size();
+    }
+
+    public Region<N> getChild(int index) {
+        return children.get(index);
+    }
+
+    public void addChild(Region<N> child) {
+        addChild(children.size(), child);
+    }
+
+    public void addChild(int index, Region<N> child) {
+        if (child.parent != null) {
+            child.parent.children.remove(child);
+        }
+        child.parent = this;
+        children.add(index, child);
+    }
+
+    public void removeChild(Region<N> child) {
+        if (children.remove(child)) {
+            child.parent = null;
+        }
+    }
+
+    public int indexOf(Region<N> child) {
+        return children.indexOf(child);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        switch (type) {
+            case SEQUENCE:
+                sb.append("{");
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) {
+                        sb.append(" ");
+                    }
+                    sb.append(children.get(i));
+                }
+                sb.append("}");
+                break;
+            case NODE:
+                sb.append(node.getId());
+                break;
+            case GOTO:
+                sb.append("goto ").append(node.getId());
+                break;
+            default:
+                sb.append(type.name().toLowerCase()).append(" ").append(node.getId());
+                for (Region<N> child : children) {
+                    sb.append(" ").append(child);
+                }
+                break;
+        }
+        return sb.toString();
+    }
+}
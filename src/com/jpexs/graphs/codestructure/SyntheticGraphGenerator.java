@@ -0,0 +1,499 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates random control flow graphs of structured code for tests and
+ * benchmarks. Same seed and counts always produce the same graph.
+ *
+ * Graph starts as edge start -&gt; end. Each construct replaces a randomly
+ * selected edge, so constructs get randomly nested and chained. Successors
+ * of condition nodes are ordered true branch first. Generation is not
+ * recursive and uses primitive arrays, so it can produce graphs with
+ * millions of nodes.
+ *
+ * @author JPEXS
+ */
+public class SyntheticGraphGenerator {
+
+    private static final int KIND_START = 0;
+    private static final int KIND_END = 1;
+    private static final int KIND_STATEMENT = 2;
+    private static final int KIND_IF = 3;
+    private static final int KIND_WHILE = 4;
+    private static final int KIND_DO_WHILE = 5;
+    private static final int KIND_FOR = 6;
+    private static final int KIND_SWITCH = 7;
+    private static final int KIND_BREAK = 8;
+    private static final int KIND_CONTINUE = 9;
+    private static final int KIND_GOTO = 10;
+
+    private static final String[] KIND_PREFIXES = {"start", "end", "s", "if", "while", "dowhile", "for", "switch", "break", "continue", "goto"};
+
+    private final long seed;
+    private int statementCount = 0;
+    private int ifCount = 0;
+    private int whileCount = 0;
+    private int doWhileCount = 0;
+    private int forCount = 0;
+    private int switchCount = 0;
+    private int switchCaseCount = 3;
+    private int breakCount = 0;
+    private int continueCount = 0;
+    private int gotoCount = 0;
+
+    private Random random;
+
+    private byte[] nodeKinds;
+    private int nodeCount;
+
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int[] edgeLoop;
+    private int edgeCount;
+
+    private int[] splittableEdges;
+    private int splittableCount;
+    private int[] loopEdges;
+    private int loopEdgeCount;
+    private int[] statementNodes;
+    private int statementNodeCount;
+
+    private int[] loopContinueTargets;
+    private int[] loopExits;
+    private int loopCount;
+
+    public SyntheticGraphGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets number of plain statements.
+     *
+     * @param statementCount Count
+     */
+    public void setStatementCount(int statementCount) {
+        this.statementCount = statementCount;
+    }
+
+    /**
+     * Sets number of ifs. Else branches come from statements and other
+     * constructs placed to false branch.
+     *
+     * @param ifCount Count
+     */
+    public void setIfCount(int ifCount) {
+        this.ifCount = ifCount;
+    }
+
+    public void setWhileCount(int whileCount) {
+        this.whileCount = whileCount;
+    }
+
+    public void setDoWhileCount(int doWhileCount) {
+        this.doWhileCount = doWhileCount;
+    }
+
+    public void setForCount(int forCount) {
+        this.forCount = forCount;
+    }
+
+    public void setSwitchCount(int switchCount) {
+        this.switchCount = switchCount;
+    }
+
+    /**
+     * Sets number of branches of each switch.
+     *
+     * @param switchCaseCount Count, at least 2
+     */
+    public void setSwitchCaseCount(int switchCaseCount) {
+        if (switchCaseCount < 2) {
+            throw new IllegalArgumentException("Switch must have at least 2 cases");
+        }
+        this.switchCaseCount = switchCaseCount;
+    }
+
+    /**
+     * Sets number of conditional breaks. Breaks are placed into loops only,
+     * so they are not generated when there are no loops.
+     *
+     * @param breakCount Count
+     */
+    public void setBreakCount(int breakCount) {
+        this.breakCount = breakCount;
+    }
+
+    /**
+     * Sets number of conditional continues. Continues are placed into loops
+     * only, so they are not generated when there are no loops.
+     *
+     * @param continueCount Count
+     */
+    public void setContinueCount(int continueCount) {
+        this.continueCount = continueCount;
+    }
+
+    /**
+     * Sets number of conditional gotos to random statements. These usually
+     * make the graph irreducible.
+     *
+     * @param gotoCount Count
+     */
+    public void setGotoCount(int gotoCount) {
+        this.gotoCount = gotoCount;
+    }
+
+    /**
+     * Gets number of nodes of last generated graph.
+     *
+     * @return Node count
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets number of edges of last generated graph.
+     *
+     * @return Edge count
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Generates graph of BasicEditableNodes.
+     *
+     * @return Start node
+     */
+    public EditableNode generate() {
+        build();
+        BasicEditableNode[] nodes = new BasicEditableNode[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = new BasicEditableNode(nodeName(i));
+        }
+        //edges from each node were created in order of its successors
+        for (int e = 0; e < edgeCount; e++) {
+            BasicEditableNode from = nodes[edgeFrom[e]];
+            BasicEditableNode to = nodes[edgeTo[e]];
+            from.addNext(to);
+            to.addPrev(from);
+        }
+        return nodes[0];
+    }
+
+    /**
+     * Generates graph as CompactGraph. Node indices are the same as indices
+     * in node names, start node is the head.
+     *
+     * @return Graph
+     */
+    public CompactGraph generateCompact() {
+        build();
+        String[] ids = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            ids[i] = nodeName(i);
+        }
+        return new CompactGraph(ids, Arrays.copyOf(edgeFrom, edgeCount), Arrays.copyOf(edgeTo, edgeCount), new int[]{0});
+    }
+
+    /**
+     * Generates graph as DOT digraph. First edge starts in the start node.
+     *
+     * @return DOT source
+     */
+    public String generateDot() {
+        build();
+        StringBuilder sb = new StringBuilder(24 * edgeCount + 32);
+        sb.append("digraph synthetic {\n");
+        for (int e = 0; e < edgeCount; e++) {
+            sb.append("  ");
+            appendNodeName(sb, edgeFrom[e]);
+            sb.append(" -> ");
+            appendNodeName(sb, edgeTo[e]);
+            sb.append(";\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private String nodeName(int node) {
+        StringBuilder sb = new StringBuilder();
+        appendNodeName(sb, node);
+        return sb.toString();
+    }
+
+    private void appendNodeName(StringBuilder sb, int node) {
+        int kind = nodeKinds[node];
+        sb.append(KIND_PREFIXES[kind]);
+        if (kind != KIND_START && kind != KIND_END) {
+            sb.append(node);
+        }
+    }
+
+    private void build() {
+        random = new Random(seed);
+        int constructs = statementCount + ifCount + whileCount + doWhileCount + forCount + switchCount;
+        int capacity = 2 + constructs * 4 + switchCount * switchCaseCount + breakCount + continueCount + gotoCount;
+        nodeKinds = new byte[capacity];
+        nodeCount = 0;
+        edgeFrom = new int[capacity * 2];
+        edgeTo = new int[capacity * 2];
+        edgeLoop = new int[capacity * 2];
+        edgeCount = 0;
+        splittableEdges = new int[capacity * 2];
+        splittableCount = 0;
+        loopEdges = new int[capacity * 2];
+        loopEdgeCount = 0;
+        statementNodes = new int[capacity];
+        statementNodeCount = 0;
+        loopContinueTargets = new int[whileCount + doWhileCount + forCount];
+        loopExits = new int[loopContinueTargets.length];
+        loopCount = 0;
+
+        int start = addNode(KIND_START);
+        int end = addNode(KIND_END);
+        addEdge(start, end, -1, true);
+
+        //nesting comes from order of constructs, each one splits edge of previous ones
+        byte[] kinds = new byte[constructs];
+        int k = 0;
+        k = fill(kinds, k, statementCount, KIND_STATEMENT);
+        k = fill(kinds, k, ifCount, KIND_IF);
+        k = fill(kinds, k, whileCount, KIND_WHILE);
+        k = fill(kinds, k, doWhileCount, KIND_DO_WHILE);
+        k = fill(kinds, k, forCount, KIND_FOR);
+        fill(kinds, k, switchCount, KIND_SWITCH);
+        for (int i = constructs - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte t = kinds[i];
+            kinds[i] = kinds[j];
+            kinds[j] = t;
+        }
+        for (int i = 0; i < constructs; i++) {
+            int e = splittableEdges[random.nextInt(splittableCount)];
+            switch (kinds[i]) {
+                case KIND_STATEMENT:
+                    insertStatement(e);
+                    break;
+                case KIND_IF:
+                    insertIf(e);
+                    break;
+                case KIND_WHILE:
+                    insertWhile(e);
+                    break;
+                case KIND_DO_WHILE:
+                    insertDoWhile(e);
+                    break;
+                case KIND_FOR:
+                    insertFor(e);
+                    break;
+                case KIND_SWITCH:
+                    insertSwitch(e);
+                    break;
+            }
+        }
+        for (int i = 0; i < breakCount && loopEdgeCount > 0; i++) {
+            int e = loopEdges[random.nextInt(loopEdgeCount)];
+            insertJump(e, KIND_BREAK, loopExits[edgeLoop[e]]);
+        }
+        for (int i = 0; i < continueCount && loopEdgeCount > 0; i++) {
+            int e = loopEdges[random.nextInt(loopEdgeCount)];
+            insertJump(e, KIND_CONTINUE, loopContinueTargets[edgeLoop[e]]);
+        }
+        for (int i = 0; i < gotoCount && statementNodeCount > 0; i++) {
+            int e = splittableEdges[random.nextInt(splittableCount)];
+            insertJump(e, KIND_GOTO, statementNodes[random.nextInt(statementNodeCount)]);
+        }
+        random = null;
+    }
+
+    private static int fill(byte[] kinds, int pos, int count, int kind) {
+        Arrays.fill(kinds, pos, pos + count, (byte) kind);
+        return pos + count;
+    }
+
+    private int addNode(int kind) {
+        if (nodeCount == nodeKinds.length) {
+            nodeKinds = Arrays.copyOf(nodeKinds, nodeCount * 2);
+        }
+        if (kind == KIND_STATEMENT) {
+            if (statementNodeCount == statementNodes.length) {
+                statementNodes = Arrays.copyOf(statementNodes, statementNodeCount * 2);
+            }
+            statementNodes[statementNodeCount++] = nodeCount;
+        }
+        nodeKinds[nodeCount] = (byte) kind;
+        return nodeCount++;
+    }
+
+    /**
+     * Adds edge.
+     *
+     * @param from From node
+     * @param to To node
+     * @param loop Innermost loop containing the edge or -1
+     * @param splittable Whether other constructs can be placed on the edge
+     */
+    private void addEdge(int from, int to, int loop, boolean splittable) {
+        if (edgeCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            edgeLoop = Arrays.copyOf(edgeLoop, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeLoop[edgeCount] = loop;
+        if (splittable) {
+            if (splittableCount == splittableEdges.length) {
+                splittableEdges = Arrays.copyOf(splittableEdges, splittableCount * 2);
+            }
+            splittableEdges[splittableCount++] = edgeCount;
+            if (loop != -1) {
+                if (loopEdgeCount == loopEdges.length) {
+                    loopEdges = Arrays.copyOf(loopEdges, loopEdgeCount * 2);
+                }
+                loopEdges[loopEdgeCount++] = edgeCount;
+            }
+        }
+        edgeCount++;
+    }
+
+    private int addLoop(int continueTarget, int exit) {
+        loopContinueTargets[loopCount] = continueTarget;
+        loopExits[loopCount] = exit;
+        return loopCount++;
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; s -&gt; b.
+     */
+    private void insertStatement(int e) {
+        int b = edgeTo[e];
+        int s = addNode(KIND_STATEMENT);
+        edgeTo[e] = s;
+        addEdge(s, b, edgeLoop[e], true);
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; if, if -&gt; s -&gt; b, if -&gt; b.
+     */
+    private void insertIf(int e) {
+        int b = edgeTo[e];
+        int loop = edgeLoop[e];
+        int c = addNode(KIND_IF);
+        int s = addNode(KIND_STATEMENT);
+        edgeTo[e] = c;
+        addEdge(c, s, loop, true);
+        addEdge(c, b, loop, true);
+        addEdge(s, b, loop, true);
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; while, while -&gt; s -&gt; while, while -&gt;
+     * exit -&gt; b.
+     */
+    private void insertWhile(int e) {
+        int b = edgeTo[e];
+        int outerLoop = edgeLoop[e];
+        int h = addNode(KIND_WHILE);
+        int s = addNode(KIND_STATEMENT);
+        int x = addNode(KIND_STATEMENT);
+        int loop = addLoop(h, x);
+        edgeTo[e] = h;
+        addEdge(h, s, loop, true);
+        addEdge(h, x, outerLoop, false);
+        addEdge(s, h, loop, true);
+        addEdge(x, b, outerLoop, true);
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; s -&gt; dowhile, dowhile -&gt; s, dowhile -&gt;
+     * exit -&gt; b.
+     */
+    private void insertDoWhile(int e) {
+        int b = edgeTo[e];
+        int outerLoop = edgeLoop[e];
+        int s = addNode(KIND_STATEMENT);
+        int c = addNode(KIND_DO_WHILE);
+        int x = addNode(KIND_STATEMENT);
+        int loop = addLoop(c, x);
+        edgeTo[e] = s;
+        addEdge(s, c, loop, true);
+        addEdge(c, s, loop, false);
+        addEdge(c, x, outerLoop, false);
+        addEdge(x, b, outerLoop, true);
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; init -&gt; for, for -&gt; s -&gt; increment -&gt;
+     * for, for -&gt; exit -&gt; b.
+     */
+    private void insertFor(int e) {
+        int b = edgeTo[e];
+        int outerLoop = edgeLoop[e];
+        int init = addNode(KIND_STATEMENT);
+        int h = addNode(KIND_FOR);
+        int s = addNode(KIND_STATEMENT);
+        int inc = addNode(KIND_STATEMENT);
+        int x = addNode(KIND_STATEMENT);
+        int loop = addLoop(inc, x);
+        edgeTo[e] = init;
+        addEdge(init, h, outerLoop, false);
+        addEdge(h, s, loop, true);
+        addEdge(h, x, outerLoop, false);
+        addEdge(s, inc, loop, true);
+        addEdge(inc, h, loop, false);
+        addEdge(x, b, outerLoop, true);
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; switch, switch -&gt; case_i -&gt; b.
+     */
+    private void insertSwitch(int e) {
+        int b = edgeTo[e];
+        int loop = edgeLoop[e];
+        int w = addNode(KIND_SWITCH);
+        edgeTo[e] = w;
+        int firstCase = nodeCount;
+        for (int i = 0; i < switchCaseCount; i++) {
+            addNode(KIND_STATEMENT);
+        }
+        for (int i = 0; i < switchCaseCount; i++) {
+            addEdge(w, firstCase + i, loop, true);
+        }
+        for (int i = 0; i < switchCaseCount; i++) {
+            addEdge(firstCase + i, b, loop, true);
+        }
+    }
+
+    /**
+     * a -&gt; b becomes a -&gt; jump, jump -&gt; target, jump -&gt; b.
+     */
+    private void insertJump(int e, int kind, int target) {
+        int b = edgeTo[e];
+        int c = addNode(kind);
+        edgeTo[e] = c;
+        addEdge(c, target, edgeLoop[e], false);
+        addEdge(c, b, edgeLoop[e], true);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weakly connected components of a node graph. Nodes are connected when there
+ * is a path between them ignoring edge direction.
+ *
+ * Heads in different components have no common nodes, so they can be
+ * processed independently.
+ *
+ * @author JPEXS
+ * @param <N> Node type
+ */
+public class WeaklyConnectedComponents<N extends Node> {
+
+    private final Map<Node, Integer> components = new HashMap<>();
+    private final List<List<N>> componentHeads = new ArrayList<>();
+
+    /**
+     * Finds components of heads.
+     *
+     * @param heads Start nodes
+     */
+    public WeaklyConnectedComponents(Collection<? extends N> heads) {
+        List<Node> stack = new ArrayList<>();
+        for (N head : heads) {
+            Integer component = components.get(head);
+            if (component == null) {
+                component = componentHeads.size();
+                componentHeads.add(new ArrayList<N>());
+                components.put(head, component);
+                stack.add(head);
+                while (!stack.isEmpty()) {
+                    Node n = stack.remove(stack.size() - 1);
+                    for (int i = 0; i < n.getNextCount(); i++) {
+                        Node next = n.getNext(i);
+                        if (!components.containsKey(next)) {
+                            components.put(next, component);
+                            stack.add(next);
+                        }
+                    }
+                    for (int i = 0; i < n.getPrevCount(); i++) {
+                        Node prev = n.getPrev(i);
+                        if (!components.containsKey(prev)) {
+                            components.put(prev, component);
+                            stack.add(prev);
+                        }
+                    }
+                }
+            }
+            componentHeads.get(component).add(head);
+        }
+    }
+
+    public int getComponentCount() {
+        return componentHeads.size();
+    }
+
+    /**
+     * Gets heads of each component. Components are in order of their first
+     * head, heads keep their order.
+     *
+     * @return List of head lists
+     */
+    public List<List<N>> getComponentHeads() {
+        List<List<N>> ret = new ArrayList<>();
+        for (List<N> h : componentHeads) {
+            ret.add(new ArrayList<>(h));
+        }
+        return ret;
+    }
+
+    /**
+     * Gets component of the node.
+     *
+     * @param node Node
+     * @return Component index or -1 when node is not connected to any head
+     */
+    public int getComponent(Node node) {
+        Integer ret = components.get(node);
+        return ret == null ? -1 : ret;
+    }
+}
@@ -46,4 +46,10 @@ public interface EditableNode extends Node {
     @Override
     public List<? extends EditableNode> getPrev();
 
+    @Override
+    public EditableNode getNext(int index);
+
+    @Override
+    public EditableNode getPrev(int index);
+
 }
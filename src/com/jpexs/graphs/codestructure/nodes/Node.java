@@ -24,9 +24,29 @@ import java.util.List;
  */
 public interface Node extends Comparable<Node> {
 
+    /**
+     * Gets successors. The list is read-only view, it reflects later changes
+     * of the node. Copy it when the node is changed while iterating.
+     *
+     * @return Successors
+     */
     public List<? extends Node> getNext();
 
+    /**
+     * Gets predecessors. The list is read-only view, it reflects later
+     * changes of the node. Copy it when the node is changed while iterating.
+     *
+     * @return Predecessors
+     */
     public List<? extends Node> getPrev();
 
+    public int getNextCount();
+
+    public Node getNext(int index);
+
+    public int getPrevCount();
+
+    public Node getPrev(int index);
+
     public String getId();
 }
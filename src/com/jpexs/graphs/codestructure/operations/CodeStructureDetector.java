@@ -19,16 +19,30 @@ package com.jpexs.graphs.codestructure.operations;
 import com.jpexs.graphs.codestructure.Decision;
 import com.jpexs.graphs.codestructure.DecisionList;
 import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.EdgeMap;
+import com.jpexs.graphs.codestructure.EdgeSet;
+import com.jpexs.graphs.codestructure.Loop;
+import com.jpexs.graphs.codestructure.LoopNestingForest;
+import com.jpexs.graphs.codestructure.Region;
+import com.jpexs.graphs.codestructure.WeaklyConnectedComponents;
 import com.jpexs.graphs.codestructure.nodes.Node;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -38,15 +52,163 @@ import java.util.TreeSet;
 public class CodeStructureDetector<N extends Node> {
 
     private List<N> todoList = new ArrayList<>();
-    private List<Node> alreadyProcessed = new ArrayList<>();
-    private Map<Edge<N>, DecisionList<N>> decistionLists = new HashMap<>();
-    private List<N> rememberedDecisionNodes = new ArrayList<>();
-    private List<N> waiting = new ArrayList<>();
+    private EdgeMap<N, DecisionList<N>> decistionLists = new EdgeMap<>();
     private List<Node> loopContinues = new ArrayList<>();
     private List<Edge<N>> backEdges = new ArrayList<>();
     private List<Edge<N>> gotoEdges = new ArrayList<>();
     private List<Edge<N>> exitIfEdges = new ArrayList<>();
-    private Set<Edge<N>> ignoredEdges = new LinkedHashSet<>();
+    private EdgeSet<N> ignoredEdges = new EdgeSet<>();
+    private LoopNestingForest<N> loopForest;
+    private boolean parallel = false;
+
+    /*
+     * Budget is checked every CHECK_INTERVAL steps, and when step limit is
+     * reached.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+    private DetectionBudget budget;
+    private DetectionStatus status = DetectionStatus.COMPLETE;
+    private long stepCount;
+    private long nextCheckStep;
+    private long startTime;
+    /**
+     * Steps of all components of parallel detection, null when this detector
+     * does not detect a component. Own steps are added on each check.
+     */
+    private AtomicLong componentStepCount;
+    private long addedStepCount;
+
+    private static class DetectionStoppedException extends RuntimeException {
+
+        final DetectionStatus status;
+
+        public DetectionStoppedException(DetectionStatus status) {
+            super(status.name(), null, false, false);
+            this.status = status;
+        }
+    }
+
+    /*
+     * Region tree is built while nodes are walked. Node is placed by its
+     * decision list (branches of ifs it is in) and by loops being walked.
+     */
+    private Region<N> regionTree = new Region<>(Region.Type.SEQUENCE, null);
+    private Map<Node, Region<N>> regions = new HashMap<>();
+    private List<OpenLoop> openLoops = new ArrayList<>();
+
+    private class OpenLoop {
+
+        N header;
+        Region<N> region;
+        int decisionCount;
+        /**
+         * Body of innermost loop with region, this one or outer.
+         */
+        Region<N> body;
+        /**
+         * Maximal decisionCount of loops with region, this one or outer.
+         * Decisions before it do not place nodes inside the loop.
+         */
+        int bodyDecisionStart;
+
+        public OpenLoop(N header, OpenLoop outer) {
+            this.header = header;
+            if (outer != null) {
+                body = outer.body;
+                bodyDecisionStart = outer.bodyDecisionStart;
+            }
+        }
+    }
+
+    /*
+     * Per node state is indexed by node ordinal. Ordinals are dense and
+     * assigned on first encounter of the node.
+     */
+    private Map<Node, Integer> ordinals = new HashMap<>();
+    private BitSet alreadyProcessed = new BitSet();
+    private BitSet rememberedDecisionNodes = new BitSet();
+    private BitSet loopContinueNodes = new BitSet();
+    private BitSet waitingNodes = new BitSet();
+
+    /*
+     * Order of waiting nodes. Removal from waiting only clears the bit,
+     * stale entries are recognized by their stamp and compacted lazily.
+     */
+    private List<N> waitingOrder = new ArrayList<>();
+    private int[] waitingOrderStamps = new int[16];
+    private int[] waitingStamps = new int[16];
+    private int lastWaitingStamp = 0;
+
+    private int ordinal(Node node) {
+        Integer ret = ordinals.get(node);
+        if (ret == null) {
+            ret = ordinals.size();
+            ordinals.put(node, ret);
+            if (ret >= waitingStamps.length) {
+                waitingStamps = Arrays.copyOf(waitingStamps, waitingStamps.length * 2);
+            }
+        }
+        return ret;
+    }
+
+    private boolean isWaiting(Node node) {
+        return waitingNodes.get(ordinal(node));
+    }
+
+    private void addWaiting(N node) {
+        int ord = ordinal(node);
+        waitingNodes.set(ord);
+        lastWaitingStamp++;
+        waitingStamps[ord] = lastWaitingStamp;
+        if (waitingOrder.size() >= waitingOrderStamps.length) {
+            waitingOrderStamps = Arrays.copyOf(waitingOrderStamps, waitingOrderStamps.length * 2);
+        }
+        waitingOrderStamps[waitingOrder.size()] = lastWaitingStamp;
+        waitingOrder.add(node);
+    }
+
+    private void removeWaiting(Node node) {
+        waitingNodes.clear(ordinal(node));
+    }
+
+    private void clearWaiting() {
+        waitingNodes.clear();
+        waitingOrder.clear();
+    }
+
+    /**
+     * Gets waiting nodes in order of their addition.
+     *
+     * @return List of waiting nodes
+     */
+    private List<N> getWaiting() {
+        int count = 0;
+        for (int i = 0; i < waitingOrder.size(); i++) {
+            N node = waitingOrder.get(i);
+            int ord = ordinal(node);
+            int stamp = waitingOrderStamps[i];
+            if (waitingNodes.get(ord) && waitingStamps[ord] == stamp) {
+                waitingOrder.set(count, node);
+                waitingOrderStamps[count] = stamp;
+                count++;
+            }
+        }
+        waitingOrder.subList(count, waitingOrder.size()).clear();
+        return new ArrayList<>(waitingOrder);
+    }
+
+    private boolean isAlreadyProcessed(Node node) {
+        return alreadyProcessed.get(ordinal(node));
+    }
+
+    private boolean containsRememberedDecisionNode(DecisionList<N> decisionList) {
+        for (Decision<N> dec : decisionList) {
+            if (rememberedDecisionNodes.get(ordinal(dec.getIfNode()))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     public Node detect(N head, List<Node> loopContinues, List<Edge<N>> gotoEdges, List<Edge<N>> backEdges, List<Edge<N>> exitIfEdges) {
         Set<N> heads = new LinkedHashSet<>();
@@ -55,9 +217,114 @@ public class CodeStructureDetector<N extends Node> {
         return multiHeads.toArray(new Node[1])[0];
     }
 
+    /**
+     * Sets parallel detection. Heads are split to weakly connected components,
+     * each component is detected by its own detector in common ForkJoinPool.
+     * Results are the same as detecting each component alone, one after
+     * another in order of their first head, so they are the same for every
+     * run. Sequential detection of all heads at once walks components
+     * interleaved, it finds the same structures, but lists of results and
+     * regions can be in different order. Listeners are called from worker
+     * threads, they must be thread safe.
+     *
+     * @param parallel True to detect components in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets budget of detection. Even without budget, detection stops when
+     * the thread is interrupted.
+     *
+     * @param budget Budget or null for no limits
+     */
+    public void setBudget(DetectionBudget budget) {
+        this.budget = budget;
+    }
+
+    public DetectionBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets status of last detection. When it is not COMPLETE, results
+     * contain only what was detected before stop and the graph can be
+     * modified only partially.
+     *
+     * @return Status
+     */
+    public DetectionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Counts one step, checks budget from time to time.
+     */
+    private void countStep() {
+        stepCount++;
+        if (stepCount < nextCheckStep) {
+            return;
+        }
+        nextCheckStep = stepCount + CHECK_INTERVAL;
+        if (Thread.currentThread().isInterrupted()) {
+            throw new DetectionStoppedException(DetectionStatus.CANCELLED);
+        }
+        if (budget == null) {
+            return;
+        }
+        if (budget.isCancelled()) {
+            throw new DetectionStoppedException(DetectionStatus.CANCELLED);
+        }
+        long totalStepCount = stepCount;
+        if (componentStepCount != null) {
+            totalStepCount = componentStepCount.addAndGet(stepCount - addedStepCount);
+            addedStepCount = stepCount;
+        }
+        if (budget.getMaxSteps() > 0) {
+            if (totalStepCount >= budget.getMaxSteps()) {
+                throw new DetectionStoppedException(DetectionStatus.STEP_LIMIT);
+            }
+            nextCheckStep = Math.min(nextCheckStep, stepCount + budget.getMaxSteps() - totalStepCount);
+        }
+        if (budget.getMaxTime() > 0 && (System.nanoTime() - startTime) / 1000000L >= budget.getMaxTime()) {
+            throw new DetectionStoppedException(DetectionStatus.TIME_LIMIT);
+        }
+        if (budget.getMaxDecisionListEntries() > 0 && decistionLists.size() > budget.getMaxDecisionListEntries()) {
+            throw new DetectionStoppedException(DetectionStatus.DECISION_LIST_LIMIT);
+        }
+    }
+
     public Collection<N> detect(Collection<N> heads, List<Node> loopContinues, List<Edge<N>> gotoEdges, List<Edge<N>> backEdges, List<Edge<N>> exitIfEdges) {
+        status = DetectionStatus.COMPLETE;
+        stepCount = 0;
+        nextCheckStep = 0;
+        addedStepCount = 0;
+        if (componentStepCount == null) {
+            //components use start time of whole detection
+            startTime = System.nanoTime();
+        }
+        if (parallel) {
+            List<List<N>> componentHeads = new WeaklyConnectedComponents<>(heads).getComponentHeads();
+            if (componentHeads.size() > 1) {
+                detectComponents(componentHeads, loopContinues, gotoEdges, backEdges, exitIfEdges);
+                return heads;
+            }
+        }
+        loopForest = new LoopNestingForest<>(heads);
         todoList.addAll(heads);
-        walk();
+        try {
+            walk();
+        } catch (DetectionStoppedException ex) {
+            status = ex.status;
+        }
+        if (componentStepCount != null) {
+            componentStepCount.addAndGet(stepCount - addedStepCount);
+        }
         loopContinues.addAll(this.loopContinues);
         gotoEdges.addAll(this.gotoEdges);
         backEdges.addAll(this.backEdges);
@@ -65,14 +332,86 @@ public class CodeStructureDetector<N extends Node> {
         return heads;
     }
 
+    private void detectComponents(List<List<N>> componentHeads, List<Node> loopContinues, List<Edge<N>> gotoEdges, List<Edge<N>> backEdges, List<Edge<N>> exitIfEdges) {
+        List<CodeStructureDetector<N>> detectors = new ArrayList<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        //workers do not see interruption of this thread, it cancels their budget
+        DetectionBudget componentBudget = budget == null ? new DetectionBudget() : new DetectionBudget(budget);
+        //step and time limits are for all components together
+        AtomicLong sharedStepCount = new AtomicLong();
+        for (final List<N> heads : componentHeads) {
+            final CodeStructureDetector<N> detector = new CodeStructureDetector<>();
+            detector.listeners.addAll(listeners);
+            detector.budget = componentBudget;
+            detector.componentStepCount = sharedStepCount;
+            detector.startTime = startTime;
+            detectors.add(detector);
+            tasks.add(ForkJoinPool.commonPool().submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    //results are taken from the detector fields after join
+                    detector.detect(heads, new ArrayList<Node>(), new ArrayList<Edge<N>>(), new ArrayList<Edge<N>>(), new ArrayList<Edge<N>>());
+                    return null;
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for (ForkJoinTask<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                    componentBudget.cancel();
+                } catch (ExecutionException ex) {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    //rethrow original exception of the component
+                    if (ex.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ex.getCause();
+                    }
+                    if (ex.getCause() instanceof Error) {
+                        throw (Error) ex.getCause();
+                    }
+                    throw new RuntimeException(ex.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        for (CodeStructureDetector<N> detector : detectors) {
+            if (status == DetectionStatus.COMPLETE) {
+                status = detector.status;
+            }
+            for (Region<N> region : new ArrayList<>(detector.regionTree.getChildren())) {
+                regionTree.addChild(region);
+            }
+            this.loopContinues.addAll(detector.loopContinues);
+            this.gotoEdges.addAll(detector.gotoEdges);
+            this.backEdges.addAll(detector.backEdges);
+            this.exitIfEdges.addAll(detector.exitIfEdges);
+            loopContinues.addAll(detector.loopContinues);
+            gotoEdges.addAll(detector.gotoEdges);
+            backEdges.addAll(detector.backEdges);
+            exitIfEdges.addAll(detector.exitIfEdges);
+        }
+    }
+
     private boolean walk() {
 
         walkDecisionLists();
         fireNoNodeSelected();
+        List<N> waiting = getWaiting();
         for (int i = 0; i < waiting.size(); i++) {
             N cek = waiting.get(i);
-            Set<Node> visited = new LinkedHashSet<>();
-            Set<Node> insideLoopNodes = new LinkedHashSet<>();
+            if (loopForest.contains(cek) && !loopForest.isInLoop(cek)) {
+                continue; //not on any cycle, cannot wait for self
+            }
+            BitSet visited = new BitSet();
+            BitSet insideLoopNodes = new BitSet();
             Set<Edge<N>> loopExitEdges = new LinkedHashSet<>();
             Set<Edge<N>> loopContinueEdges = new LinkedHashSet<>();
 
@@ -87,6 +426,7 @@ public class CodeStructureDetector<N extends Node> {
                 currentWaiting.addAll(waiting);
                 currentWaiting.remove(continueNode);
                 loopContinues.add(continueNode);
+                loopContinueNodes.set(ordinal(continueNode));
                 backEdges.addAll(loopContinueEdges);
                 Set<Edge<N>> cekajiciVstupniEdges = new LinkedHashSet<>();
                 for (N c : currentWaiting) {
@@ -97,7 +437,7 @@ public class CodeStructureDetector<N extends Node> {
                 ignoredEdges.addAll(loopContinueEdges);
 
                 for (N next : getNextNodes(continueNode)) {
-                    if (!insideLoopNodes.contains(next)) {
+                    if (!insideLoopNodes.get(ordinal(next))) {
                         cekajiciVstupniEdges.add(new Edge<>(continueNode, next));
                         currentWaiting.add(next);
                     }
@@ -105,16 +445,20 @@ public class CodeStructureDetector<N extends Node> {
 
                 ignoredEdges.addAll(cekajiciVstupniEdges); //zakonzervovat cekajici
 
-                waiting.clear();
+                clearWaiting();
                 todoList.add(continueNode);
+                openLoops.add(new OpenLoop(continueNode, openLoops.isEmpty() ? null : openLoops.get(openLoops.size() - 1)));
                 walk();
+                openLoops.remove(openLoops.size() - 1);
                 ignoredEdges.removeAll(cekajiciVstupniEdges);
-                alreadyProcessed.removeAll(currentWaiting);
+                for (N c : currentWaiting) {
+                    alreadyProcessed.clear(ordinal(c));
+                }
 
                 DecisionList<N> loopDecisionList = calculateDecisionListFromPrevNodes(continueNode, getPrevNodes(continueNode) /*bez ignored*/).lockForChanges();
 
                 for (Edge<N> edge : cekajiciVstupniEdges) {
-                    if (alreadyProcessed.contains(edge.from) && !decistionLists.containsKey(edge)) {
+                    if (isAlreadyProcessed(edge.from) && !decistionLists.containsKey(edge)) {
                         decistionLists.put(edge, loopDecisionList);
                     }
                 }
@@ -129,47 +473,129 @@ public class CodeStructureDetector<N extends Node> {
         return false;
     }
 
-    private boolean leadsTo(N nodeSearchIn, N nodeSearchWhich, Set<Node> insideLoopNodes, Set<Edge<N>> noLeadEdges, Set<Edge<N>> foundEdges, Set<Node> visited) {
-        if (visited.contains(nodeSearchIn)) {
-            return insideLoopNodes.contains(nodeSearchIn);
-        }
-        visited.add(nodeSearchIn);
-        for (Node next : getNextNodes(nodeSearchIn)) {
-            @SuppressWarnings("unchecked")
-            N nextT = (N) next;
-            if (next.equals(nodeSearchWhich)) {
-                foundEdges.add(new Edge<>(nodeSearchIn, nextT));
-                return true;
-            }
+    /**
+     * Checks whether node can lead to other node. Uses loop nesting forest
+     * calculated on detection start - nodes can reach each other only inside
+     * the same outermost loop. Injected endif nodes are not part of the
+     * forest, these can lead anywhere.
+     */
+    private boolean canLeadTo(Node node, Node target) {
+        if (!loopForest.contains(node) || !loopForest.contains(target)) {
+            return true;
         }
+        Loop<N> loop = loopForest.getOutermostLoop(node);
+        return loop != null && loop == loopForest.getOutermostLoop(target);
+    }
+
+    private class LeadsToFrame {
+
+        N node;
+        List<N> nextNodes;
+        int nextIndex = 0;
         boolean ret = false;
         Set<Edge<N>> currentNoLeadNodes = new LinkedHashSet<>();
-        for (N next : getNextNodes(nodeSearchIn)) {
-            if (leadsTo(next, nodeSearchWhich, insideLoopNodes, currentNoLeadNodes, foundEdges, visited)) {
-                insideLoopNodes.add(next);
-                ret = true;
+        Set<Edge<N>> noLeadEdges;
+
+        public LeadsToFrame(N node, List<N> nextNodes, Set<Edge<N>> noLeadEdges) {
+            this.node = node;
+            this.nextNodes = nextNodes;
+            this.noLeadEdges = noLeadEdges;
+        }
+    }
+
+    /**
+     * Searches paths from nodeSearchIn to nodeSearchWhich. Depth first search
+     * with explicit stack. A node, which has direct edge to nodeSearchWhich,
+     * is not searched further.
+     *
+     * @param nodeSearchIn Start node
+     * @param nodeSearchWhich Searched node
+     * @param insideLoopNodes Result: nodes on the paths
+     * @param noLeadEdges Result: edges leaving the paths
+     * @param foundEdges Result: edges to the searched node
+     * @param visited Visited nodes
+     * @return True when nodeSearchWhich is reachable
+     */
+    private boolean leadsTo(N nodeSearchIn, N nodeSearchWhich, BitSet insideLoopNodes, Set<Edge<N>> noLeadEdges, Set<Edge<N>> foundEdges, BitSet visited) {
+        List<LeadsToFrame> stack = new ArrayList<>();
+        N node = nodeSearchIn;
+        Set<Edge<N>> nodeNoLeadEdges = noLeadEdges;
+        boolean result = false;
+        while (true) {
+            //enter node
+            countStep();
+            boolean hasResult = true;
+            int nodeOrdinal = ordinal(node);
+            if (visited.get(nodeOrdinal)) {
+                result = insideLoopNodes.get(nodeOrdinal);
             } else {
-                currentNoLeadNodes.add(new Edge<>(nodeSearchIn, next));
+                visited.set(nodeOrdinal);
+                List<N> nextNodes = getNextNodes(node);
+                result = false;
+                for (N next : nextNodes) {
+                    if (next.equals(nodeSearchWhich)) {
+                        foundEdges.add(new Edge<>(node, next));
+                        result = true;
+                        break;
+                    }
+                }
+                if (!result) {
+                    stack.add(new LeadsToFrame(node, nextNodes, nodeNoLeadEdges));
+                    hasResult = false;
+                }
+            }
+
+            //pass results up until there is next node to enter
+            node = null;
+            while (node == null) {
+                if (stack.isEmpty()) {
+                    return result;
+                }
+                LeadsToFrame frame = stack.get(stack.size() - 1);
+                if (hasResult) {
+                    N lastNext = frame.nextNodes.get(frame.nextIndex - 1);
+                    if (result) {
+                        insideLoopNodes.set(ordinal(lastNext));
+                        frame.ret = true;
+                    } else {
+                        frame.currentNoLeadNodes.add(new Edge<>(frame.node, lastNext));
+                    }
+                    hasResult = false;
+                }
+                while (frame.nextIndex < frame.nextNodes.size()) {
+                    N next = frame.nextNodes.get(frame.nextIndex++);
+                    if (canLeadTo(next, nodeSearchWhich)) {
+                        node = next;
+                        nodeNoLeadEdges = frame.currentNoLeadNodes;
+                        break;
+                    }
+                    frame.currentNoLeadNodes.add(new Edge<>(frame.node, next));
+                }
+                if (node == null) {
+                    if (frame.ret) {
+                        frame.noLeadEdges.addAll(frame.currentNoLeadNodes);
+                    }
+                    result = frame.ret;
+                    hasResult = true;
+                    stack.remove(stack.size() - 1);
+                }
             }
         }
-        if (ret == true) {
-            noLeadEdges.addAll(currentNoLeadNodes);
-        }
-        return ret;
     }
 
-    private boolean removeExitPointFromPrevDlists(N prevNode, N node, N exitPoint, Set<N> processedNodes) {
+    private boolean removeExitPointFromPrevDlists(N prevNode, N node, N exitPoint, BitSet processedNodes) {
         boolean lastOne = false;
-        if (processedNodes.contains(node)) {
+        int nodeOrdinal = ordinal(node);
+        if (processedNodes.get(nodeOrdinal)) {
             return false;
         }
-        processedNodes.add(node);
+        processedNodes.set(nodeOrdinal);
         if (exitPoint.equals(prevNode)) {
             int insideIfBranchIndex = prevNode.getNext().indexOf(node);
-            for (int branchIndex = 0; branchIndex < exitPoint.getNext().size(); branchIndex++) {
+            for (int branchIndex = 0; branchIndex < exitPoint.getNextCount(); branchIndex++) {
                 if (branchIndex != insideIfBranchIndex) {
                     @SuppressWarnings("unchecked")
-                    N branchNodeT = (N) exitPoint.getNext().get(branchIndex);
+                    N branchNodeT = (N) exitPoint.getNext(branchIndex);
 
                     Edge<N> exitEdge = new Edge<>(exitPoint, branchNodeT);
                     exitIfEdges.add(exitEdge);
@@ -179,20 +605,16 @@ public class CodeStructureDetector<N extends Node> {
 
             return true;
         }
-        Edge<N> edge = new Edge<>(prevNode, node);
-        DecisionList<N> decisionList = decistionLists.get(edge);
+        DecisionList<N> decisionList = decistionLists.get(prevNode, node);
         if (decisionList != null) {
             if (!decisionList.isEmpty() && decisionList.get(decisionList.size() - 1).getIfNode().equals(exitPoint)) {
-                DecisionList<N> truncDecisionList = new DecisionList<>();
-                truncDecisionList.addAll(decisionList);
-                truncDecisionList.remove(truncDecisionList.size() - 1);
-                decistionLists.put(edge, truncDecisionList);
+                decistionLists.put(prevNode, node, decisionList.withoutLast());
             }
         }
 
         if (!lastOne) {
             for (Node prev : prevNode.getPrev()) {
-                if (loopContinues.contains(prev)) {
+                if (loopContinueNodes.get(ordinal(prev))) {
                     continue;
                 }
                 @SuppressWarnings("unchecked")
@@ -210,10 +632,9 @@ public class CodeStructureDetector<N extends Node> {
         List<DecisionList<N>> prevDecisionLists = new ArrayList<>();
         List<N> decisionListNodes = new ArrayList<>(prevNodes);
         for (N prevNode : prevNodes) {
-            Edge<N> edge = new Edge<>(prevNode, BOD);
-            DecisionList<N> prevDL = decistionLists.get(edge);
+            DecisionList<N> prevDL = decistionLists.get(prevNode, BOD);
             if (prevDL == null) {
-                System.err.println("WARNING - no decisionList for edge " + edge);
+                System.err.println("WARNING - no decisionList for edge " + new Edge<>(prevNode, BOD));
             }
             prevDecisionLists.add(prevDL);
         }
@@ -225,9 +646,10 @@ public class CodeStructureDetector<N extends Node> {
         } else {
             //Remove decisionLists, which are remembered from last time as unstructured
             for (int i = prevDecisionLists.size() - 1; i >= 0; i--) {
-                if (prevDecisionLists.get(i).containsOneOfNodes(rememberedDecisionNodes)) {
+                if (containsRememberedDecisionNode(prevDecisionLists.get(i))) {
                     Edge<N> gotoEdge = new Edge<>(prevNodes.get(i), BOD);
                     gotoEdges.add(gotoEdge);
+                    addGotoRegion(gotoEdge);
                     fireEdgeMarked(gotoEdge, DetectedEdgeType.GOTO);
                     prevDecisionLists.remove(i);
                 }
@@ -235,6 +657,7 @@ public class CodeStructureDetector<N extends Node> {
 
             loopcheck:
             while (true) {
+                countStep();
 
                 //search for same decision lists, join them to endif
                 for (int i = 0; i < prevDecisionLists.size(); i++) {
@@ -262,8 +685,7 @@ public class CodeStructureDetector<N extends Node> {
                         N decisionNode = decisionListI.get(decisionListI.size() - 1).getIfNode();
                         int numBranches = getNextNodes(decisionNode).size();
                         if (numSame == numBranches) {
-                            DecisionList<N> shorterDecisionList = new DecisionList<>(decisionListI);
-                            shorterDecisionList.remove(shorterDecisionList.size() - 1);
+                            DecisionList<N> shorterDecisionList = decisionListI.withoutLast();
                             List<N> endBranchNodes = new ArrayList<>();
                             for (int index : sameIndices) {
                                 Decision<N> decision = prevDecisionLists.get(index).get(decisionListI.size() - 1);
@@ -280,10 +702,10 @@ public class CodeStructureDetector<N extends Node> {
                             fireNoNodeSelected();
                             N endIfNode = fireEndIfDetected(decisionNode, endBranchNodes, BOD);
 
-                            alreadyProcessed.add(endIfNode);
+                            alreadyProcessed.set(ordinal(endIfNode));
                             decisionListNodes.add(endIfNode);
                             prevDecisionLists.add(shorterDecisionList);
-                            decistionLists.put(new Edge<>(endIfNode, BOD), shorterDecisionList);
+                            decistionLists.put(endIfNode, BOD, shorterDecisionList);
                             fireUpdateDecisionLists(decistionLists);
                             fireStep();
                             continue loopcheck;
@@ -315,16 +737,14 @@ public class CodeStructureDetector<N extends Node> {
                                 }
                                 DecisionList<N> decisionListK = prevDecisionLists.get(k);
                                 if (decisionListK.size() == findSize - 1) {
-                                    DecisionList<N> decisionListJKratsi = new DecisionList<>();
-                                    decisionListJKratsi.addAll(decisionListJ);
-                                    decisionListJKratsi.remove(decisionListJKratsi.size() - 1);
+                                    DecisionList<N> decisionListJKratsi = decisionListJ.withoutLast();
                                     if (decisionListJKratsi.ifNodesEquals(decisionListK)) {
 
-                                        prevDecisionLists.set(j, decisionListJKratsi.lockForChanges());
-                                        decistionLists.put(new Edge<>(decisionListNodes.get(j), BOD), decisionListJKratsi);
+                                        prevDecisionLists.set(j, decisionListJKratsi);
+                                        decistionLists.put(decisionListNodes.get(j), BOD, decisionListJKratsi);
                                         Decision<N> decisionK = decisionListK.get(decisionListK.size() - 1);
                                         Decision<N> decisionJ = decisionListJ.get(decisionListJKratsi.size() - 1);
-                                        rememberedDecisionNodes.add(decisionK.getIfNode());
+                                        rememberedDecisionNodes.set(ordinal(decisionK.getIfNode()));
                                         N decisionNode = decisionK.getIfNode();
 
                                         Decision<N> exitDecision = decisionListJ.get(decisionListJ.size() - 1);
@@ -350,18 +770,17 @@ public class CodeStructureDetector<N extends Node> {
 
                                         fireNoNodeSelected();
 
-                                        DecisionList<N> shorterDecisionList = new DecisionList<>(decisionListK);
-                                        shorterDecisionList.remove(shorterDecisionList.size() - 1);
+                                        DecisionList<N> shorterDecisionList = decisionListK.withoutLast();
                                         N endIfNode = fireEndIfDetected(decisionNode, endBranchNodes, BOD);
-                                        alreadyProcessed.add(endIfNode);
+                                        alreadyProcessed.set(ordinal(endIfNode));
                                         decisionListNodes.add(endIfNode);
                                         prevDecisionLists.add(shorterDecisionList);
-                                        decistionLists.put(new Edge<>(endIfNode, BOD), shorterDecisionList);
+                                        decistionLists.put(endIfNode, BOD, shorterDecisionList);
                                         //----
                                         fireUpdateDecisionLists(decistionLists);
                                         fireStep();
 
-                                        removeExitPointFromPrevDlists(longerPrev, endIfNode, exitNode, new LinkedHashSet<>());
+                                        removeExitPointFromPrevDlists(longerPrev, endIfNode, exitNode, new BitSet());
 
                                         fireUpdateDecisionLists(decistionLists);
                                         fireStep();
@@ -382,7 +801,6 @@ public class CodeStructureDetector<N extends Node> {
             } else {
                 //more prevNodes remaining
 
-                DecisionList<N> prefix = new DecisionList<>();
                 Decision<N> nextDecision;
                 int numInPrefix = 0;
                 looppocet:
@@ -401,9 +819,10 @@ public class CodeStructureDetector<N extends Node> {
                             break looppocet;
                         }
                     }
-                    prefix.add(nextDecision);
                     numInPrefix++;
                 }
+                //common prefix shares decisions of the first list
+                DecisionList<N> prefix = prevDecisionLists.get(0).prefix(numInPrefix);
                 for (int i = 0; i < prevDecisionLists.size(); i++) {
                     DecisionList<N> decisionList = prevDecisionLists.get(i);
                     /*if (decisionList.size() > prefix.size()) {
@@ -419,7 +838,7 @@ public class CodeStructureDetector<N extends Node> {
                         for (int j = decisionList.size() - 1; j >= prefix.size(); j--) {
                             Decision<N> exitDecision = decisionList.get(j);
                             N exitNode = exitDecision.getIfNode();
-                            removeExitPointFromPrevDlists(decisionListNodes.get(i), BOD, exitNode, new LinkedHashSet<>());
+                            removeExitPointFromPrevDlists(decisionListNodes.get(i), BOD, exitNode, new BitSet());
                         }
                     }
                 }
@@ -440,7 +859,7 @@ public class CodeStructureDetector<N extends Node> {
                         }
                     }
                     N endIfNode = fireEndIfDetected(decisionNode, endBranchNodes, BOD);
-                    alreadyProcessed.add(endIfNode);
+                    alreadyProcessed.set(ordinal(endIfNode));
                     nextBod = endIfNode;
                 }
 
@@ -448,7 +867,7 @@ public class CodeStructureDetector<N extends Node> {
                 for (Node prev : decisionListNodes) {
                     @SuppressWarnings("unchecked")
                     N prevT = (N) prev;
-                    decistionLists.put(new Edge<>(prevT, nextBod), prefix);
+                    decistionLists.put(prevT, nextBod, prefix);
                 }
                 fireStep();
                 nextDecisionList = prefix;
@@ -457,12 +876,92 @@ public class CodeStructureDetector<N extends Node> {
         return nextDecisionList;
     }
 
+    /**
+     * Gets sequence, where node with the decision list belongs.
+     *
+     * @param decisionList Decision list
+     * @param loopCount Number of open loops, which contain the node
+     * @return Sequence region
+     */
+    private Region<N> getSequence(DecisionList<N> decisionList, int loopCount) {
+        Region<N> sequence = regionTree;
+        int start = 0;
+        if (loopCount > 0) {
+            OpenLoop loop = openLoops.get(loopCount - 1);
+            if (loop.body != null) {
+                sequence = loop.body;
+                start = loop.bodyDecisionStart;
+            }
+        }
+        //innermost branch with region after the loop start, usually the last decision
+        Iterator<Decision<N>> it = decisionList.descendingIterator();
+        for (int d = decisionList.size() - 1; d >= start; d--) {
+            Decision<N> decision = it.next();
+            Region<N> ifRegion = regions.get(decision.getIfNode());
+            if (ifRegion != null && decision.getBranchNum() < ifRegion.getChildCount()) {
+                return ifRegion.getChild(decision.getBranchNum());
+            }
+        }
+        return sequence;
+    }
+
+    private void addRegion(N node, DecisionList<N> decisionList, int branchCount) {
+        //loop exits walked inside loop are walked again after it
+        Region<N> oldRegion = regions.get(node);
+        if (oldRegion != null && oldRegion.getParent() != null) {
+            oldRegion.getParent().removeChild(oldRegion);
+        }
+        int loopCount = openLoops.size();
+        if (loopCount > 0) {
+            OpenLoop loop = openLoops.get(loopCount - 1);
+            if (loop.region == null && loop.header.equals(node)) {
+                loop.region = new Region<>(Region.Type.LOOP, node);
+                loop.region.addChild(new Region<N>(Region.Type.SEQUENCE, null));
+                loop.decisionCount = decisionList.size();
+                getSequence(decisionList, loopCount - 1).addChild(loop.region);
+                loop.body = loop.region.getChild(0);
+                loop.bodyDecisionStart = Math.max(loop.bodyDecisionStart, loop.decisionCount);
+            }
+        }
+        Region<N> region;
+        if (branchCount > 1) {
+            region = new Region<>(branchCount == 2 ? Region.Type.IF : Region.Type.SWITCH, node);
+            for (int i = 0; i < branchCount; i++) {
+                region.addChild(new Region<N>(Region.Type.SEQUENCE, null));
+            }
+        } else {
+            region = new Region<>(Region.Type.NODE, node);
+        }
+        getSequence(decisionList, loopCount).addChild(region);
+        regions.put(node, region);
+    }
+
+    private void addGotoRegion(Edge<N> gotoEdge) {
+        Region<N> gotoRegion = new Region<>(Region.Type.GOTO, gotoEdge.to, gotoEdge);
+        Region<N> fromRegion = regions.get(gotoEdge.from);
+        if (fromRegion == null || fromRegion.getParent() == null) {
+            regionTree.addChild(gotoRegion);
+            return;
+        }
+        Region<N> sequence = fromRegion.getParent();
+        sequence.addChild(sequence.indexOf(fromRegion) + 1, gotoRegion);
+    }
+
+    /**
+     * Gets region tree of last detection. Each head is in the root sequence.
+     *
+     * @return Root sequence
+     */
+    public Region<N> getRegionTree() {
+        return regionTree;
+    }
+
     private List<N> getPrevNodes(N sourceNode) {
         List<N> ret = new ArrayList<>();
         for (Node prev : sourceNode.getPrev()) {
             @SuppressWarnings("unchecked")
             N prevT = (N) prev;
-            if (!ignoredEdges.contains(new Edge<>(prevT, sourceNode))) {
+            if (!ignoredEdges.contains(prevT, sourceNode)) {
                 ret.add((N) prevT);
             }
         }
@@ -474,7 +973,7 @@ public class CodeStructureDetector<N extends Node> {
         for (Node next : sourceNode.getNext()) {
             @SuppressWarnings("unchecked")
             N nextT = (N) next;
-            if (!ignoredEdges.contains(new Edge<>(sourceNode, nextT))) {
+            if (!ignoredEdges.contains(sourceNode, nextT)) {
                 ret.add((N) nextT);
             }
         }
@@ -483,37 +982,38 @@ public class CodeStructureDetector<N extends Node> {
 
     private void walkDecisionLists() {
         do {
+            countStep();
             N currentPoint = todoList.remove(0);
-            if (alreadyProcessed.contains(currentPoint)) {
+            if (isAlreadyProcessed(currentPoint)) {
                 continue;
             }
             List<N> prevNodes = getPrevNodes(currentPoint);
             boolean vsechnyPrevZpracovane = true;
             for (Node prevNode : prevNodes) {
-                if (!alreadyProcessed.contains(prevNode)) {
+                if (!isAlreadyProcessed(prevNode)) {
                     vsechnyPrevZpracovane = false;
                     break;
                 }
             }
 
             if (!vsechnyPrevZpracovane) {
-                if (!waiting.contains(currentPoint)) {
-                    waiting.add(currentPoint);
+                if (!isWaiting(currentPoint)) {
+                    addWaiting(currentPoint);
                 }
             } else {
-                waiting.remove(currentPoint);
+                removeWaiting(currentPoint);
                 DecisionList<N> mergedDecisionList = calculateDecisionListFromPrevNodes(currentPoint, prevNodes);
-                alreadyProcessed.add(currentPoint);
+                alreadyProcessed.set(ordinal(currentPoint));
                 List<N> nextNodes = getNextNodes(currentPoint);
+                addRegion(currentPoint, mergedDecisionList, nextNodes.size());
 
                 for (int branch = 0; branch < nextNodes.size(); branch++) {
                     N next = nextNodes.get(branch);
-                    Edge<N> edge = new Edge<>(currentPoint, next);
-                    DecisionList<N> nextDecisionList = new DecisionList<>(mergedDecisionList);
+                    DecisionList<N> nextDecisionList = mergedDecisionList.lockForChanges();
                     if (nextNodes.size() > 1) {
-                        nextDecisionList.add(new Decision<>(currentPoint, branch));
+                        nextDecisionList = nextDecisionList.append(new Decision<>(currentPoint, branch));
                     }
-                    decistionLists.put(edge, nextDecisionList.lockForChanges());
+                    decistionLists.put(currentPoint, next, nextDecisionList);
                     todoList.add(next);
                 }
                 fireNodeSelected(currentPoint);
@@ -543,12 +1043,16 @@ public class CodeStructureDetector<N extends Node> {
         for (CodeStructureDetectorProgressListener<N> l : listeners) {
             node = l.endIfDetected(decisionNode, endBranchNodes, node);
         }
+        //gotos from endif go after its if
+        if (regions.containsKey(decisionNode)) {
+            regions.put(node, regions.get(decisionNode));
+        }
 
         //restore decisionlists of branches
-        for (int m = 0; m < node.getPrev().size(); m++) {
+        for (int m = 0; m < node.getPrevCount(); m++) {
             @SuppressWarnings("unchecked")
-            N prev = (N) node.getPrev().get(m);
-            decistionLists.put(new Edge<>(prev, node), decistionLists.get(beforeEdges.get(m)));
+            N prev = (N) node.getPrev(m);
+            decistionLists.put(prev, node, decistionLists.get(beforeEdges.get(m)));
         }
         return node;
     }
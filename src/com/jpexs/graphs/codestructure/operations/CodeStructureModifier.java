@@ -16,6 +16,7 @@
  */
 package com.jpexs.graphs.codestructure.operations;
 
+import com.jpexs.graphs.codestructure.CodeStructure;
 import com.jpexs.graphs.codestructure.DecisionList;
 import com.jpexs.graphs.codestructure.Edge;
 import com.jpexs.graphs.codestructure.nodes.EditableNode;
@@ -31,6 +32,47 @@ import java.util.Map;
  */
 public class CodeStructureModifier {
 
+    private boolean parallel = false;
+    private DetectionBudget budget;
+    private DetectionStatus status = DetectionStatus.COMPLETE;
+
+    /**
+     * Sets parallel detection of independent heads.
+     *
+     * @param parallel True to detect weakly connected components in parallel
+     * @see CodeStructureDetector#setParallel(boolean)
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets budget of detection.
+     *
+     * @param budget Budget or null for no limits
+     * @see CodeStructureDetector#setBudget(DetectionBudget)
+     */
+    public void setBudget(DetectionBudget budget) {
+        this.budget = budget;
+    }
+
+    public DetectionBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets status of last detection.
+     *
+     * @return Status
+     */
+    public DetectionStatus getStatus() {
+        return status;
+    }
+
     public EditableNode execute(EditableNode head, List<Node> loopContinues, List<Edge<EditableNode>> gotoEdges, List<Edge<EditableNode>> backEdges, List<Edge<EditableNode>> exitIfEdges) {
         Collection<EditableNode> heads = new ArrayList<>();
         heads.add(head);
@@ -38,13 +80,52 @@ public class CodeStructureModifier {
         return heads2.isEmpty() ? null : heads2.iterator().next();
     }
 
+    /**
+     * Joins nodes, injects endifs and returns detected structures.
+     *
+     * @param head Head of the graph
+     * @return Detected structures
+     */
+    public CodeStructure detect(EditableNode head) {
+        Collection<EditableNode> heads = new ArrayList<>();
+        heads.add(head);
+        return detect(heads);
+    }
+
+    /**
+     * Joins nodes, injects endifs and returns detected structures.
+     *
+     * @param heads Heads of the graph
+     * @return Detected structures
+     */
+    public CodeStructure detect(Collection<? extends EditableNode> heads) {
+        List<Node> loopContinues = new ArrayList<>();
+        List<Edge<EditableNode>> gotoEdges = new ArrayList<>();
+        List<Edge<EditableNode>> backEdges = new ArrayList<>();
+        List<Edge<EditableNode>> exitIfEdges = new ArrayList<>();
+        Collection<EditableNode> joinedHeads = join(heads);
+        CodeStructureDetector<EditableNode> det = detect(joinedHeads, loopContinues, gotoEdges, backEdges, exitIfEdges);
+        return new CodeStructure(joinedHeads, det.getStatus(), det.getRegionTree(), loopContinues, gotoEdges, backEdges, exitIfEdges);
+    }
+
     public Collection<EditableNode> execute(Collection<? extends EditableNode> heads, List<Node> loopContinues, List<Edge<EditableNode>> gotoEdges, List<Edge<EditableNode>> backEdges, List<Edge<EditableNode>> exitIfEdges) {
+        Collection<EditableNode> joinedHeads = join(heads);
+        detect(joinedHeads, loopContinues, gotoEdges, backEdges, exitIfEdges);
+        return joinedHeads;
+    }
+
+    private Collection<EditableNode> join(Collection<? extends EditableNode> heads) {
         NodeJoiner multinodeJoiner = new NodeJoiner();
         for (CodeStructureModifierProgressListener l : listeners) {
             multinodeJoiner.addListener(l);
         }
-        Collection<EditableNode> joinedHeads = multinodeJoiner.joinNodes(heads);
+        return multinodeJoiner.joinNodes(heads);
+    }
+
+    private CodeStructureDetector<EditableNode> detect(Collection<EditableNode> joinedHeads, List<Node> loopContinues, List<Edge<EditableNode>> gotoEdges, List<Edge<EditableNode>> backEdges, List<Edge<EditableNode>> exitIfEdges) {
         CodeStructureDetector<EditableNode> det = new CodeStructureDetector<>();
+        det.setParallel(parallel);
+        det.setBudget(budget);
         final EndIfNodeInjector<EditableNode> endifInjector = new EndIfNodeInjector<>();
         for (CodeStructureModifierProgressListener l : listeners) {
             endifInjector.addListener(l);
@@ -95,7 +176,8 @@ public class CodeStructureModifier {
             }
         });
         det.detect(joinedHeads, loopContinues, gotoEdges, backEdges, exitIfEdges);
-        return joinedHeads;
+        status = det.getStatus();
+        return det;
     }
 
     private List<CodeStructureModifierProgressListener> listeners = new ArrayList<>();
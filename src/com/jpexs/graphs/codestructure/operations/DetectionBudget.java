@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure.operations;
+
+/**
+ * Limits of one detection run. Limits are checked by CodeStructureDetector
+ * from time to time, when a limit is exceeded, detection stops and returns
+ * what was detected so far. Zero means no limit.
+ *
+ * Budget can be shared by detections running at the same time, then cancel
+ * stops all of them. Parallel detection of components counts steps and time
+ * of all components together, limit of decision lists applies to each
+ * component.
+ *
+ * @author JPEXS
+ */
+public class DetectionBudget {
+
+    private long maxSteps = 0;
+    private long maxTime = 0;
+    private long maxDecisionListEntries = 0;
+    private volatile boolean cancelled = false;
+    private final DetectionBudget parent;
+
+    public DetectionBudget() {
+        this.parent = null;
+    }
+
+    /**
+     * Creates budget with the same limits, which is cancelled also when the
+     * source budget is cancelled.
+     *
+     * @param source Source budget
+     */
+    public DetectionBudget(DetectionBudget source) {
+        this.maxSteps = source.maxSteps;
+        this.maxTime = source.maxTime;
+        this.maxDecisionListEntries = source.maxDecisionListEntries;
+        this.parent = source;
+    }
+
+    /**
+     * Sets maximum number of steps. Step is processing of a node, one node
+     * of a path search or one pass of decision list merging.
+     *
+     * @param maxSteps Maximum number of steps
+     */
+    public void setMaxSteps(long maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Sets maximum wall time of detection.
+     *
+     * @param maxTime Maximum time in milliseconds
+     */
+    public void setMaxTime(long maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Sets maximum number of decision lists tracked for edges.
+     *
+     * @param maxDecisionListEntries Maximum number of edges with decision
+     * list
+     */
+    public void setMaxDecisionListEntries(long maxDecisionListEntries) {
+        this.maxDecisionListEntries = maxDecisionListEntries;
+    }
+
+    public long getMaxDecisionListEntries() {
+        return maxDecisionListEntries;
+    }
+
+    /**
+     * Stops detections using this budget. Can be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure.operations;
+
+/**
+ * Result status of detection.
+ *
+ * @author JPEXS
+ */
+public enum DetectionStatus {
+    COMPLETE,
+    /**
+     * Budget was cancelled or thread was interrupted.
+     */
+    CANCELLED,
+    STEP_LIMIT,
+    TIME_LIMIT,
+    DECISION_LIST_LIMIT
+}
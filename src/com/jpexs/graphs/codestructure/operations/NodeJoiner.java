@@ -66,57 +66,14 @@ public class NodeJoiner {
         subNodesList.add(currentNode);
         visited.add(currentNode);
 
-        while (currentNode.getNext().size() == 1 && currentNode.getNext().get(0).getPrev().size() == 1 && !visited.contains(currentNode.getNext().get(0))) {
-            currentNode = (EditableNode) currentNode.getNext().get(0);
+        while (currentNode.getNextCount() == 1 && currentNode.getNext(0).getPrevCount() == 1 && !visited.contains(currentNode.getNext(0))) {
+            currentNode = currentNode.getNext(0);
             visited.add(currentNode);
             subNodesList.add(currentNode);
         }
 
         if (subNodesList.size() > 1) {
-            EditableNode lastSubNode = subNodesList.get(subNodesList.size() - 1);
-            EditableNode firstSubNode = subNodesList.get(0);
-
-            List<String> subIds = new ArrayList<>();
-            for (Node sub : subNodesList) {
-                subIds.add(sub.getId());
-            }
-            EditableJoinedNode joinedNode = joinedNodeFactory.create(subIds);
-            for (Node sub : subNodesList) {
-                joinedNode.addSubNode(sub);
-            }
-            //remove connection lastSubNode->after, add connection joinedNode->after
-            for (int i = 0; i < lastSubNode.getNext().size(); i++) {
-                EditableNode next = lastSubNode.getNext().get(i);
-                joinedNode.addNext(next);
-                if (lastSubNode instanceof EditableNode) {  //it must be - TODO - make detector use only mutable
-                    EditableNode lastSubNodeMutable = (EditableNode) lastSubNode;
-                    lastSubNodeMutable.removeNext(next);
-                    i--; //removing from iterated nexts, must decrement to not skip anything
-                }
-                if (next instanceof EditableNode) { //it must be - TODO - make detector use only mutable
-                    EditableNode nextMutable = (EditableNode) next;
-                    for (int j = 0; j < next.getPrev().size(); j++) {
-                        if (next.getPrev().get(j) == lastSubNode) {
-                            nextMutable.setPrev(j, joinedNode);
-                        }
-                    }
-                }
-            }
-            //remove connection before->firstNode, add connection before->joinedNode
-            for (int i = 0; i < firstSubNode.getPrev().size(); i++) {
-                EditableNode prev = firstSubNode.getPrev().get(i);
-                joinedNode.addPrev(prev);
-                EditableNode firstSubNodeMutable = (EditableNode) firstSubNode;
-                firstSubNodeMutable.removePrev(prev);
-                i--; //removing from iterated prevs, must decrement to not skip anything
-                EditableNode prevMutable = (EditableNode) prev;
-                for (int j = 0; j < prev.getNext().size(); j++) {
-                    if (prev.getNext().get(j) == firstSubNode) {
-                        prevMutable.setNext(j, joinedNode);
-                    }
-                }
-
-            }
+            EditableJoinedNode joinedNode = joinSubNodes(subNodesList);
             fireNodesJoined(joinedNode);
             fireStep();
             result = joinedNode;
@@ -124,13 +81,70 @@ public class NodeJoiner {
             result = originalNode;
         }
 
-        for (EditableNode next : result.getNext()) {
+        //joining modifies next nodes of result, iterate over copy
+        for (EditableNode next : new ArrayList<>(result.getNext())) {
             joinNodes(next, visited);
         }
 
         return result;
     }
 
+    /**
+     * Replaces chain of nodes with one joined node. Each node of the chain
+     * except the last one must have the next node of the chain as its only
+     * next node. No events are fired.
+     *
+     * @param subNodesList Chain of nodes
+     * @return Joined node
+     */
+    public EditableJoinedNode joinSubNodes(List<EditableNode> subNodesList) {
+        EditableNode lastSubNode = subNodesList.get(subNodesList.size() - 1);
+        EditableNode firstSubNode = subNodesList.get(0);
+
+        List<String> subIds = new ArrayList<>();
+        for (Node sub : subNodesList) {
+            subIds.add(sub.getId());
+        }
+        EditableJoinedNode joinedNode = joinedNodeFactory.create(subIds);
+        for (Node sub : subNodesList) {
+            joinedNode.addSubNode(sub);
+        }
+        //remove connection lastSubNode->after, add connection joinedNode->after
+        for (int i = 0; i < lastSubNode.getNextCount(); i++) {
+            EditableNode next = lastSubNode.getNext(i);
+            joinedNode.addNext(next);
+            if (lastSubNode instanceof EditableNode) {  //it must be - TODO - make detector use only mutable
+                EditableNode lastSubNodeMutable = (EditableNode) lastSubNode;
+                lastSubNodeMutable.removeNext(next);
+                i--; //removing from iterated nexts, must decrement to not skip anything
+            }
+            if (next instanceof EditableNode) { //it must be - TODO - make detector use only mutable
+                EditableNode nextMutable = (EditableNode) next;
+                for (int j = 0; j < next.getPrevCount(); j++) {
+                    if (next.getPrev(j) == lastSubNode) {
+                        nextMutable.setPrev(j, joinedNode);
+                    }
+                }
+            }
+        }
+        //remove connection before->firstNode, add connection before->joinedNode
+        for (int i = 0; i < firstSubNode.getPrevCount(); i++) {
+            EditableNode prev = firstSubNode.getPrev(i);
+            joinedNode.addPrev(prev);
+            EditableNode firstSubNodeMutable = (EditableNode) firstSubNode;
+            firstSubNodeMutable.removePrev(prev);
+            i--; //removing from iterated prevs, must decrement to not skip anything
+            EditableNode prevMutable = (EditableNode) prev;
+            for (int j = 0; j < prev.getNextCount(); j++) {
+                if (prev.getNext(j) == firstSubNode) {
+                    prevMutable.setNext(j, joinedNode);
+                }
+            }
+
+        }
+        return joinedNode;
+    }
+
     private List<NodeJoinerProgressListener> listeners = new ArrayList<>();
 
     public void addListener(NodeJoinerProgressListener l) {
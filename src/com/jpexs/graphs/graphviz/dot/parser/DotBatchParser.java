@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import com.jpexs.graphs.graphviz.graph.Graph;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses many DOT files concurrently on a bounded pool of threads.
+ *
+ * Results are reported in order of input files. At most maxPending files are
+ * being processed or waiting to be reported, so memory stays bounded when
+ * results are consumed by a handler.
+ *
+ * @author JPEXS
+ */
+public class DotBatchParser {
+
+    /**
+     * Processes one file. Called from pool threads, each call should use its
+     * own parser.
+     *
+     * @param <T> Type of result
+     */
+    public static interface FileProcessor<T> {
+
+        public T process(Path file) throws IOException, DotParseException;
+    }
+
+    /**
+     * Receives results on the thread which called process, in order of input
+     * files.
+     *
+     * @param <T> Type of result
+     */
+    public static interface ResultHandler<T> {
+
+        public void result(Result<T> result);
+    }
+
+    /**
+     * Result of one file, value or error.
+     *
+     * @param <T> Type of value
+     */
+    public static class Result<T> {
+
+        private final Path file;
+        private final T value;
+        private final Exception error;
+
+        public Result(Path file, T value, Exception error) {
+            this.file = file;
+            this.value = value;
+            this.error = error;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * Gets value.
+         *
+         * @return Value or null on error
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Gets error.
+         *
+         * @return IOException, DotParseException or RuntimeException of the
+         * processor, null on success
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isOk() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return file + (error == null ? "" : ": " + error);
+        }
+    }
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    private int maxPending = 0;
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threadCount = threadCount;
+    }
+
+    public int getMaxPending() {
+        return maxPending == 0 ? threadCount * 2 : maxPending;
+    }
+
+    /**
+     * Sets maximum count of files which are processed or wait for their
+     * result to be handled.
+     *
+     * @param maxPending Count, 0 for twice the thread count
+     */
+    public void setMaxPending(int maxPending) {
+        if (maxPending < 0) {
+            throw new IllegalArgumentException("Max pending must not be negative");
+        }
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Lists files with .gv or .dot extension in the directory, sorted by
+     * name.
+     *
+     * @param dir Directory
+     * @return Files
+     * @throws IOException On read error
+     */
+    public static List<Path> listFiles(Path dir) throws IOException {
+        List<Path> ret = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.{gv,dot}")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    ret.add(file);
+                }
+            }
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    /**
+     * Parses all .gv and .dot files of the directory.
+     *
+     * @param dir Directory
+     * @return Results sorted by file name
+     * @throws IOException When directory cannot be listed
+     * @throws InterruptedException When interrupted, unfinished files are
+     * cancelled
+     */
+    public List<Result<Graph>> parseDirectory(Path dir) throws IOException, InterruptedException {
+        return parse(listFiles(dir));
+    }
+
+    /**
+     * Parses files to graphs.
+     *
+     * @param files Files
+     * @return Results in order of files
+     * @throws InterruptedException When interrupted, unfinished files are
+     * cancelled
+     */
+    public List<Result<Graph>> parse(List<Path> files) throws InterruptedException {
+        final List<Result<Graph>> ret = new ArrayList<>();
+        process(files, new FileProcessor<Graph>() {
+            @Override
+            public Graph process(Path file) throws IOException, DotParseException {
+                return new DotParser().parse(file);
+            }
+        }, new ResultHandler<Graph>() {
+            @Override
+            public void result(Result<Graph> result) {
+                ret.add(result);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Processes files concurrently. Files are submitted only when there is
+     * less than maxPending files waiting, so a slow handler slows down
+     * processing instead of collecting results in memory.
+     *
+     * @param <T> Type of result
+     * @param files Files
+     * @param processor Processor, called on pool threads
+     * @param handler Handler, called on this thread in order of files
+     * @throws InterruptedException When interrupted, unfinished files are
+     * cancelled
+     */
+    public <T> void process(List<Path> files, final FileProcessor<T> processor, ResultHandler<T> handler) throws InterruptedException {
+        int limit = getMaxPending();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threadCount, Math.max(1, files.size())), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DotBatchParser-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Deque<Future<Result<T>>> pending = new ArrayDeque<>();
+        try {
+            int next = 0;
+            while (next < files.size() || !pending.isEmpty()) {
+                while (next < files.size() && pending.size() < limit) {
+                    final Path file = files.get(next++);
+                    pending.add(pool.submit(new Callable<Result<T>>() {
+                        @Override
+                        public Result<T> call() {
+                            try {
+                                return new Result<>(file, processor.process(file), null);
+                            } catch (IOException | DotParseException | RuntimeException ex) {
+                                return new Result<>(file, null, ex);
+                            }
+                        }
+                    }));
+                }
+                Result<T> result;
+                try {
+                    result = pending.removeFirst().get();
+                } catch (ExecutionException ex) {
+                    //errors other than exceptions of the file
+                    if (ex.getCause() instanceof Error) {
+                        throw (Error) ex.getCause();
+                    }
+                    throw new RuntimeException(ex.getCause());
+                }
+                handler.result(result);
+            }
+        } finally {
+            for (Future<Result<T>> f : pending) {
+                f.cancel(true);
+            }
+            pool.shutdownNow();
+        }
+    }
+}
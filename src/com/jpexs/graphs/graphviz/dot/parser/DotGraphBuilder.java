@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import com.jpexs.graphs.graphviz.graph.ConnectableObject;
+import com.jpexs.graphs.graphviz.graph.Edge;
+import com.jpexs.graphs.graphviz.graph.Graph;
+import com.jpexs.graphs.graphviz.graph.GraphBase;
+import com.jpexs.graphs.graphviz.graph.NodeId;
+import com.jpexs.graphs.graphviz.graph.NodeIdToAttributes;
+import com.jpexs.graphs.graphviz.graph.SubGraph;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds Graph from parse events. All subgraphs, including nested ones, are
+ * added to subgraphs of the main graph in order of their end.
+ *
+ * @author JPEXS
+ */
+public class DotGraphBuilder implements DotParseListener {
+
+    private Graph graph;
+    private boolean directed;
+    private List<SubGraph> subgraphs;
+    private final List<GraphBase> openGraphs = new ArrayList<>();
+
+    public DotGraphBuilder() {
+    }
+
+    /**
+     * Creates builder which adds statements to existing graph.
+     *
+     * @param target Target graph
+     * @param directed Directed graph
+     */
+    DotGraphBuilder(GraphBase target, boolean directed) {
+        this.directed = directed;
+        this.subgraphs = target.subgraphs;
+        openGraphs.add(target);
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    private GraphBase current() {
+        return openGraphs.get(openGraphs.size() - 1);
+    }
+
+    @Override
+    public void graphBegin(boolean strict, boolean directed, DotId id) {
+        this.directed = directed;
+        graph = new Graph(strict, directed);
+        graph.id = id;
+        subgraphs = graph.subgraphs;
+        openGraphs.add(graph);
+    }
+
+    @Override
+    public void graphEnd() {
+        openGraphs.remove(openGraphs.size() - 1);
+    }
+
+    @Override
+    public void subgraphBegin(DotId id) {
+        SubGraph subgraph = new SubGraph(directed);
+        subgraph.id = id;
+        openGraphs.add(subgraph);
+    }
+
+    @Override
+    public ConnectableObject subgraphEnd() {
+        SubGraph subgraph = (SubGraph) openGraphs.remove(openGraphs.size() - 1);
+        subgraphs.add(subgraph);
+        return subgraph;
+    }
+
+    @Override
+    public void graphAttribute(DotId key, DotId value) {
+        current().graphAttributes.put(key, value);
+    }
+
+    @Override
+    public void attributeStatement(String kind, AttributesMap attributes) {
+        switch (kind) {
+            case "graph":
+                current().graphAttributes.putAll(attributes);
+                break;
+            case "node":
+                current().nodeAttributes.putAll(attributes);
+                break;
+            case "edge":
+                current().edgeAttributes.putAll(attributes);
+                break;
+        }
+    }
+
+    @Override
+    public void nodeStatement(NodeId node, AttributesMap attributes) {
+        current().nodes.add(new NodeIdToAttributes(node, attributes == null ? new AttributesMap() : attributes));
+    }
+
+    @Override
+    public void edge(ConnectableObject from, ConnectableObject to, AttributesMap attributes) {
+        Edge edge = new Edge(directed, from, to);
+        if (attributes != null) {
+            edge.attributes = attributes;
+        }
+        current().edges.add(edge);
+    }
+}
@@ -20,10 +20,16 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
+ * Identifier of DOT language. Quoted form returned by toString is computed
+ * on first use. Parser interns ids, so same ids of one parse share one
+ * instance; common attribute names and values are shared by all parses, see
+ * valueOf.
  *
  * @author JPEXS
  */
@@ -38,14 +44,56 @@ public final class DotId {
     final static Pattern IDENTIFIER_PATTERN = Pattern.compile(CH);
     final static Pattern HTML_PATTERN = Pattern.compile("^<.+>$");
 
-    private String value;
-    private boolean isHtml;
+    /**
+     * Ids shared by all parses.
+     */
+    static final DotId[] COMMON_IDS;
+    private static final Map<String, DotId> COMMON_BY_VALUE = new HashMap<>();
+
+    static {
+        String[] common = new String[]{
+            "label", "color", "fontcolor", "headlabel", "taillabel", "xlabel",
+            "shape", "style", "fillcolor", "fontname", "fontsize", "width",
+            "height", "penwidth", "rankdir", "splines", "dir", "weight",
+            "_ignore", "_ignoreattrib",
+            "true", "false", "red", "green", "blue", "black", "white",
+            "darkgreen", "gray", "box", "ellipse", "circle", "diamond",
+            "point", "none", "filled", "dashed", "dotted", "bold", "invis"
+        };
+        COMMON_IDS = new DotId[common.length];
+        for (int i = 0; i < common.length; i++) {
+            COMMON_IDS[i] = new DotId(common[i], false);
+            COMMON_BY_VALUE.put(common[i], COMMON_IDS[i]);
+        }
+    }
+
+    final String value;
+    final boolean isHtml;
+    private final int hash;
     private String toStringValue;
 
     public DotId(String value, boolean isHtml) {
         this.value = value;
         this.isHtml = isHtml;
-        this.toStringValue = generateToString();
+        int h = 5;
+        h = 89 * h + Objects.hashCode(value);
+        h = 89 * h + (isHtml ? 1 : 0);
+        this.hash = h;
+    }
+
+    /**
+     * Gets non-HTML id. Common attribute names and values return shared
+     * instance.
+     *
+     * @param value Value
+     * @return Id
+     */
+    public static DotId valueOf(String value) {
+        DotId ret = COMMON_BY_VALUE.get(value);
+        if (ret != null) {
+            return ret;
+        }
+        return new DotId(value, false);
     }
 
     public static DotId fromString(String id) {
@@ -71,7 +119,13 @@ public final class DotId {
 
     @Override
     public String toString() {
-        return toStringValue;
+        //racy single check, all threads compute the same string
+        String ret = toStringValue;
+        if (ret == null) {
+            ret = generateToString();
+            toStringValue = ret;
+        }
+        return ret;
     }
 
     private String generateToString() {
@@ -93,9 +147,6 @@ public final class DotId {
 
     @Override
     public int hashCode() {
-        int hash = 5;
-        hash = 89 * hash + Objects.hashCode(this.value);
-        hash = 89 * hash + (this.isHtml ? 1 : 0);
         return hash;
     }
 
@@ -111,6 +162,9 @@ public final class DotId {
             return false;
         }
         final DotId other = (DotId) obj;
+        if (this.hash != other.hash) {
+            return false;
+        }
         if (this.isHtml != other.isHtml) {
             return false;
         }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+/**
+ * Interning table of DotIds of one parse. Lookup of a text which is already
+ * in the table does not allocate. Table starts with the common ids of DotId,
+ * so parsed attribute names are the same instances as DotId.valueOf.
+ *
+ * @author JPEXS
+ */
+final class DotIdTable {
+
+    /**
+     * Table of the common ids, copied by each new table.
+     */
+    private static final DotIdTable COMMON = new DotIdTable(DotId.COMMON_IDS);
+
+    private DotId[] ids;
+    private int size;
+
+    private DotIdTable(DotId[] commonIds) {
+        ids = new DotId[256];
+        for (DotId id : commonIds) {
+            insert(id);
+        }
+    }
+
+    DotIdTable() {
+        ids = COMMON.ids.clone();
+        size = COMMON.size;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private void insert(DotId id) {
+        if ((size + 1) * 2 > ids.length) {
+            DotId[] oldIds = ids;
+            ids = new DotId[oldIds.length * 2];
+            for (DotId oldId : oldIds) {
+                if (oldId != null) {
+                    place(oldId);
+                }
+            }
+        }
+        place(id);
+        size++;
+    }
+
+    private void place(DotId id) {
+        int mask = ids.length - 1;
+        int slot = mix(id.value.hashCode()) & mask;
+        while (ids[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+    }
+
+    /**
+     * Gets id of the chars.
+     *
+     * @param buf Buffer
+     * @param start Start index
+     * @param len Length
+     * @param isHtml HTML string
+     * @return Interned id
+     */
+    DotId get(char[] buf, int start, int len, boolean isHtml) {
+        int h = 0;
+        for (int i = start; i < start + len; i++) {
+            h = 31 * h + buf[i];
+        }
+        int mask = ids.length - 1;
+        int slot = mix(h) & mask;
+        DotId id;
+        while ((id = ids[slot]) != null) {
+            if (id.isHtml == isHtml && id.value.length() == len && id.value.hashCode() == h && sameChars(id.value, buf, start)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        id = new DotId(new String(buf, start, len), isHtml);
+        insert(id);
+        return id;
+    }
+
+    private static boolean sameChars(String value, char[] buf, int start) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -17,7 +17,7 @@
  * License along with this library.
  */
 package com.jpexs.graphs.graphviz.dot.parser;
-import java.util.Stack;
+import java.util.Arrays;
 
 
 /**
@@ -31,7 +31,7 @@ public final class DotLexer {
   public static final int YYEOF = -1;
 
   /** initial size of the lookahead buffer */
-  private static final int ZZ_BUFFERSIZE = 16384;
+  private static final int ZZ_BUFFERSIZE = 1024;
 
   /** lexical states */
   public static final int YYINITIAL = 0;
@@ -52,11 +52,11 @@ public final class DotLexer {
    * Translates characters to character classes
    */
   private static final String ZZ_CMAP_PACKED = 
-    "\11\0\1\3\1\2\1\46\1\47\1\1\22\0\1\3\1\0\1\45"+
+    "\11\0\1\3\1\2\1\46\1\3\1\1\22\0\1\3\1\0\1\45"+
     "\7\0\1\5\1\0\1\34\1\10\1\11\1\4\12\7\1\42\1\33"+
     "\1\44\1\37\1\43\2\0\1\22\1\32\1\20\1\25\1\30\1\6"+
     "\1\21\1\24\1\17\4\6\1\26\1\27\1\23\1\6\1\15\1\13"+
-    "\1\14\1\31\5\6\1\40\1\50\1\41\1\0\1\6\1\0\1\22"+
+    "\1\14\1\31\5\6\1\40\1\47\1\41\1\0\1\6\1\0\1\22"+
     "\1\32\1\20\1\25\1\30\1\6\1\21\1\24\1\17\4\6\1\26"+
     "\1\27\1\23\1\6\1\15\1\13\1\14\1\31\5\6\1\35\1\0"+
     "\1\36\7\0\1\46\252\0\2\16\115\0\1\12\200\0\u0178\6\u1cb0\0"+
@@ -75,15 +75,15 @@ public final class DotLexer {
   private static final String ZZ_ACTION_PACKED_0 =
     "\3\0\1\1\2\2\1\3\1\1\1\4\1\5\3\1"+
     "\5\4\1\6\1\7\1\10\1\11\1\12\1\13\1\14"+
-    "\1\15\1\16\1\17\1\20\1\21\2\22\1\23\1\21"+
-    "\1\24\1\25\1\3\1\0\1\5\1\26\1\0\1\27"+
-    "\2\0\3\4\1\0\3\4\1\30\2\3\4\0\3\4"+
-    "\1\0\3\4\3\0\3\4\1\0\1\4\1\31\1\32"+
-    "\2\0\2\4\1\33\1\0\1\4\1\34\1\0\1\34"+
-    "\1\4\1\0\1\4\1\0\1\4\2\35\2\36";
+    "\1\15\1\16\1\17\1\20\1\21\2\22\1\23\1\24"+
+    "\1\21\1\25\1\26\1\27\1\0\1\5\1\30\1\0"+
+    "\1\31\2\0\3\4\1\0\3\4\1\32\2\27\4\0"+
+    "\3\4\1\0\3\4\3\0\3\4\1\0\1\4\1\33"+
+    "\1\34\2\0\2\4\1\35\1\0\1\4\1\36\1\0"+
+    "\1\36\1\4\1\0\1\4\1\0\1\4\2\37\2\40";
 
   private static int [] zzUnpackAction() {
-    int [] result = new int[94];
+    int [] result = new int[95];
     int offset = 0;
     offset = zzUnpackAction(ZZ_ACTION_PACKED_0, offset, result);
     return result;
@@ -108,21 +108,21 @@ public final class DotLexer {
   private static final int [] ZZ_ROWMAP = zzUnpackRowMap();
 
   private static final String ZZ_ROWMAP_PACKED_0 =
-    "\0\0\0\51\0\122\0\173\0\244\0\173\0\315\0\366"+
-    "\0\u011f\0\u0148\0\u0171\0\u019a\0\u01c3\0\u01ec\0\u0215\0\u023e"+
-    "\0\u0267\0\u0290\0\173\0\173\0\173\0\173\0\173\0\173"+
-    "\0\173\0\173\0\173\0\173\0\173\0\173\0\u02b9\0\173"+
-    "\0\173\0\u02e2\0\173\0\173\0\u030b\0\u0334\0\u019a\0\173"+
-    "\0\u019a\0\173\0\u035d\0\u0386\0\u03af\0\u03d8\0\u0401\0\u042a"+
-    "\0\u0453\0\u047c\0\u04a5\0\173\0\u04ce\0\173\0\u04f7\0\u0520"+
-    "\0\u0549\0\u0572\0\u059b\0\u05c4\0\u05ed\0\u0616\0\u063f\0\u0668"+
-    "\0\u0691\0\u06ba\0\u06e3\0\u070c\0\u0735\0\u075e\0\u0787\0\u07b0"+
-    "\0\u07d9\0\u011f\0\u011f\0\u0802\0\u082b\0\u0854\0\u087d\0\u011f"+
-    "\0\u08a6\0\u08cf\0\173\0\u08f8\0\u011f\0\u0921\0\u094a\0\u0973"+
-    "\0\u099c\0\u09c5\0\173\0\u011f\0\173\0\u011f";
+    "\0\0\0\50\0\120\0\170\0\240\0\170\0\310\0\360"+
+    "\0\u0118\0\u0140\0\u0168\0\u0190\0\u01b8\0\u01e0\0\u0208\0\u0230"+
+    "\0\u0258\0\u0280\0\170\0\170\0\170\0\170\0\170\0\170"+
+    "\0\170\0\170\0\170\0\170\0\170\0\u02a8\0\u02d0\0\170"+
+    "\0\170\0\u02f8\0\u0320\0\170\0\170\0\u0348\0\u0370\0\u0190"+
+    "\0\170\0\u0190\0\170\0\u0398\0\u03c0\0\u03e8\0\u0410\0\u0438"+
+    "\0\u0460\0\u0488\0\u04b0\0\u04d8\0\170\0\u0500\0\170\0\u0528"+
+    "\0\u0550\0\u0578\0\u05a0\0\u05c8\0\u05f0\0\u0618\0\u0640\0\u0668"+
+    "\0\u0690\0\u06b8\0\u06e0\0\u0708\0\u0730\0\u0758\0\u0780\0\u07a8"+
+    "\0\u07d0\0\u07f8\0\u0118\0\u0118\0\u0820\0\u0848\0\u0870\0\u0898"+
+    "\0\u0118\0\u08c0\0\u08e8\0\170\0\u0910\0\u0118\0\u0938\0\u0960"+
+    "\0\u0988\0\u09b0\0\u09d8\0\170\0\u0118\0\170\0\u0118";
 
   private static int [] zzUnpackRowMap() {
-    int [] result = new int[94];
+    int [] result = new int[95];
     int offset = 0;
     offset = zzUnpackRowMap(ZZ_ROWMAP_PACKED_0, offset, result);
     return result;
@@ -149,49 +149,50 @@ public final class DotLexer {
     "\1\13\1\14\1\15\1\16\2\11\1\4\2\11\1\17"+
     "\3\11\1\20\1\21\1\11\1\22\2\11\1\23\1\24"+
     "\1\25\1\26\1\27\1\30\1\31\1\32\1\4\1\33"+
-    "\1\34\1\35\1\7\1\4\1\36\1\37\1\40\42\36"+
-    "\1\41\2\35\1\42\1\36\1\37\1\40\40\36\1\43"+
-    "\1\44\1\36\2\35\1\36\53\0\1\6\51\0\1\7"+
-    "\43\0\1\7\5\0\1\45\1\46\51\0\2\11\3\0"+
-    "\3\11\1\0\14\11\25\0\1\12\1\0\1\47\46\0"+
-    "\1\12\1\50\1\51\31\0\1\52\14\0\1\47\55\0"+
-    "\1\53\14\0\1\54\25\0\2\11\3\0\1\11\1\55"+
-    "\1\11\1\0\12\11\1\56\1\11\24\0\2\11\3\0"+
-    "\2\11\1\57\1\0\14\11\24\0\2\11\3\0\3\11"+
-    "\1\60\1\61\13\11\24\0\2\11\3\0\3\11\1\0"+
-    "\10\11\1\62\3\11\24\0\2\11\3\0\3\11\1\0"+
-    "\6\11\1\63\5\11\20\0\1\40\113\0\1\64\3\0"+
-    "\1\45\1\65\1\66\46\45\5\67\1\70\43\67\15\0"+
-    "\1\71\65\0\1\72\24\0\2\11\3\0\2\11\1\73"+
-    "\1\0\14\11\24\0\2\11\3\0\3\11\1\0\13\11"+
-    "\1\74\24\0\2\11\3\0\3\11\1\0\3\11\1\75"+
-    "\10\11\37\0\1\76\35\0\2\11\3\0\3\11\1\0"+
-    "\2\11\1\77\11\11\24\0\2\11\3\0\3\11\1\0"+
-    "\6\11\1\100\5\11\24\0\2\11\3\0\3\11\1\0"+
-    "\2\11\1\101\11\11\20\0\1\66\46\0\5\67\1\102"+
-    "\43\67\4\0\1\66\1\70\61\0\2\103\52\0\1\104"+
-    "\35\0\2\11\3\0\3\11\1\103\1\105\13\11\24\0"+
-    "\2\11\3\0\3\11\1\0\2\11\1\106\11\11\24\0"+
-    "\2\11\3\0\3\11\1\0\4\11\1\107\7\11\33\0"+
-    "\1\110\41\0\2\11\3\0\2\11\1\111\1\0\14\11"+
-    "\24\0\2\11\3\0\3\11\1\0\11\11\1\112\2\11"+
-    "\24\0\2\11\3\0\3\11\1\0\11\11\1\113\2\11"+
-    "\16\0\4\67\1\66\1\102\43\67\20\0\1\114\45\0"+
-    "\1\115\41\0\2\11\3\0\3\11\1\0\1\11\1\116"+
-    "\12\11\24\0\2\11\3\0\2\11\1\117\1\0\14\11"+
-    "\24\0\2\11\3\0\3\11\1\0\5\11\1\120\6\11"+
-    "\40\0\1\121\34\0\2\11\3\0\3\11\1\0\3\11"+
-    "\1\122\10\11\32\0\1\123\56\0\1\124\34\0\2\11"+
-    "\3\0\1\11\1\125\1\11\1\0\14\11\24\0\2\11"+
-    "\3\0\3\11\1\0\3\11\1\126\10\11\41\0\1\127"+
-    "\33\0\2\11\3\0\3\11\1\0\4\11\1\130\7\11"+
-    "\41\0\1\131\33\0\2\11\3\0\3\11\1\0\4\11"+
-    "\1\132\7\11\42\0\1\133\32\0\2\11\3\0\3\11"+
-    "\1\0\5\11\1\134\6\11\42\0\1\135\32\0\2\11"+
-    "\3\0\3\11\1\0\5\11\1\136\6\11\16\0";
+    "\1\34\1\35\1\4\1\36\1\37\1\40\42\36\1\41"+
+    "\1\36\1\42\1\43\1\37\1\40\40\43\1\44\1\45"+
+    "\3\43\52\0\1\6\50\0\1\7\50\0\1\46\1\47"+
+    "\50\0\2\11\3\0\3\11\1\0\14\11\24\0\1\12"+
+    "\1\0\1\50\45\0\1\12\1\51\1\52\31\0\1\53"+
+    "\13\0\1\50\54\0\1\54\14\0\1\55\24\0\2\11"+
+    "\3\0\1\11\1\56\1\11\1\0\12\11\1\57\1\11"+
+    "\23\0\2\11\3\0\2\11\1\60\1\0\14\11\23\0"+
+    "\2\11\3\0\3\11\1\61\1\62\13\11\23\0\2\11"+
+    "\3\0\3\11\1\0\10\11\1\63\3\11\23\0\2\11"+
+    "\3\0\3\11\1\0\6\11\1\64\5\11\15\0\1\36"+
+    "\2\0\42\36\1\0\1\36\3\0\1\40\112\0\1\65"+
+    "\2\0\1\43\2\0\40\43\2\0\3\43\1\46\1\66"+
+    "\1\67\45\46\5\70\1\71\42\70\15\0\1\72\64\0"+
+    "\1\73\23\0\2\11\3\0\2\11\1\74\1\0\14\11"+
+    "\23\0\2\11\3\0\3\11\1\0\13\11\1\75\23\0"+
+    "\2\11\3\0\3\11\1\0\3\11\1\76\10\11\36\0"+
+    "\1\77\34\0\2\11\3\0\3\11\1\0\2\11\1\100"+
+    "\11\11\23\0\2\11\3\0\3\11\1\0\6\11\1\101"+
+    "\5\11\23\0\2\11\3\0\3\11\1\0\2\11\1\102"+
+    "\11\11\17\0\1\67\45\0\5\70\1\103\42\70\4\0"+
+    "\1\67\1\71\60\0\2\104\51\0\1\105\34\0\2\11"+
+    "\3\0\3\11\1\104\1\106\13\11\23\0\2\11\3\0"+
+    "\3\11\1\0\2\11\1\107\11\11\23\0\2\11\3\0"+
+    "\3\11\1\0\4\11\1\110\7\11\32\0\1\111\40\0"+
+    "\2\11\3\0\2\11\1\112\1\0\14\11\23\0\2\11"+
+    "\3\0\3\11\1\0\11\11\1\113\2\11\23\0\2\11"+
+    "\3\0\3\11\1\0\11\11\1\114\2\11\15\0\4\70"+
+    "\1\67\1\103\42\70\20\0\1\115\44\0\1\116\40\0"+
+    "\2\11\3\0\3\11\1\0\1\11\1\117\12\11\23\0"+
+    "\2\11\3\0\2\11\1\120\1\0\14\11\23\0\2\11"+
+    "\3\0\3\11\1\0\5\11\1\121\6\11\37\0\1\122"+
+    "\33\0\2\11\3\0\3\11\1\0\3\11\1\123\10\11"+
+    "\31\0\1\124\55\0\1\125\33\0\2\11\3\0\1\11"+
+    "\1\126\1\11\1\0\14\11\23\0\2\11\3\0\3\11"+
+    "\1\0\3\11\1\127\10\11\40\0\1\130\32\0\2\11"+
+    "\3\0\3\11\1\0\4\11\1\131\7\11\40\0\1\132"+
+    "\32\0\2\11\3\0\3\11\1\0\4\11\1\133\7\11"+
+    "\41\0\1\134\31\0\2\11\3\0\3\11\1\0\5\11"+
+    "\1\135\6\11\41\0\1\136\31\0\2\11\3\0\3\11"+
+    "\1\0\5\11\1\137\6\11\15\0";
 
   private static int [] zzUnpackTrans() {
-    int [] result = new int[2542];
+    int [] result = new int[2560];
     int offset = 0;
     offset = zzUnpackTrans(ZZ_TRANS_PACKED_0, offset, result);
     return result;
@@ -229,15 +230,15 @@ public final class DotLexer {
   private static final int [] ZZ_ATTRIBUTE = zzUnpackAttribute();
 
   private static final String ZZ_ATTRIBUTE_PACKED_0 =
-    "\3\0\1\11\1\1\1\11\14\1\14\11\1\1\2\11"+
-    "\1\1\2\11\1\1\1\0\1\1\1\11\1\0\1\11"+
+    "\3\0\1\11\1\1\1\11\14\1\13\11\2\1\2\11"+
+    "\2\1\2\11\1\1\1\0\1\1\1\11\1\0\1\11"+
     "\2\0\3\1\1\0\3\1\1\11\1\1\1\11\4\0"+
     "\3\1\1\0\3\1\3\0\3\1\1\0\3\1\2\0"+
     "\3\1\1\0\1\1\1\11\1\0\2\1\1\0\1\1"+
     "\1\0\1\1\1\11\1\1\1\11\1\1";
 
   private static int [] zzUnpackAttribute() {
-    int [] result = new int[94];
+    int [] result = new int[95];
     int offset = 0;
     offset = zzUnpackAttribute(ZZ_ATTRIBUTE_PACKED_0, offset, result);
     return result;
@@ -342,20 +343,361 @@ public final class DotLexer {
         return yyline + 1;
     }
 
-    private final Stack<DotParsedSymbol> pushedBack = new Stack<>();
-   
+    /* Symbols shared in flyweight mode, they have no line */
+    private static final DotParsedSymbol STRICT = new DotParsedSymbol(0, DotParsedSymbol.TYPE_KEYWORD_STRICT, "strict");
+    private static final DotParsedSymbol GRAPH = new DotParsedSymbol(0, DotParsedSymbol.TYPE_KEYWORD_GRAPH, "graph");
+    private static final DotParsedSymbol DIGRAPH = new DotParsedSymbol(0, DotParsedSymbol.TYPE_KEYWORD_DIGRAPH, "digraph");
+    private static final DotParsedSymbol NODE = new DotParsedSymbol(0, DotParsedSymbol.TYPE_KEYWORD_NODE, "node");
+    private static final DotParsedSymbol EDGE = new DotParsedSymbol(0, DotParsedSymbol.TYPE_KEYWORD_EDGE, "edge");
+    private static final DotParsedSymbol SUBGRAPH = new DotParsedSymbol(0, DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH, "subgraph");
+    private static final DotParsedSymbol SEMICOLON = new DotParsedSymbol(0, DotParsedSymbol.TYPE_SEMICOLON, ";");
+    private static final DotParsedSymbol COMMA = new DotParsedSymbol(0, DotParsedSymbol.TYPE_COMMA, ",");
+    private static final DotParsedSymbol BRACE_OPEN = new DotParsedSymbol(0, DotParsedSymbol.TYPE_BRACE_OPEN, "{");
+    private static final DotParsedSymbol BRACE_CLOSE = new DotParsedSymbol(0, DotParsedSymbol.TYPE_BRACE_CLOSE, "}");
+    private static final DotParsedSymbol EQUAL = new DotParsedSymbol(0, DotParsedSymbol.TYPE_EQUAL, "=");
+    private static final DotParsedSymbol BRACKET_OPEN = new DotParsedSymbol(0, DotParsedSymbol.TYPE_BRACKET_OPEN, "[");
+    private static final DotParsedSymbol BRACKET_CLOSE = new DotParsedSymbol(0, DotParsedSymbol.TYPE_BRACKET_CLOSE, "]");
+    private static final DotParsedSymbol COLON = new DotParsedSymbol(0, DotParsedSymbol.TYPE_COLON, ":");
+    private static final DotParsedSymbol MINUSMINUS = new DotParsedSymbol(0, DotParsedSymbol.TYPE_MINUSMINUS, "--");
+    private static final DotParsedSymbol ARROW = new DotParsedSymbol(0, DotParsedSymbol.TYPE_ARROW, "->");
+    private static final DotParsedSymbol EOF = new DotParsedSymbol(0, DotParsedSymbol.TYPE_EOF, "");
+
+    private boolean flyweight = false;
+    private DotIdTable idTable;
+    private char[] stringChars = new char[64];
+
+    private char[] textBuffer;
+    private int textStart;
+    private int textLength;
+
+    /**
+     * Sets low allocation mode. Keywords and punctuation are then returned
+     * as shared symbols without line, use symbolLine() instead. IDs are
+     * interned from their text offsets, same IDs share one DotId. Shared
+     * symbols must not be modified.
+     *
+     * @param flyweight Flyweight mode
+     */
+    public void setFlyweight(boolean flyweight) {
+        this.flyweight = flyweight;
+        if (flyweight && idTable == null) {
+            idTable = new DotIdTable();
+        }
+    }
+
+    public boolean isFlyweight() {
+        return flyweight;
+    }
+
+    private void countLines() {
+        for (int i = zzStartRead; i < zzMarkedPos; i++) {
+            char c = zzBuffer[i];
+            if (c == '\n' || (c == '\r' && (i + 1 == zzMarkedPos || zzBuffer[i + 1] != '\n'))) {
+                yyline++;
+            }
+        }
+    }
+
+    private DotParsedSymbol symbol(int type, DotParsedSymbol shared) {
+        if (flyweight) {
+            return shared;
+        }
+        return new DotParsedSymbol(yyline(), type, yytext());
+    }
+
+    /**
+     * Gets buffer with text of the last scanned ID. Text of quoted and HTML
+     * strings is without quotes and escapes. The buffer is shared, the text
+     * is valid only until next symbol is scanned, pushed back symbols do not
+     * change it.
+     *
+     * @return Buffer
+     */
+    public char[] textBuffer() {
+        return textBuffer;
+    }
+
+    /**
+     * Gets start of text of the last scanned ID in textBuffer().
+     *
+     * @return Start index
+     */
+    public int textStart() {
+        return textStart;
+    }
+
+    /**
+     * Gets length of text of the last scanned ID.
+     *
+     * @return Length
+     */
+    public int textLength() {
+        return textLength;
+    }
+
+    private DotParsedSymbol idSymbol(int idtype, char[] buf, int start, int len) {
+        textBuffer = buf;
+        textStart = start;
+        textLength = len;
+        if (flyweight) {
+            DotId id = idTable.get(buf, start, len, idtype == DotParsedSymbol.IDTYPE_HTML_STRING);
+            return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ID, idtype, id);
+        }
+        return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ID, idtype, new String(buf, start, len));
+    }
+
+    private DotParsedSymbol idSymbol(int idtype) {
+        return idSymbol(idtype, zzBuffer, zzStartRead, zzMarkedPos - zzStartRead);
+    }
+
+    private DotParsedSymbol stringSymbol(int idtype) {
+        int len = string.length();
+        if (stringChars.length < len) {
+            stringChars = new char[Math.max(len, stringChars.length * 2)];
+        }
+        string.getChars(0, len, stringChars, 0);
+        return idSymbol(idtype, stringChars, 0, len);
+    }
+
+    private DotParsedSymbol fastSymbol(int end, DotParsedSymbol shared) {
+        zzMarkedPos = end;
+        zzCurrentPos = end;
+        return symbol(shared.type, shared);
+    }
+
+    private DotParsedSymbol fastId(int end, int idtype, int start, int len) {
+        zzMarkedPos = end;
+        zzCurrentPos = end;
+        return idSymbol(idtype, zzBuffer, start, len);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiIdentFirst(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isKeyword(char[] buf, int start, int len, String keyword) {
+        if (len != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            //ASCII letters only, ignoring case
+            if ((buf[start + i] | 0x20) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans whitespace and common symbols directly in the buffer. Returns
+     * null when the rest needs the scanner automaton - comments, HTML
+     * strings, escaped quotes, non-ASCII identifiers, invalid characters or
+     * end of the buffer. Skipped whitespace stays consumed.
+     */
+    private DotParsedSymbol scanFast() {
+        if (zzLexicalState != YYINITIAL) {
+            return null;
+        }
+        char[] buf = zzBuffer;
+        int end = zzEndRead;
+        int p = zzMarkedPos;
+        while (p < end) {
+            char c = buf[p];
+            if (c == ' ' || c == '\t' || c == '\f') {
+                p++;
+            } else if (c == '\n') {
+                yyline++;
+                p++;
+            } else if (c == '\r' && p + 1 < end) {
+                yyline++;
+                p += buf[p + 1] == '\n' ? 2 : 1;
+            } else {
+                break;
+            }
+        }
+        yychar += p - zzStartRead;
+        zzStartRead = p;
+        zzMarkedPos = p;
+        zzCurrentPos = p;
+        if (p + 1 >= end) {
+            return null;
+        }
+        char c = buf[p];
+        int e = p + 1;
+        switch (c) {
+            case ';':
+                return fastSymbol(e, SEMICOLON);
+            case ',':
+                return fastSymbol(e, COMMA);
+            case '{':
+                return fastSymbol(e, BRACE_OPEN);
+            case '}':
+                return fastSymbol(e, BRACE_CLOSE);
+            case '=':
+                return fastSymbol(e, EQUAL);
+            case '[':
+                return fastSymbol(e, BRACKET_OPEN);
+            case ']':
+                return fastSymbol(e, BRACKET_CLOSE);
+            case ':':
+                return fastSymbol(e, COLON);
+            case '-':
+                if (buf[e] == '-') {
+                    return fastSymbol(e + 1, MINUSMINUS);
+                }
+                if (buf[e] == '>') {
+                    return fastSymbol(e + 1, ARROW);
+                }
+                return scanFastNumeral(p, e);
+            case '"':
+                return scanFastString(p);
+        }
+        if (isDigit(c) || c == '.') {
+            return scanFastNumeral(p, p);
+        }
+        if (!isAsciiIdentFirst(c)) {
+            return null;
+        }
+        while (e < end && (isAsciiIdentFirst(buf[e]) || isDigit(buf[e]))) {
+            e++;
+        }
+        if (e == end || buf[e] >= 0x80) {
+            return null;
+        }
+        int len = e - p;
+        switch (len) {
+            case 4:
+                if (isKeyword(buf, p, len, "node")) {
+                    return fastSymbol(e, NODE);
+                }
+                if (isKeyword(buf, p, len, "edge")) {
+                    return fastSymbol(e, EDGE);
+                }
+                break;
+            case 5:
+                if (isKeyword(buf, p, len, "graph")) {
+                    return fastSymbol(e, GRAPH);
+                }
+                break;
+            case 6:
+                if (isKeyword(buf, p, len, "strict")) {
+                    return fastSymbol(e, STRICT);
+                }
+                break;
+            case 7:
+                if (isKeyword(buf, p, len, "digraph")) {
+                    return fastSymbol(e, DIGRAPH);
+                }
+                break;
+            case 8:
+                if (isKeyword(buf, p, len, "subgraph")) {
+                    return fastSymbol(e, SUBGRAPH);
+                }
+                break;
+        }
+        return fastId(e, DotParsedSymbol.IDTYPE_IDENTIFIER, p, len);
+    }
+
+    /**
+     * Scans numeral starting at start, digits start at p (after minus sign).
+     */
+    private DotParsedSymbol scanFastNumeral(int start, int p) {
+        char[] buf = zzBuffer;
+        int end = zzEndRead;
+        int digitsStart = p;
+        while (p < end && isDigit(buf[p])) {
+            p++;
+        }
+        boolean hasDigits = p > digitsStart;
+        if (p < end && buf[p] == '.') {
+            p++;
+            int fractionStart = p;
+            while (p < end && isDigit(buf[p])) {
+                p++;
+            }
+            hasDigits |= p > fractionStart;
+        }
+        if (!hasDigits || p == end) {
+            return null;
+        }
+        return fastId(p, DotParsedSymbol.IDTYPE_NUMERAL, start, p - start);
+    }
+
+    /**
+     * Scans double quoted string starting at start. Its text stays in the
+     * buffer, strings with escaped quotes are left to the automaton.
+     */
+    private DotParsedSymbol scanFastString(int start) {
+        char[] buf = zzBuffer;
+        int end = zzEndRead;
+        int p = start + 1;
+        int lines = 0;
+        while (true) {
+            if (p + 1 >= end) {
+                return null;
+            }
+            char c = buf[p];
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                if (buf[p + 1] == '"') {
+                    return null;
+                }
+            } else if (c == '\n' || (c == '\r' && buf[p + 1] != '\n')) {
+                lines++;
+            }
+            p++;
+        }
+        yyline += lines;
+        return fastId(p + 1, DotParsedSymbol.IDTYPE_DOUBLE_QUOTED, start + 1, p - start - 1);
+    }
+
+    private DotParsedSymbol[] pushedBack = new DotParsedSymbol[4];
+    private int[] pushedBackLines = new int[4];
+    private int pushedBackCount = 0;
+    private int symbolLine = 0;
+
     public void pushback(DotParsedSymbol symb) {
-        pushedBack.push(symb);
+        if (pushedBackCount == pushedBack.length) {
+            pushedBack = Arrays.copyOf(pushedBack, pushedBackCount * 2);
+            pushedBackLines = Arrays.copyOf(pushedBackLines, pushedBackCount * 2);
+        }
+        pushedBack[pushedBackCount] = symb;
+        pushedBackLines[pushedBackCount] = symbolLine;
+        pushedBackCount++;
         last = null;
     }
 
+    /**
+     * Gets line of the symbol last returned by lex(). Pushed back symbols
+     * keep their line.
+     *
+     * @return Line number
+     */
+    public int symbolLine() {
+        return symbolLine;
+    }
+
     DotParsedSymbol last;
     public DotParsedSymbol lex() throws java.io.IOException, DotParseException{
         DotParsedSymbol ret = null;
-        if (!pushedBack.isEmpty()){
-            ret = last = pushedBack.pop();
+        if (pushedBackCount > 0){
+            pushedBackCount--;
+            ret = last = pushedBack[pushedBackCount];
+            symbolLine = pushedBackLines[pushedBackCount];
+            pushedBack[pushedBackCount] = null;
         } else {
-            ret = last = yylex();
+            ret = scanFast();
+            if (ret == null) {
+                ret = yylex();
+            }
+            last = ret;
+            symbolLine = yyline();
         }
         if(printLexed)
         {
@@ -615,62 +957,6 @@ public final class DotLexer {
 
       yychar+= zzMarkedPosL-zzStartRead;
 
-      boolean zzR = false;
-      int zzCh;
-      int zzCharCount;
-      for (zzCurrentPosL = zzStartRead  ;
-           zzCurrentPosL < zzMarkedPosL ;
-           zzCurrentPosL += zzCharCount ) {
-        zzCh = Character.codePointAt(zzBufferL, zzCurrentPosL, zzMarkedPosL);
-        zzCharCount = Character.charCount(zzCh);
-        switch (zzCh) {
-        case '\u000B':
-        case '\u000C':
-        case '\u0085':
-        case '\u2028':
-        case '\u2029':
-          yyline++;
-          yycolumn = 0;
-          zzR = false;
-          break;
-        case '\r':
-          yyline++;
-          yycolumn = 0;
-          zzR = true;
-          break;
-        case '\n':
-          if (zzR)
-            zzR = false;
-          else {
-            yyline++;
-            yycolumn = 0;
-          }
-          break;
-        default:
-          zzR = false;
-          yycolumn += zzCharCount;
-        }
-      }
-
-      if (zzR) {
-        // peek one character ahead if it is \n (if we have counted one line too much)
-        boolean zzPeek;
-        if (zzMarkedPosL < zzEndReadL)
-          zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-        else if (zzAtEOF)
-          zzPeek = false;
-        else {
-          boolean eof = zzRefill();
-          zzEndReadL = zzEndRead;
-          zzMarkedPosL = zzMarkedPos;
-          zzBufferL = zzBuffer;
-          if (eof) 
-            zzPeek = false;
-          else 
-            zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-        }
-        if (zzPeek) yyline--;
-      }
       zzAction = -1;
 
       zzCurrentPosL = zzCurrentPos = zzStartRead = zzMarkedPosL;
@@ -735,143 +1021,151 @@ public final class DotLexer {
         case 1: 
           { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_INVALID_SYMBOL, yytext());
           }
-        case 31: break;
+        case 33: break;
         case 2: 
           { yyline++;
           }
-        case 32: break;
+        case 34: break;
         case 3: 
           { /*ignore*/
           }
-        case 33: break;
+        case 35: break;
         case 4: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ID, DotParsedSymbol.IDTYPE_IDENTIFIER, yytext());
+          { return idSymbol(DotParsedSymbol.IDTYPE_IDENTIFIER);
           }
-        case 34: break;
+        case 36: break;
         case 5: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ID, DotParsedSymbol.IDTYPE_NUMERAL, yytext());
+          { return idSymbol(DotParsedSymbol.IDTYPE_NUMERAL);
           }
-        case 35: break;
+        case 37: break;
         case 6: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_SEMICOLON, yytext());
+          { return symbol(DotParsedSymbol.TYPE_SEMICOLON, SEMICOLON);
           }
-        case 36: break;
+        case 38: break;
         case 7: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_COMMA, yytext());
+          { return symbol(DotParsedSymbol.TYPE_COMMA, COMMA);
           }
-        case 37: break;
+        case 39: break;
         case 8: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_BRACE_OPEN, yytext());
+          { return symbol(DotParsedSymbol.TYPE_BRACE_OPEN, BRACE_OPEN);
           }
-        case 38: break;
+        case 40: break;
         case 9: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_BRACE_CLOSE, yytext());
+          { return symbol(DotParsedSymbol.TYPE_BRACE_CLOSE, BRACE_CLOSE);
           }
-        case 39: break;
+        case 41: break;
         case 10: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_EQUAL, yytext());
+          { return symbol(DotParsedSymbol.TYPE_EQUAL, EQUAL);
           }
-        case 40: break;
+        case 42: break;
         case 11: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_BRACKET_OPEN, yytext());
+          { return symbol(DotParsedSymbol.TYPE_BRACKET_OPEN, BRACKET_OPEN);
           }
-        case 41: break;
+        case 43: break;
         case 12: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_BRACKET_CLOSE, yytext());
+          { return symbol(DotParsedSymbol.TYPE_BRACKET_CLOSE, BRACKET_CLOSE);
           }
-        case 42: break;
+        case 44: break;
         case 13: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_COLON, yytext());
+          { return symbol(DotParsedSymbol.TYPE_COLON, COLON);
           }
-        case 43: break;
+        case 45: break;
         case 14: 
           { string.setLength(0);
                                      tagLevel = 1;
                                      yybegin(HTML);
           }
-        case 44: break;
+        case 46: break;
         case 15: 
           { string.setLength(0);
                                      yybegin(STRING);
           }
-        case 45: break;
+        case 47: break;
         case 16: 
           { 
           }
-        case 46: break;
+        case 48: break;
         case 17: 
-          { string.append(yytext());
+          { string.append(zzBuffer, zzStartRead, zzMarkedPos - zzStartRead);
           }
-        case 47: break;
+        case 49: break;
         case 18: 
           { yyline++; string.append(yytext());
           }
-        case 48: break;
+        case 50: break;
         case 19: 
           { yybegin(YYINITIAL);
                                      // length also includes the trailing quote
-                                     return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ID, DotParsedSymbol.IDTYPE_DOUBLE_QUOTED, string.toString());
+                                     return stringSymbol(DotParsedSymbol.IDTYPE_DOUBLE_QUOTED);
           }
-        case 49: break;
+        case 51: break;
         case 20: 
+          { string.append(yytext());
+          }
+        case 52: break;
+        case 21: 
           { tagLevel--;                                     
                                     if(tagLevel == 0){
                                         yybegin(YYINITIAL);
-                                        return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ID, DotParsedSymbol.IDTYPE_HTML_STRING, string.toString());
+                                        return stringSymbol(DotParsedSymbol.IDTYPE_HTML_STRING);
                                     }else{
                                         string.append(yytext());
                                     }
           }
-        case 50: break;
-        case 21: 
+        case 53: break;
+        case 22: 
           { tagLevel++; 
                                     string.append(yytext());
           }
-        case 51: break;
-        case 22: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_MINUSMINUS, yytext());
-          }
-        case 52: break;
+        case 54: break;
         case 23: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_ARROW, yytext());
+          { countLines();
           }
-        case 53: break;
+        case 55: break;
         case 24: 
-          { string.append('\"');
+          { return symbol(DotParsedSymbol.TYPE_MINUSMINUS, MINUSMINUS);
           }
-        case 54: break;
+        case 56: break;
         case 25: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_KEYWORD_NODE, yytext());
+          { return symbol(DotParsedSymbol.TYPE_ARROW, ARROW);
           }
-        case 55: break;
+        case 57: break;
         case 26: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_KEYWORD_EDGE, yytext());
+          { string.append('\"');
           }
-        case 56: break;
+        case 58: break;
         case 27: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_KEYWORD_GRAPH, yytext());
+          { return symbol(DotParsedSymbol.TYPE_KEYWORD_NODE, NODE);
           }
-        case 57: break;
+        case 59: break;
         case 28: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_KEYWORD_STRICT, yytext());
+          { return symbol(DotParsedSymbol.TYPE_KEYWORD_EDGE, EDGE);
           }
-        case 58: break;
+        case 60: break;
         case 29: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_KEYWORD_DIGRAPH, yytext());
+          { return symbol(DotParsedSymbol.TYPE_KEYWORD_GRAPH, GRAPH);
           }
-        case 59: break;
+        case 61: break;
         case 30: 
-          { return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH, yytext());
+          { return symbol(DotParsedSymbol.TYPE_KEYWORD_STRICT, STRICT);
           }
-        case 60: break;
+        case 62: break;
+        case 31: 
+          { return symbol(DotParsedSymbol.TYPE_KEYWORD_DIGRAPH, DIGRAPH);
+          }
+        case 63: break;
+        case 32: 
+          { return symbol(DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH, SUBGRAPH);
+          }
+        case 64: break;
         default: 
           if (zzInput == YYEOF && zzStartRead == zzCurrentPos) {
             zzAtEOF = true;
             switch (zzLexicalState) {
             case YYINITIAL: {
-              return new DotParsedSymbol(yyline(), DotParsedSymbol.TYPE_EOF, yytext());
+              return symbol(DotParsedSymbol.TYPE_EOF, EOF);
             }
-            case 95: break;
+            case 96: break;
             default:
               {
                 return null;
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import com.jpexs.graphs.graphviz.graph.ConnectableObject;
+import com.jpexs.graphs.graphviz.graph.NodeId;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DotParseAdapter implements DotParseListener {
+
+    @Override
+    public void graphBegin(boolean strict, boolean directed, DotId id) {
+    }
+
+    @Override
+    public void graphEnd() {
+    }
+
+    @Override
+    public void subgraphBegin(DotId id) {
+    }
+
+    @Override
+    public ConnectableObject subgraphEnd() {
+        return null;
+    }
+
+    @Override
+    public void graphAttribute(DotId key, DotId value) {
+    }
+
+    @Override
+    public void attributeStatement(String kind, AttributesMap attributes) {
+    }
+
+    @Override
+    public void nodeStatement(NodeId node, AttributesMap attributes) {
+    }
+
+    @Override
+    public void edge(ConnectableObject from, ConnectableObject to, AttributesMap attributes) {
+    }
+
+}
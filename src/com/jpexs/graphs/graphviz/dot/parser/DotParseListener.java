@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import com.jpexs.graphs.graphviz.graph.ConnectableObject;
+import com.jpexs.graphs.graphviz.graph.NodeId;
+
+/**
+ * Receives statements of DOT file while it is parsed.
+ *
+ * Statements are reported to the innermost graph or subgraph which was begun
+ * and not yet ended. Attribute maps passed to the listener are newly created
+ * by the parser, so the listener can keep them.
+ *
+ * @author JPEXS
+ */
+public interface DotParseListener {
+
+    public void graphBegin(boolean strict, boolean directed, DotId id);
+
+    public void graphEnd();
+
+    public void subgraphBegin(DotId id);
+
+    /**
+     * Ends current subgraph.
+     *
+     * @return Object which represents the subgraph in following edge events,
+     * can be null
+     */
+    public ConnectableObject subgraphEnd();
+
+    /**
+     * Statement ID '=' ID.
+     *
+     * @param key Key
+     * @param value Value
+     */
+    public void graphAttribute(DotId key, DotId value);
+
+    /**
+     * Statement (graph | node | edge) attr_list.
+     *
+     * @param kind "graph", "node" or "edge"
+     * @param attributes Attributes
+     */
+    public void attributeStatement(String kind, AttributesMap attributes);
+
+    /**
+     * Statement node_id [ attr_list ].
+     *
+     * @param node Node
+     * @param attributes Attributes or null when there are none
+     */
+    public void nodeStatement(NodeId node, AttributesMap attributes);
+
+    /**
+     * One edge of edge statement. Edge statement a -&gt; b -&gt; c produces
+     * two edge events, attributes belong to the last one.
+     *
+     * @param from NodeId or subgraph object
+     * @param to NodeId or subgraph object
+     * @param attributes Attributes or null when there are none
+     */
+    public void edge(ConnectableObject from, ConnectableObject to, AttributesMap attributes);
+}
@@ -28,6 +28,7 @@ public class DotParsedSymbol {
     public int line;
 
     private Object value;
+    private DotId id;
 
     public static final int IDTYPE_NONE = 0;
 
@@ -72,19 +73,38 @@ public class DotParsedSymbol {
         this.idtype = idtype;
     }
 
+    /**
+     * Creates ID symbol with interned id.
+     *
+     * @param line Line
+     * @param type Type
+     * @param idtype Id type
+     * @param id Id
+     */
+    public DotParsedSymbol(int line, int type, int idtype, DotId id) {
+        this.line = line;
+        this.type = type;
+        this.value = id.value;
+        this.idtype = idtype;
+        this.id = id;
+    }
+
     public DotParsedSymbol(int line, int type) {
         this.line = line;
         this.type = type;
     }
 
     public String getValueAsString() {
-        return "" + value;
+        return String.valueOf(value);
     }
 
     public DotId getValueAsId() {
         if (type != TYPE_ID) {
             return null;
         }
+        if (id != null) {
+            return id;
+        }
         return new DotId(getValueAsString(), idtype == IDTYPE_HTML_STRING);
     }
 
@@ -25,6 +25,7 @@ import com.jpexs.graphs.graphviz.graph.NodeIdToAttributes;
 import com.jpexs.graphs.graphviz.graph.SubGraph;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -38,21 +39,82 @@ public class DotParser {
 
     private static final String VALID_COMPASS_VALUES[] = new String[]{"n", "ne", "e", "se", "s", "sw", "w", "nw", "c", "_"};
 
+    /**
+     * Marks missing target of edge in edge chain.
+     */
+    private static final ConnectableObject MISSING_TARGET = new NodeId(null);
+
     public Graph parse(Reader in) throws DotParseException, IOException {
+        DotGraphBuilder builder = new DotGraphBuilder();
+        parse(in, builder);
+        return builder.getGraph();
+    }
+
+    /**
+     * Parses DOT file and reports its statements to the listener, no graph
+     * objects are built.
+     *
+     * @param in Input
+     * @param listener Listener
+     * @throws DotParseException On syntax error
+     * @throws IOException On read error
+     */
+    public void parse(Reader in, DotParseListener listener) throws DotParseException, IOException {
         DotLexer lexer = new DotLexer(in);
-        return file(lexer);
+        lexer.setFlyweight(true);
+        file(lexer, listener);
+    }
+
+    /**
+     * Parses UTF-8 DOT file through memory mapping.
+     *
+     * @param file File
+     * @return Graph
+     * @throws DotParseException On syntax error
+     * @throws IOException On read error
+     */
+    public Graph parse(Path file) throws DotParseException, IOException {
+        DotGraphBuilder builder = new DotGraphBuilder();
+        parse(file, builder);
+        return builder.getGraph();
+    }
+
+    /**
+     * Parses UTF-8 DOT file through memory mapping and reports its statements
+     * to the listener.
+     *
+     * @param file File
+     * @param listener Listener
+     * @throws DotParseException On syntax error
+     * @throws IOException On read error
+     */
+    public void parse(Path file, DotParseListener listener) throws DotParseException, IOException {
+        try (Reader in = new MappedDotReader(file)) {
+            parse(in, listener);
+        }
     }
 
     public Graph file(DotLexer lexer) throws DotParseException, IOException {
-        Graph ret = graph(lexer);
+        DotGraphBuilder builder = new DotGraphBuilder();
+        file(lexer, builder);
+        return builder.getGraph();
+    }
+
+    public void file(DotLexer lexer, DotParseListener listener) throws DotParseException, IOException {
+        graph(lexer, listener);
         _expect(lexer, DotParsedSymbol.TYPE_EOF, "end of file");
-        return ret;
+    }
+
+    public Graph graph(DotLexer lexer) throws IOException, DotParseException {
+        DotGraphBuilder builder = new DotGraphBuilder();
+        graph(lexer, builder);
+        return builder.getGraph();
     }
 
     /*
     graph: [ 'strict' ] ('graph' | 'digraph') [ ID ] '{' stmt_list '}'
      */
-    public Graph graph(DotLexer lexer) throws IOException, DotParseException {
+    public void graph(DotLexer lexer, DotParseListener listener) throws IOException, DotParseException {
         boolean isStrict = false;
         boolean isDirectedGraph = false;
         DotParsedSymbol symbol = lexer.lex();
@@ -65,7 +127,7 @@ public class DotParser {
         } else if (symbol.type == DotParsedSymbol.TYPE_KEYWORD_DIGRAPH) {
             isDirectedGraph = true;
         } else {
-            _expected("draph or digraph keyword", symbol);
+            _expected(lexer, "draph or digraph keyword", symbol);
         }
         symbol = lexer.lex();
         DotId id = null;
@@ -75,44 +137,33 @@ public class DotParser {
             lexer.pushback(symbol);
         }
         _expect(lexer, DotParsedSymbol.TYPE_BRACE_OPEN, "{");
-        List<Edge> edges = new ArrayList<>();
-        List<NodeIdToAttributes> standaloneNodes = new ArrayList<>();
-        List<SubGraph> standaloneSubGraphs = new ArrayList<>();
-        AttributesMap graphAttributes = new AttributesMap();
-        AttributesMap nodeAttributes = new AttributesMap();
-        AttributesMap edgeAttributes = new AttributesMap();
-        stmt_list(edges, standaloneSubGraphs, standaloneNodes, graphAttributes, nodeAttributes, edgeAttributes, isDirectedGraph, lexer);
+        listener.graphBegin(isStrict, isDirectedGraph, id);
+        stmt_list(isDirectedGraph, listener, lexer);
         _expect(lexer, DotParsedSymbol.TYPE_BRACE_CLOSE, "}");
-
-        Graph graph = new Graph(isStrict, isDirectedGraph);
-        graph.edges = edges;
-        graph.nodes = standaloneNodes;
-        graph.subgraphs = standaloneSubGraphs;
-        graph.id = id;
-        graph.graphAttributes = graphAttributes;
-        graph.nodeAttributes = nodeAttributes;
-        graph.edgeAttributes = edgeAttributes;
-        return graph;
+        listener.graphEnd();
     }
 
     /*
     stmt_list : [ stmt [ ';' ] stmt_list ]
+
+    The tail recursion is done as a loop, so long statement lists do not
+    overflow the stack.
      */
-    public void stmt_list(List<Edge> edges, List<SubGraph> standaloneSubGraphs, List<NodeIdToAttributes> standaloneNodes, AttributesMap graphAttributes, AttributesMap nodeAttributes, AttributesMap edgeAttributes, boolean isDirectedGraph, DotLexer lexer) throws DotParseException, IOException {
-        boolean empty = true;
-        if (stmt(edges, standaloneSubGraphs, standaloneNodes, graphAttributes, nodeAttributes, edgeAttributes, isDirectedGraph, lexer)) {
-            empty = false;
-        }
-        DotParsedSymbol symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_SEMICOLON) {
-            empty = false;
-            //ignore the semicolon
-        } else {
-            lexer.pushback(symbol);
-        }
-        if (!empty) {
-            stmt_list(edges, standaloneSubGraphs, standaloneNodes, graphAttributes, nodeAttributes, edgeAttributes, isDirectedGraph, lexer);
-        }
+    public void stmt_list(boolean isDirectedGraph, DotParseListener listener, DotLexer lexer) throws DotParseException, IOException {
+        boolean empty;
+        do {
+            empty = true;
+            if (stmt(isDirectedGraph, listener, lexer)) {
+                empty = false;
+            }
+            DotParsedSymbol symbol = lexer.lex();
+            if (symbol.type == DotParsedSymbol.TYPE_SEMICOLON) {
+                empty = false;
+                //ignore the semicolon
+            } else {
+                lexer.pushback(symbol);
+            }
+        } while (!empty);
     }
 
     /*
@@ -127,7 +178,7 @@ public class DotParser {
 	 | d) ID '=' ID           - prefix: - ID '=' ...
 	 | e) subgraph            - prefix: - subgraph 
      */
-    public boolean stmt(List<Edge> edges, List<SubGraph> standaloneSubGraphs, List<NodeIdToAttributes> standaloneNodes, AttributesMap graphAttributes, AttributesMap nodeAttributes, AttributesMap edgeAttributes, boolean isDirectedGraph, DotLexer lexer) throws DotParseException, IOException {
+    public boolean stmt(boolean isDirectedGraph, DotParseListener listener, DotLexer lexer) throws DotParseException, IOException {
         DotParsedSymbol symbol = lexer.lex();
         //d)
         if (symbol.type == DotParsedSymbol.TYPE_ID) {
@@ -136,9 +187,9 @@ public class DotParser {
             if (symbol.type == DotParsedSymbol.TYPE_EQUAL) {
                 DotId key = idSymbol.getValueAsId();
                 symbol = lexer.lex();
-                _expect(DotParsedSymbol.TYPE_ID, "ID", symbol);
+                _expect(lexer, DotParsedSymbol.TYPE_ID, "ID", symbol);
                 DotId value = symbol.getValueAsId();
-                graphAttributes.put(key, value);
+                listener.graphAttribute(key, value);
                 return true;
             } else {
                 lexer.pushback(symbol);
@@ -152,68 +203,61 @@ public class DotParser {
             lexer.pushback(symbol);
             AttributesMap attributesBag = new AttributesMap();
             String attrKind = attr_stmt(lexer, attributesBag);
-            switch (attrKind) {
-                case "graph":
-                    graphAttributes.putAll(attributesBag);
-                    break;
-                case "node":
-                    nodeAttributes.putAll(attributesBag);
-                    break;
-                case "edge":
-                    edgeAttributes.putAll(attributesBag);
-                    break;
-            }
+            listener.attributeStatement(attrKind, attributesBag);
             return true;
-        } else {
-            /* a) b) e) */
+        }
+
+        /* a) b) e) */
+        boolean isNode = symbol.type == DotParsedSymbol.TYPE_ID;
+        boolean isSubgraph = symbol.type == DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH || symbol.type == DotParsedSymbol.TYPE_BRACE_OPEN;
+        lexer.pushback(symbol);
+        if (!isNode && !isSubgraph) {
+            return false;
+        }
+        ConnectableObject from = isNode ? node_id(lexer) : subgraph(isDirectedGraph, listener, lexer);
+        symbol = lexer.lex();
+        //b)
+        if (symbol.type == DotParsedSymbol.TYPE_MINUSMINUS || symbol.type == DotParsedSymbol.TYPE_ARROW) {
             lexer.pushback(symbol);
-            ConnectableObject from;
-            if ((from = node_id_or_subgraph(standaloneSubGraphs, standaloneNodes, isDirectedGraph, lexer)) != null) {
-                symbol = lexer.lex();
-                Object obj = from;
-                //b)
-                if (symbol.type == DotParsedSymbol.TYPE_MINUSMINUS || symbol.type == DotParsedSymbol.TYPE_ARROW) {
-                    lexer.pushback(symbol);
-                    obj = edge_rhs(from, standaloneSubGraphs, edges, isDirectedGraph, lexer);
-                    symbol = lexer.lex();
-                }
-                //a) or finish of b)
-                AttributesMap currentAttributes = new AttributesMap();
-                if (symbol.type == DotParsedSymbol.TYPE_BRACKET_OPEN && ((obj instanceof Edge) || (obj instanceof NodeId))) {
-                    lexer.pushback(symbol);
-                    if (obj instanceof Edge) {
-                        currentAttributes = ((Edge) obj).attributes;
-                    }
-                    AttributesMap attributes = attr_list(lexer);
-                    currentAttributes.putAll(attributes);
-                } else {
-                    lexer.pushback(symbol);
-                }
-                if (obj instanceof NodeId) {
-                    standaloneNodes.add(new NodeIdToAttributes((NodeId) obj, currentAttributes));
-                }
-                return true;
+            List<ConnectableObject> chain = new ArrayList<>();
+            chain.add(from);
+            boolean hasLastEdge = edge_rhs(chain, isDirectedGraph, listener, lexer);
+            symbol = lexer.lex();
+            AttributesMap attributes = null;
+            lexer.pushback(symbol);
+            if (symbol.type == DotParsedSymbol.TYPE_BRACKET_OPEN && hasLastEdge) {
+                attributes = attr_list(lexer);
             }
+            fireEdges(chain, attributes, listener);
+            return true;
         }
-
-        return false;
+        //a)
+        AttributesMap attributes = null;
+        lexer.pushback(symbol);
+        if (symbol.type == DotParsedSymbol.TYPE_BRACKET_OPEN && isNode) {
+            attributes = attr_list(lexer);
+        }
+        if (isNode) {
+            listener.nodeStatement((NodeId) from, attributes);
+        }
+        return true;
     }
 
-    /*
-        (node_id | subgraph)
+    /**
+     * Reports edges of edge chain, attributes belong to the last edge.
      */
-    private ConnectableObject node_id_or_subgraph(List<SubGraph> standaloneSubgraphs, List<NodeIdToAttributes> standaloneNodes, boolean isDirectedGraph, DotLexer lexer) throws DotParseException, IOException {
-        DotParsedSymbol symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH || symbol.type == DotParsedSymbol.TYPE_BRACE_OPEN) {
-            lexer.pushback(symbol);
-            return subgraph(standaloneSubgraphs, isDirectedGraph, lexer);
-        } else if (symbol.type == DotParsedSymbol.TYPE_ID) {
-            lexer.pushback(symbol);
-            return node_id(lexer);
-        } else {
-            lexer.pushback(symbol);
+    private void fireEdges(List<ConnectableObject> chain, AttributesMap attributes, DotParseListener listener) {
+        for (int i = 1; i < chain.size(); i++) {
+            ConnectableObject to = chain.get(i);
+            if (to == MISSING_TARGET) {
+                continue;
+            }
+            ConnectableObject from = chain.get(i - 1);
+            if (from == MISSING_TARGET) {
+                from = null;
+            }
+            listener.edge(from, to, i == chain.size() - 1 ? attributes : null);
         }
-        return null;
     }
 
     /*
@@ -221,23 +265,18 @@ public class DotParser {
      */
     public AttributesMap attr_list(DotLexer lexer) throws DotParseException, IOException {
         AttributesMap attributesBag = new AttributesMap();
-        _expect(lexer, DotParsedSymbol.TYPE_BRACKET_OPEN, "[");
-        DotParsedSymbol symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_ID) {
-            lexer.pushback(symbol);
-            a_list(attributesBag, lexer);
-        } else {
-            lexer.pushback(symbol);
-        }
-        _expect(lexer, DotParsedSymbol.TYPE_BRACKET_CLOSE, "]");
-        symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_BRACKET_OPEN) {
+        DotParsedSymbol symbol;
+        do {
+            _expect(lexer, DotParsedSymbol.TYPE_BRACKET_OPEN, "[");
+            symbol = lexer.lex();
             lexer.pushback(symbol);
-            AttributesMap nextAtributesBag = attr_list(lexer);
-            attributesBag.putAll(nextAtributesBag);
-        } else {
+            if (symbol.type == DotParsedSymbol.TYPE_ID) {
+                a_list(attributesBag, lexer);
+            }
+            _expect(lexer, DotParsedSymbol.TYPE_BRACKET_CLOSE, "]");
+            symbol = lexer.lex();
             lexer.pushback(symbol);
-        }
+        } while (symbol.type == DotParsedSymbol.TYPE_BRACKET_OPEN);
         return attributesBag;
     }
 
@@ -247,7 +286,7 @@ public class DotParser {
     public String /*type*/ attr_stmt(DotLexer lexer, AttributesMap out) throws DotParseException, IOException {
         DotParsedSymbol symbol = lexer.lex();
         if (!((symbol.type == DotParsedSymbol.TYPE_KEYWORD_GRAPH) || (symbol.type == DotParsedSymbol.TYPE_KEYWORD_NODE) || (symbol.type == DotParsedSymbol.TYPE_KEYWORD_EDGE))) {
-            _expected("graph or node or edge keyword", symbol);
+            _expected(lexer, "graph or node or edge keyword", symbol);
         }
         out.putAll(attr_list(lexer));
         return symbol.getValueAsString();
@@ -257,23 +296,21 @@ public class DotParser {
     a_list: ID '=' ID [ (';' | ',') ] [ a_list ]
      */
     public void a_list(AttributesMap attributesBag, DotLexer lexer) throws DotParseException, IOException {
-        DotParsedSymbol symbol = lexer.lex();
-        _expect(DotParsedSymbol.TYPE_ID, "ID", symbol);
-        DotId key = symbol.getValueAsId();
-        _expect(lexer, DotParsedSymbol.TYPE_EQUAL, "=");
-        symbol = lexer.lex();
-        DotId value = symbol.getValueAsId();
-        attributesBag.put(key, value);
-        symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_SEMICOLON || symbol.type == DotParsedSymbol.TYPE_COMMA) {
+        DotParsedSymbol symbol;
+        do {
             symbol = lexer.lex();
-        }
-        if (symbol.type == DotParsedSymbol.TYPE_ID) {
-            lexer.pushback(symbol);
-            a_list(attributesBag, lexer);
-        } else {
+            _expect(lexer, DotParsedSymbol.TYPE_ID, "ID", symbol);
+            DotId key = symbol.getValueAsId();
+            _expect(lexer, DotParsedSymbol.TYPE_EQUAL, "=");
+            symbol = lexer.lex();
+            DotId value = symbol.getValueAsId();
+            attributesBag.put(key, value);
+            symbol = lexer.lex();
+            if (symbol.type == DotParsedSymbol.TYPE_SEMICOLON || symbol.type == DotParsedSymbol.TYPE_COMMA) {
+                symbol = lexer.lex();
+            }
             lexer.pushback(symbol);
-        }
+        } while (symbol.type == DotParsedSymbol.TYPE_ID);
     }
 
     /*
@@ -295,24 +332,33 @@ public class DotParser {
     edge_stmt : (node_id | subgraph) edgeRHS [ attr_list ]
      */
     public void edge_stmt(List<SubGraph> standaloneSubgraphs, List<Edge> edges, boolean isDirectedGraph, DotLexer lexer) throws DotParseException, IOException {
+        SubGraph target = new SubGraph(isDirectedGraph);
+        target.subgraphs = standaloneSubgraphs;
+        target.edges = edges;
+        edge_stmt(isDirectedGraph, new DotGraphBuilder(target, isDirectedGraph), lexer);
+    }
+
+    public void edge_stmt(boolean isDirectedGraph, DotParseListener listener, DotLexer lexer) throws DotParseException, IOException {
         DotParsedSymbol symbol = lexer.lex();
         ConnectableObject from;
         if (symbol.type == DotParsedSymbol.TYPE_ID) {
             lexer.pushback(symbol);
             from = node_id(lexer);
         } else {
-            _expect(DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH, "subgraph", symbol);
-            from = subgraph(standaloneSubgraphs, isDirectedGraph, lexer);
+            _expect(lexer, DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH, "subgraph", symbol);
+            lexer.pushback(symbol);
+            from = subgraph(isDirectedGraph, listener, lexer);
         }
-        Edge edge = edge_rhs(from, standaloneSubgraphs, edges, isDirectedGraph, lexer);
+        List<ConnectableObject> chain = new ArrayList<>();
+        chain.add(from);
+        edge_rhs(chain, isDirectedGraph, listener, lexer);
         symbol = lexer.lex();
+        AttributesMap attributes = null;
+        lexer.pushback(symbol);
         if (symbol.type == DotParsedSymbol.TYPE_BRACKET_OPEN) {
-            lexer.pushback(symbol);
-            AttributesMap attributes = attr_list(lexer);
-            edge.attributes.putAll(attributes);
-        } else {
-            lexer.pushback(symbol);
+            attributes = attr_list(lexer);
         }
+        fireEdges(chain, attributes, listener);
     }
 
     /*
@@ -320,7 +366,7 @@ public class DotParser {
      */
     public NodeId node_id(DotLexer lexer) throws DotParseException, IOException {
         DotParsedSymbol symbol = lexer.lex();
-        _expect(DotParsedSymbol.TYPE_ID, "ID", symbol);
+        _expect(lexer, DotParsedSymbol.TYPE_ID, "ID", symbol);
         DotId id = symbol.getValueAsId();
         symbol = lexer.lex();
         NodeId node = new NodeId(id);
@@ -353,7 +399,7 @@ public class DotParser {
                 lexer.pushback(symbol);
             }
         } else {
-            _expected("ID or compass_pt", symbol);
+            _expected(lexer, "ID or compass_pt", symbol);
         }
 
     }
@@ -366,59 +412,58 @@ public class DotParser {
         if (symbol.idtype == DotParsedSymbol.IDTYPE_IDENTIFIER) {
             String compassValue = symbol.getValueAsString();
             if (!Arrays.asList(VALID_COMPASS_VALUES).contains(compassValue)) {
-                _expected("compass value - one of " + String.join(",", VALID_COMPASS_VALUES), symbol);
+                _expected(lexer, "compass value - one of " + String.join(",", VALID_COMPASS_VALUES), symbol);
             }
             return compassValue;
         } else {
-            _expected("compass value - one of " + String.join(",", VALID_COMPASS_VALUES), symbol);
+            _expected(lexer, "compass value - one of " + String.join(",", VALID_COMPASS_VALUES), symbol);
         }
         return null;
     }
 
     /*
     edgeRHS : edgeop (node_id | subgraph) [ edgeRHS ]
+
+    Targets are added to the chain, missing target is added as
+    MISSING_TARGET. Returns true when the last target is present.
      */
-    public Edge edge_rhs(ConnectableObject from, List<SubGraph> standaloneSubgraphs, List<Edge> edges, boolean isDirectedGraph, DotLexer lexer) throws DotParseException, IOException {
-        DotParsedSymbol symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_ARROW) {
-            if (!isDirectedGraph) {
-                _expected("--", symbol);
+    private boolean edge_rhs(List<ConnectableObject> chain, boolean isDirectedGraph, DotParseListener listener, DotLexer lexer) throws DotParseException, IOException {
+        boolean hasTarget;
+        DotParsedSymbol symbol;
+        do {
+            symbol = lexer.lex();
+            if (symbol.type == DotParsedSymbol.TYPE_ARROW) {
+                if (!isDirectedGraph) {
+                    _expected(lexer, "--", symbol);
+                }
+            } else if (symbol.type == DotParsedSymbol.TYPE_MINUSMINUS) {
+                if (isDirectedGraph) {
+                    _expected(lexer, "->", symbol);
+                }
             }
-        } else if (symbol.type == DotParsedSymbol.TYPE_MINUSMINUS) {
-            if (isDirectedGraph) {
-                _expected("->", symbol);
+            symbol = lexer.lex();
+            hasTarget = true;
+            if (symbol.type == DotParsedSymbol.TYPE_ID) {
+                lexer.pushback(symbol);
+                chain.add(node_id(lexer));
+            } else if (symbol.type == DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH || symbol.type == DotParsedSymbol.TYPE_BRACE_OPEN) {
+                lexer.pushback(symbol);
+                chain.add(subgraph(isDirectedGraph, listener, lexer));
+            } else {
+                hasTarget = false;
+                chain.add(MISSING_TARGET);
             }
-        }
-        symbol = lexer.lex();
-        ConnectableObject to = null;
-        if (symbol.type == DotParsedSymbol.TYPE_ID) {
-            lexer.pushback(symbol);
-            to = node_id(lexer);
-        } else if (symbol.type == DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH || symbol.type == DotParsedSymbol.TYPE_BRACE_OPEN) {
-            lexer.pushback(symbol);
-            to = subgraph(standaloneSubgraphs, isDirectedGraph, lexer);
-        }
-        Edge edge = null;
-        if (to != null) {
-            edge = new Edge(isDirectedGraph, from, to);
-            edges.add(edge);
-        }
 
-        symbol = lexer.lex();
-        if (symbol.type == DotParsedSymbol.TYPE_ARROW || symbol.type == DotParsedSymbol.TYPE_MINUSMINUS) {
-            lexer.pushback(symbol);
-            edge = edge_rhs(to, standaloneSubgraphs, edges, isDirectedGraph, lexer);
-        } else {
+            symbol = lexer.lex();
             lexer.pushback(symbol);
-        }
-        return edge;
-
+        } while (symbol.type == DotParsedSymbol.TYPE_ARROW || symbol.type == DotParsedSymbol.TYPE_MINUSMINUS);
+        return hasTarget;
     }
 
     /*
     subgraph : [ 'subgraph' [ ID ] ] '{' stmt_list '}'
      */
-    public SubGraph subgraph(List<SubGraph> standaloneSubgraphs, boolean isDirectedGraph, DotLexer lexer) throws DotParseException, IOException {
+    public ConnectableObject subgraph(boolean isDirectedGraph, DotParseListener listener, DotLexer lexer) throws DotParseException, IOException {
         DotParsedSymbol symbol = lexer.lex();
         DotId id = null;
         if (symbol.type == DotParsedSymbol.TYPE_KEYWORD_SUBGRAPH) {
@@ -428,40 +473,27 @@ public class DotParser {
                 symbol = lexer.lex();
             }
         }
-        _expect(DotParsedSymbol.TYPE_BRACE_OPEN, "{", symbol);
-
-        List<Edge> edges = new ArrayList<>();
-        List<NodeIdToAttributes> standaloneNodes = new ArrayList<>();
-        AttributesMap graphAttributes = new AttributesMap();
-        AttributesMap nodeAttributes = new AttributesMap();
-        AttributesMap edgeAttributes = new AttributesMap();
-        stmt_list(edges, standaloneSubgraphs, standaloneNodes, graphAttributes, nodeAttributes, edgeAttributes, isDirectedGraph, lexer);
+        _expect(lexer, DotParsedSymbol.TYPE_BRACE_OPEN, "{", symbol);
+        listener.subgraphBegin(id);
+        stmt_list(isDirectedGraph, listener, lexer);
         _expect(lexer, DotParsedSymbol.TYPE_BRACE_CLOSE, "}");
-        SubGraph graph = new SubGraph(isDirectedGraph);
-        graph.edges = edges;
-        graph.nodes = standaloneNodes;
-        graph.id = id;
-        graph.graphAttributes = graphAttributes;
-        graph.nodeAttributes = nodeAttributes;
-        graph.edgeAttributes = edgeAttributes;
-        standaloneSubgraphs.add(graph);
-        return graph;
+        return listener.subgraphEnd();
     }
 
     private void _expect(DotLexer lexer, int symbolType, String expected) throws DotParseException, IOException {
         DotParsedSymbol found = lexer.lex();
         if (found.type != symbolType) {
-            throw new DotParseException(found.line, "Expected " + expected + ", but " + found.getValueAsString() + " found");
+            _expected(lexer, expected, found);
         }
     }
 
-    private void _expected(String expected, DotParsedSymbol found) throws DotParseException {
-        throw new DotParseException(found.line, "Expected " + expected + ", but " + found.getValueAsString() + " found");
+    private void _expected(DotLexer lexer, String expected, DotParsedSymbol found) throws DotParseException {
+        throw new DotParseException(lexer.symbolLine(), "Expected " + expected + ", but " + found.getValueAsString() + " found");
     }
 
-    private void _expect(int symbolType, String typeString, DotParsedSymbol symbol) throws DotParseException {
+    private void _expect(DotLexer lexer, int symbolType, String typeString, DotParsedSymbol symbol) throws DotParseException {
         if (symbol.type != symbolType) {
-            _expected(typeString, symbol);
+            _expected(lexer, typeString, symbol);
         }
     }
 
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads UTF-8 file through memory mapping. ASCII bytes are copied to the
+ * destination buffer directly, only other characters go through decoding.
+ * Used with DotLexer, which reads straight into its own buffer, there is no
+ * other copy of the input.
+ *
+ * Malformed sequences are replaced by U+FFFD, leading byte order mark is
+ * skipped.
+ *
+ * @author JPEXS
+ */
+public class MappedDotReader extends Reader {
+
+    private static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Low surrogate which did not fit to the destination buffer.
+     */
+    private char pendingLow;
+
+    public MappedDotReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens the file.
+     *
+     * @param file File
+     * @param windowSize Size of one mapped region in bytes. Larger files are
+     * mapped by parts.
+     * @throws IOException On read error
+     */
+    public MappedDotReader(Path file, long windowSize) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        try {
+            fileSize = channel.size();
+            windowStart = 0;
+            map();
+            if (startsWithByteOrderMark()) {
+                //small windows do not contain whole mark
+                for (int i = 0; i < 3; i++) {
+                    ensureAvailable();
+                    window.get();
+                }
+            }
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private boolean startsWithByteOrderMark() throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(3);
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+        }
+        return head.position() == 3 && (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB && (head.get(2) & 0xFF) == 0xBF;
+    }
+
+    private void map() throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, fileSize - windowStart));
+    }
+
+    /**
+     * Makes current window have remaining bytes.
+     *
+     * @return False on end of file
+     */
+    private boolean ensureAvailable() throws IOException {
+        if (window == null) {
+            throw new IOException("Stream closed");
+        }
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long nextStart = windowStart + window.limit();
+        if (nextStart >= fileSize) {
+            return false;
+        }
+        windowStart = nextStart;
+        map();
+        return true;
+    }
+
+    private int peekByte() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return window.get(window.position()) & 0xFF;
+    }
+
+    /**
+     * Reads continuation byte if it is in range.
+     *
+     * @return Its value bits or -1 when it is missing
+     */
+    private int continuation(int min, int max) throws IOException {
+        int b = peekByte();
+        if (b < min || b > max) {
+            return -1;
+        }
+        window.get();
+        return b & 0x3F;
+    }
+
+    /**
+     * Decodes non-ASCII character, lead byte was already read.
+     *
+     * @return Code point or REPLACEMENT
+     */
+    private int decode(int lead) throws IOException {
+        int b1, b2, b3;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            if ((b1 = continuation(0x80, 0xBF)) == -1) {
+                return REPLACEMENT;
+            }
+            return ((lead & 0x1F) << 6) | b1;
+        }
+        if (lead >= 0xE0 && lead <= 0xEF) {
+            //no overlong forms
+            int min = lead == 0xE0 ? 0xA0 : 0x80;
+            if ((b1 = continuation(min, 0xBF)) == -1 || (b2 = continuation(0x80, 0xBF)) == -1) {
+                return REPLACEMENT;
+            }
+            int codePoint = ((lead & 0x0F) << 12) | (b1 << 6) | b2;
+            //encoded surrogate is replaced as a whole, same as by JDK decoder
+            if (Character.isSurrogate((char) codePoint)) {
+                return REPLACEMENT;
+            }
+            return codePoint;
+        }
+        if (lead >= 0xF0 && lead <= 0xF4) {
+            int min = lead == 0xF0 ? 0x90 : 0x80;
+            int max = lead == 0xF4 ? 0x8F : 0xBF;
+            if ((b1 = continuation(min, max)) == -1 || (b2 = continuation(0x80, 0xBF)) == -1 || (b3 = continuation(0x80, 0xBF)) == -1) {
+                return REPLACEMENT;
+            }
+            return ((lead & 0x07) << 18) | (b1 << 12) | (b2 << 6) | b3;
+        }
+        return REPLACEMENT;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        if (pendingLow != 0) {
+            cbuf[off] = pendingLow;
+            pendingLow = 0;
+            n++;
+        }
+        while (n < len && ensureAvailable()) {
+            MappedByteBuffer w = window;
+            int pos = w.position();
+            int count = Math.min(w.limit() - pos, len - n);
+            int i = 0;
+            for (; i < count; i++) {
+                byte b = w.get(pos + i);
+                if (b < 0) {
+                    break;
+                }
+                cbuf[off + n + i] = (char) b;
+            }
+            w.position(pos + i);
+            n += i;
+            if (i < count) {
+                int codePoint = decode(w.get() & 0xFF);
+                if (Character.isBmpCodePoint(codePoint)) {
+                    cbuf[off + n++] = (char) codePoint;
+                } else {
+                    cbuf[off + n++] = Character.highSurrogate(codePoint);
+                    if (n < len) {
+                        cbuf[off + n++] = Character.lowSurrogate(codePoint);
+                    } else {
+                        pendingLow = Character.lowSurrogate(codePoint);
+                    }
+                }
+            }
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -17,24 +17,53 @@
 package com.jpexs.graphs.graphviz.graph;
 
 import com.jpexs.graphs.graphviz.dot.parser.DotId;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
+ * Attributes of graph, node or edge in insertion order.
+ *
+ * Keys and values are stored in one array as key, value pairs. Attribute
+ * lists are short, so lookup is linear, which is faster and much smaller than
+ * hashing for them. Clones share the array until one of them is modified.
  *
  * @author JPEXS
  */
 public class AttributesMap {
 
-    private Map<DotId, DotId> values = new LinkedHashMap<>();
+    private static final DotId[] EMPTY = new DotId[0];
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Key at 2*i, value at 2*i+1
+     */
+    private DotId[] entries = EMPTY;
+
+    private int size;
+
+    /**
+     * Entries array is used by another map too and must be copied before
+     * modification.
+     */
+    private boolean shared;
+
+    private int modCount;
 
     public AttributesMap(AttributesMap source) {
-        values.putAll(source.values);
+        entries = source.entries;
+        size = source.size;
+        shared = true;
+        source.shared = true;
     }
 
     public AttributesMap(Map<String, String> source) {
@@ -46,32 +75,80 @@ public class AttributesMap {
     public AttributesMap() {
     }
 
+    private int indexOfKey(DotId key) {
+        DotId[] e = entries;
+        int len = size * 2;
+        for (int i = 0; i < len; i += 2) {
+            if (e[i] == key) {
+                return i;
+            }
+        }
+        if (key == null) {
+            return -1;
+        }
+        for (int i = 0; i < len; i += 2) {
+            if (key.equals(e[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes entries array private to this map and large enough for given
+     * count of entries.
+     *
+     * @param minSize Minimal count of entries
+     */
+    private void prepareWrite(int minSize) {
+        int capacity = entries.length / 2;
+        if (!shared && minSize <= capacity) {
+            return;
+        }
+        if (minSize > capacity) {
+            capacity = Math.max(Math.max(INITIAL_CAPACITY, minSize), capacity + (capacity >> 1));
+        }
+        DotId[] newEntries = new DotId[capacity * 2];
+        System.arraycopy(entries, 0, newEntries, 0, size * 2);
+        entries = newEntries;
+        shared = false;
+    }
+
     public int size() {
-        return values.size();
+        return size;
     }
 
     public boolean isEmpty() {
-        return values.isEmpty();
+        return size == 0;
     }
 
     public boolean containsKey(DotId key) {
-        return values.containsKey(key);
+        return indexOfKey(key) != -1;
     }
 
     public boolean containsKey(String key) {
-        return containsKey(new DotId(key, false));
+        return containsKey(DotId.valueOf(key));
     }
 
     public boolean containsValue(DotId value) {
-        return values.containsValue(value);
+        for (int i = 1; i < size * 2; i += 2) {
+            if (value == null ? entries[i] == null : value.equals(entries[i])) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public DotId get(DotId key) {
-        return values.get(key);
+        int index = indexOfKey(key);
+        if (index == -1) {
+            return null;
+        }
+        return entries[index + 1];
     }
 
     public String get(String key) {
-        DotId ret = values.get(new DotId(key, false));
+        DotId ret = get(DotId.valueOf(key));
         if (ret == null) {
             return null;
         }
@@ -79,23 +156,52 @@ public class AttributesMap {
     }
 
     public DotId put(DotId key, DotId value) {
-        return values.put(key, value);
+        int index = indexOfKey(key);
+        if (index != -1) {
+            DotId oldValue = entries[index + 1];
+            if (oldValue != value) {
+                prepareWrite(size);
+                entries[index + 1] = value;
+            }
+            return oldValue;
+        }
+        prepareWrite(size + 1);
+        entries[size * 2] = key;
+        entries[size * 2 + 1] = value;
+        size++;
+        modCount++;
+        return null;
     }
 
     public String put(String key, String value) {
-        DotId ret = values.put(new DotId(key, false), new DotId(value, false));
+        DotId ret = put(DotId.valueOf(key), DotId.valueOf(value));
         if (ret == null) {
             return null;
         }
         return ret.toString();
     }
 
+    private void removeAt(int index) {
+        prepareWrite(size);
+        System.arraycopy(entries, index + 2, entries, index, size * 2 - index - 2);
+        size--;
+        entries[size * 2] = null;
+        entries[size * 2 + 1] = null;
+        modCount++;
+    }
+
     public DotId remove(DotId key) {
-        return values.remove(key);
+        int index = indexOfKey(key);
+        if (index == -1) {
+            return null;
+        }
+        DotId oldValue = entries[index + 1];
+        removeAt(index);
+        return oldValue;
     }
 
     public String remove(String key) {
-        DotId ret = values.remove(new DotId(key, false));
+        DotId ret = remove(DotId.valueOf(key));
         if (ret == null) {
             return null;
         }
@@ -103,49 +209,186 @@ public class AttributesMap {
     }
 
     public void putAll(Map<? extends DotId, ? extends DotId> m) {
-        values.putAll(m);
+        for (Map.Entry<? extends DotId, ? extends DotId> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
     }
 
     public void putAll(AttributesMap a) {
-        values.putAll(a.values);
+        if (size == 0 && a.size > 0) {
+            entries = a.entries;
+            size = a.size;
+            shared = true;
+            a.shared = true;
+            modCount++;
+            return;
+        }
+        DotId[] e = a.entries;
+        int len = a.size * 2;
+        for (int i = 0; i < len; i += 2) {
+            put(e[i], e[i + 1]);
+        }
     }
 
     public void clear() {
-        values.clear();
+        if (size == 0) {
+            return;
+        }
+        entries = EMPTY;
+        size = 0;
+        shared = false;
+        modCount++;
+    }
+
+    private abstract class EntryIterator<E> implements Iterator<E> {
+
+        private int next = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size * 2;
+        }
+
+        int nextIndex() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size * 2) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
     }
 
     public Set<DotId> keySet() {
-        return values.keySet();
+        return new AbstractSet<DotId>() {
+            @Override
+            public Iterator<DotId> iterator() {
+                return new EntryIterator<DotId>() {
+                    @Override
+                    public DotId next() {
+                        return entries[nextIndex()];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return (o instanceof DotId) && containsKey((DotId) o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!(o instanceof DotId)) {
+                    return false;
+                }
+                int index = indexOfKey((DotId) o);
+                if (index == -1) {
+                    return false;
+                }
+                removeAt(index);
+                return true;
+            }
+        };
     }
 
     public Set<String> stringKeySet() {
         Set<String> ret = new LinkedHashSet<>();
-        for (DotId value : values.keySet()) {
-            ret.add(value.toString());
+        for (int i = 0; i < size * 2; i += 2) {
+            ret.add(entries[i].toString());
         }
         return ret;
     }
 
     public Collection<DotId> values() {
-        return values.values();
+        return new AbstractCollection<DotId>() {
+            @Override
+            public Iterator<DotId> iterator() {
+                return new EntryIterator<DotId>() {
+                    @Override
+                    public DotId next() {
+                        return entries[nextIndex() + 1];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     public Collection<String> stringValues() {
         List<String> ret = new ArrayList<>();
-        for (DotId value : values.values()) {
-            ret.add(value.toString());
+        for (int i = 1; i < size * 2; i += 2) {
+            ret.add(entries[i].toString());
         }
         return ret;
     }
 
     public Set<Map.Entry<DotId, DotId>> entrySet() {
-        return values.entrySet();
+        return new AbstractSet<Map.Entry<DotId, DotId>>() {
+            @Override
+            public Iterator<Map.Entry<DotId, DotId>> iterator() {
+                return new EntryIterator<Map.Entry<DotId, DotId>>() {
+                    @Override
+                    public Map.Entry<DotId, DotId> next() {
+                        final DotId key = entries[nextIndex()];
+                        return new Map.Entry<DotId, DotId>() {
+                            @Override
+                            public DotId getKey() {
+                                return key;
+                            }
+
+                            @Override
+                            public DotId getValue() {
+                                return get(key);
+                            }
+
+                            @Override
+                            public DotId setValue(DotId value) {
+                                return put(key, value);
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     public Set<Map.Entry<String, String>> stringEntrySet() {
         Set<Map.Entry<String, String>> ret = new LinkedHashSet<>();
-        for (Map.Entry<DotId, DotId> entry : values.entrySet()) {
-            final String stringKey = entry.getKey().toString();
+        for (int i = 0; i < size * 2; i += 2) {
+            final String stringKey = entries[i].toString();
             ret.add(new Map.Entry<String, String>() {
                 @Override
                 public String getKey() {
@@ -168,6 +411,13 @@ public class AttributesMap {
         return ret;
     }
 
+    /**
+     * Creates copy of this map. Entries are shared until one of the maps is
+     * modified.
+     *
+     * @return Copy
+     */
+    @Override
     public AttributesMap clone() {
         return new AttributesMap(this);
     }
@@ -177,16 +427,13 @@ public class AttributesMap {
         StringBuilder sb = new StringBuilder();
         if (!isEmpty()) {
             sb.append("[");
-            List<DotId> keys = new ArrayList<>(keySet());
-            for (int i = 0; i < keys.size(); i++) {
-                DotId key = keys.get(i);
-                DotId value = this.get(key);
+            for (int i = 0; i < size * 2; i += 2) {
                 if (i > 0) {
                     sb.append(" ");
                 }
-                sb.append(key.toString());
+                sb.append(entries[i].toString());
                 sb.append("=");
-                sb.append(value.toString());
+                sb.append(entries[i + 1].toString());
             }
             sb.append("]");
         }
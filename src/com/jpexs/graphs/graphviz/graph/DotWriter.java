@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotId;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes graphs in DOT format directly to a Writer, without building the text
+ * in memory first.
+ *
+ * Compact mode produces the same text as toString of the graph. Pretty mode
+ * puts each statement on its own line, indented by subgraph depth.
+ *
+ * @author JPEXS
+ */
+public class DotWriter implements Closeable, Flushable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final String NEWLINE = "\r\n";
+
+    private static final String INDENT = "    ";
+
+    private final Writer out;
+
+    private boolean pretty = false;
+
+    private int depth = 0;
+
+    /**
+     * Creates writer with default buffer.
+     *
+     * @param out Output
+     */
+    public DotWriter(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates writer.
+     *
+     * @param out Output
+     * @param bufferSize Size of buffer in chars, 0 for writing to output
+     * directly
+     */
+    public DotWriter(Writer out, int bufferSize) {
+        this.out = bufferSize > 0 ? new BufferedWriter(out, bufferSize) : out;
+    }
+
+    /**
+     * Creates writer which writes UTF-8 with default buffer.
+     *
+     * @param out Output
+     */
+    public DotWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates writer which writes UTF-8.
+     *
+     * @param out Output
+     * @param bufferSize Size of buffer in chars, 0 for no buffering
+     */
+    public DotWriter(OutputStream out, int bufferSize) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+    }
+
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    public void setPretty(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    /**
+     * Converts graph to DOT text in compact mode.
+     *
+     * @param graph Graph or subgraph
+     * @return DOT text
+     */
+    public static String toString(GraphBase graph) {
+        StringWriter sw = new StringWriter();
+        try {
+            new DotWriter(sw, 0).write(graph);
+        } catch (IOException ex) {
+            //StringWriter does not throw
+            throw new RuntimeException(ex);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Writes graph or subgraph. Output is not flushed.
+     *
+     * @param graph Graph
+     * @throws IOException On write error
+     */
+    public void write(GraphBase graph) throws IOException {
+        if (graph instanceof Graph) {
+            Graph g = (Graph) graph;
+            if (g.isStrict()) {
+                out.write("strict ");
+            }
+            out.write(g.directed ? "digraph " : "graph ");
+        } else if (graph.hasId()) {
+            out.write("subgraph ");
+        }
+        writeBody(graph);
+        if (pretty && depth == 0) {
+            out.write(NEWLINE);
+        }
+    }
+
+    private void newStatement(boolean first) throws IOException {
+        if (pretty) {
+            out.write(NEWLINE);
+            for (int i = 0; i < depth; i++) {
+                out.write(INDENT);
+            }
+        } else if (!first) {
+            out.write(NEWLINE);
+        }
+    }
+
+    private void writeBody(GraphBase graph) throws IOException {
+        if (graph.hasId()) {
+            out.write(graph.id.toString());
+            if (pretty) {
+                out.write(" ");
+            }
+        }
+        out.write("{");
+        depth++;
+        for (Map.Entry<DotId, DotId> entry : graph.graphAttributes.entrySet()) {
+            if (pretty) {
+                newStatement(false);
+            }
+            out.write(entry.getKey().toString());
+            out.write("=");
+            out.write(entry.getValue().toString());
+            out.write(";");
+        }
+
+        //compact mode separates statements by ";" + newline, the last one has no ";"
+        boolean first = true;
+        for (NodeIdToAttributes node : graph.nodes) {
+            if (!first) {
+                out.write(";");
+            }
+            newStatement(first);
+            first = false;
+            writeNodeId(node.nodeId);
+            writeAttributes(node.attributes);
+        }
+        for (Edge edge : graph.edges) {
+            if (!first) {
+                out.write(";");
+            }
+            newStatement(first);
+            first = false;
+            writeConnectable(edge.from);
+            out.write(pretty ? (edge.isDirected() ? " -> " : " -- ") : (edge.isDirected() ? "->" : "--"));
+            writeConnectable(edge.to);
+            writeAttributes(edge.attributes);
+        }
+        if (pretty && !first) {
+            out.write(";");
+        }
+        if (!graph.subgraphs.isEmpty() && !pretty) {
+            out.write(";");
+        }
+        for (SubGraph subgraph : graph.subgraphs) {
+            newStatement(true);
+            write(subgraph);
+            out.write(";");
+            if (!pretty) {
+                out.write(NEWLINE);
+            }
+        }
+        depth--;
+        if (pretty) {
+            newStatement(false);
+        }
+        out.write("}");
+    }
+
+    private void writeConnectable(ConnectableObject object) throws IOException {
+        if (object instanceof NodeId) {
+            writeNodeId((NodeId) object);
+        } else if (object instanceof SubGraph) {
+            write((SubGraph) object);
+        } else {
+            out.write(String.valueOf(object));
+        }
+    }
+
+    private void writeNodeId(NodeId nodeId) throws IOException {
+        out.write(nodeId.getId().toString());
+        if (nodeId.portId != null) {
+            out.write(":");
+            out.write(nodeId.portId);
+        }
+        if (nodeId.compassPt != null) {
+            out.write(":");
+            out.write(nodeId.compassPt);
+        }
+    }
+
+    private void writeAttributes(AttributesMap attributes) throws IOException {
+        if (attributes.isEmpty()) {
+            return;
+        }
+        out.write(pretty ? " [" : "[");
+        boolean first = true;
+        for (Map.Entry<DotId, DotId> entry : attributes.entrySet()) {
+            if (!first) {
+                out.write(pretty ? ", " : " ");
+            }
+            first = false;
+            out.write(entry.getKey().toString());
+            out.write("=");
+            out.write(entry.getValue().toString());
+        }
+        out.write("]");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
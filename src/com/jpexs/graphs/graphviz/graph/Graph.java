@@ -35,17 +35,7 @@ public class Graph extends GraphBase {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        if (strict) {
-            sb.append("strict ");
-        }
-        if (directed) {
-            sb.append("digraph ");
-        } else {
-            sb.append("graph ");
-        }
-        sb.append(bodyToString());
-        return sb.toString();
+        return DotWriter.toString(this);
     }
 
 }
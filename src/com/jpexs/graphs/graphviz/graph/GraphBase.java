@@ -18,10 +18,7 @@ package com.jpexs.graphs.graphviz.graph;
 
 import com.jpexs.graphs.graphviz.dot.parser.DotId;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  *
@@ -51,55 +48,4 @@ public abstract class GraphBase implements IdAware {
     public boolean hasId() {
         return id != null;
     }
-
-    protected String bodyToString() {
-        String NEWLINE = "\r\n";
-        StringBuilder sb = new StringBuilder();
-        if (hasId()) {
-            sb.append(id.toString());
-        }
-        sb.append("{");
-        for (DotId key : graphAttributes.keySet()) {
-            sb.append(key.toString()).append("=").append(graphAttributes.get(key)).append(";");
-        }
-
-        StringBuilder esb = new StringBuilder();
-        Set<NodeId> nodesInEdges = new LinkedHashSet<>();
-        for (Edge edge : edges) {
-            if (edge.from instanceof NodeId) {
-                nodesInEdges.add((NodeId) edge.from);
-            }
-            if (edge.to instanceof NodeId) {
-                nodesInEdges.add((NodeId) edge.to);
-            }
-            if (esb.length() > 0) {
-                esb.append(";").append(NEWLINE);
-            }
-            esb.append(edge);
-        }
-        StringBuilder nsb = new StringBuilder();
-        for (NodeIdToAttributes entry : nodes) {
-            if (nsb.length() > 0) {
-                nsb.append(";").append(NEWLINE);
-            }
-            nsb.append(entry.toString());
-        }
-
-        sb.append(nsb);
-        if (esb.length() > 0) {
-            if (nsb.length() > 0) {
-                sb.append(";").append(NEWLINE);
-            }
-            sb.append(esb);
-        }
-        if (!subgraphs.isEmpty()) {
-            sb.append(";");
-        }
-        for (SubGraph subgraph : subgraphs) {
-            sb.append(subgraph.toString());
-            sb.append(";").append(NEWLINE);
-        }
-        sb.append("}");
-        return sb.toString();
-    }
 }
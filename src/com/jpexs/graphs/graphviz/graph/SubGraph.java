@@ -28,12 +28,7 @@ public class SubGraph extends GraphBase implements ConnectableObject {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        if (hasId()) {
-            sb.append("subgraph ");
-        }
-        sb.append(bodyToString());
-        return sb.toString();
+        return DotWriter.toString(this);
     }
 
 }
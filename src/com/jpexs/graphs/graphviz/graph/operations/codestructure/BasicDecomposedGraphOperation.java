@@ -17,7 +17,6 @@
 package com.jpexs.graphs.graphviz.graph.operations.codestructure;
 
 import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
-import com.jpexs.graphs.graphviz.dot.parser.DotParser;
 import com.jpexs.graphs.graphviz.graph.AttributesMap;
 import com.jpexs.graphs.graphviz.graph.Graph;
 import com.jpexs.graphs.graphviz.graph.operations.GraphOperation;
@@ -66,10 +65,9 @@ public abstract class BasicDecomposedGraphOperation implements StringOperation,
 
     @Override
     public final String execute(String source, StepHandler stepHandler) {
-        Graph parsedGraph;
+        List<DecomposedGraph> decomposedGraphs;
         try {
-            DotParser parser = new DotParser();
-            parsedGraph = parser.parse(new StringReader(source));
+            decomposedGraphs = facade.decomposeGraph(new StringReader(source));
         } catch (IOException ex) {
             ex.printStackTrace();
             return null;
@@ -77,7 +75,19 @@ public abstract class BasicDecomposedGraphOperation implements StringOperation,
             ex.printStackTrace();
             return null;
         }
-        return facade.graphToString(executeOnGraph(parsedGraph, stepHandler));
+        executeOnDecomposedGraph(decomposedGraphs, stepHandler);
+        return facade.graphToString(facade.composeGraph(decomposedGraphs));
+    }
+
+    /**
+     * Executes on graphs in place, without DOT text. First graph is the main
+     * graph, others are its subgraphs.
+     *
+     * @param decomposedGraphs Graphs, for example from CodeGraphBuilder
+     * @param stepHandler Step handler or null
+     */
+    public final void executeOnDecomposedGraphs(List<DecomposedGraph> decomposedGraphs, StepHandler stepHandler) {
+        executeOnDecomposedGraph(decomposedGraphs, stepHandler);
     }
 
     public final Graph executeOnGraph(Graph graph, StepHandler stepHandler) {
@@ -116,9 +126,13 @@ public abstract class BasicDecomposedGraphOperation implements StringOperation,
 
     protected void hilightNoNode(Set<EditableNode> allNodes, Map<Node, AttributesMap> nodeAttributesMap) {
         for (Node n : allNodes) {
-            if (nodeAttributesMap.containsKey(n)) {
-                nodeAttributesMap.get(n).remove("color");
-            }
+            unmarkNode(nodeAttributesMap, n);
+        }
+    }
+
+    protected void unmarkNode(Map<Node, AttributesMap> nodeAttributesMap, Node nodeName) {
+        if (nodeAttributesMap.containsKey(nodeName)) {
+            nodeAttributesMap.get(nodeName).remove("color");
         }
     }
 
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.codestructure.BasicEditableNode;
+import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.EdgeMap;
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.Node;
+import com.jpexs.graphs.graphviz.dot.parser.DotId;
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds DecomposedGraph without DOT text, for example from control flow
+ * graph of a decompiler. Result is the same as decomposed graph of DOT text
+ * with the same statements. First added node is the start node.
+ *
+ * Order of next nodes is order of branches: for decision node, first next
+ * node is the true branch, second one is the false branch.
+ *
+ * @author JPEXS
+ */
+public class CodeGraphBuilder {
+
+    private DotId id;
+    private final AttributesMap graphAttributes = new AttributesMap();
+    private final Set<EditableNode> nodes = new LinkedHashSet<>();
+    private final Map<String, EditableNode> nameToNodeMap = new HashMap<>();
+    private final Map<Node, AttributesMap> nodeAttributesMap = new LinkedHashMap<>();
+    private final EdgeMap<EditableNode, AttributesMap> edgeAttributesMap = new EdgeMap<>();
+    private final EdgeMap<EditableNode, String> edgeCompassesMap = new EdgeMap<>();
+    private final Map<EditableNode, List<Integer>> branchIndices = new HashMap<>();
+
+    public void setId(String id) {
+        this.id = id == null ? null : new DotId(id, false);
+    }
+
+    public void setGraphAttribute(String key, String value) {
+        graphAttributes.put(key, value);
+    }
+
+    private static String toNodeId(String name) {
+        return new DotId(name, false).toString();
+    }
+
+    /**
+     * Gets node, creates it when it does not exist.
+     *
+     * @param name Node name
+     * @return Node
+     */
+    public EditableNode addNode(String name) {
+        String nodeId = toNodeId(name);
+        EditableNode node = nameToNodeMap.get(nodeId);
+        if (node == null) {
+            node = new BasicEditableNode(nodeId);
+            nameToNodeMap.put(nodeId, node);
+            nodes.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Adds node with attributes. Attributes are added to existing ones.
+     *
+     * @param name Node name
+     * @param attributes Attributes
+     * @return Node
+     */
+    public EditableNode addNode(String name, AttributesMap attributes) {
+        EditableNode node = addNode(name);
+        if (!nodeAttributesMap.containsKey(node)) {
+            nodeAttributesMap.put(node, new AttributesMap());
+        }
+        nodeAttributesMap.get(node).putAll(attributes);
+        return node;
+    }
+
+    /**
+     * Gets existing node.
+     *
+     * @param name Node name
+     * @return Node or null when there is no such node
+     */
+    public EditableNode getNode(String name) {
+        return nameToNodeMap.get(toNodeId(name));
+    }
+
+    /**
+     * Adds edge after all existing edges of from node.
+     *
+     * @param from From node name
+     * @param to To node name
+     * @return Edge
+     */
+    public Edge<EditableNode> addEdge(String from, String to) {
+        return addEdge(from, to, Integer.MAX_VALUE, new AttributesMap());
+    }
+
+    /**
+     * Adds edge as the branch of from node. Edges of from node are ordered by
+     * branch index, edges with the same index by order of adding.
+     *
+     * @param from From node name
+     * @param to To node name
+     * @param branchIndex Branch index, 0 for true branch, 1 for false branch
+     * @return Edge
+     */
+    public Edge<EditableNode> addEdge(String from, String to, int branchIndex) {
+        return addEdge(from, to, branchIndex, new AttributesMap());
+    }
+
+    /**
+     * Adds edge with attributes as the branch of from node.
+     *
+     * @param from From node name
+     * @param to To node name
+     * @param branchIndex Branch index, 0 for true branch, 1 for false branch
+     * @param attributes Attributes
+     * @return Edge
+     */
+    public Edge<EditableNode> addEdge(String from, String to, int branchIndex, AttributesMap attributes) {
+        if (branchIndex < 0) {
+            throw new IllegalArgumentException("Negative branch index: " + branchIndex);
+        }
+        EditableNode fromNode = addNode(from);
+        EditableNode toNode = addNode(to);
+        List<Integer> fromBranches = branchIndices.get(fromNode);
+        if (fromBranches == null) {
+            fromBranches = new ArrayList<>();
+            branchIndices.put(fromNode, fromBranches);
+        }
+        int pos = fromBranches.size();
+        while (pos > 0 && fromBranches.get(pos - 1) > branchIndex) {
+            pos--;
+        }
+        fromBranches.add(pos, branchIndex);
+        fromNode.addNext(pos, toNode);
+        toNode.addPrev(fromNode);
+        Edge<EditableNode> edge = new Edge<>(fromNode, toNode);
+        edgeAttributesMap.put(edge, attributes);
+        return edge;
+    }
+
+    /**
+     * Sets compass points of edge ends.
+     *
+     * @param edge Edge
+     * @param fromCompass Compass point of from end or null
+     * @param toCompass Compass point of to end or null
+     */
+    public void setEdgeCompasses(Edge<EditableNode> edge, String fromCompass, String toCompass) {
+        edgeCompassesMap.put(edge, (fromCompass == null ? "" : fromCompass) + ":" + (toCompass == null ? "" : toCompass));
+    }
+
+    /**
+     * Creates graph. Builder must not be used after that.
+     *
+     * @return Graph
+     */
+    public DecomposedGraph build() {
+        return new DecomposedGraph(id, graphAttributes, nodes, nodeAttributesMap, edgeAttributesMap, edgeCompassesMap);
+    }
+}
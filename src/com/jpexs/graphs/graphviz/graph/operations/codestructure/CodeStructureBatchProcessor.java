@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotBatchParser;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import com.jpexs.graphs.graphviz.graph.DotWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parse, detect and write pipeline for DotBatchParser. Each file is
+ * decomposed without building Graph, its structure is detected and result is
+ * written to file of the same name in output directory. Use checkOutputFiles
+ * before processing, so outputs do not overwrite each other or the inputs.
+ *
+ * @author JPEXS
+ */
+public class CodeStructureBatchProcessor implements DotBatchParser.FileProcessor<Path> {
+
+    private final CodeStructureModifyOperation operation;
+    private final Path outputDir;
+    private final StructuredGraphFacade facade = new StructuredGraphFacade();
+    private boolean pretty = false;
+
+    /**
+     * Creates processor.
+     *
+     * @param operation Operation, shared by all files, its settings must not
+     * change during the batch
+     * @param outputDir Output directory
+     */
+    public CodeStructureBatchProcessor(CodeStructureModifyOperation operation, Path outputDir) {
+        this.operation = operation;
+        this.outputDir = outputDir;
+    }
+
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    /**
+     * Sets whether output is written in pretty mode of DotWriter.
+     *
+     * @param pretty Pretty
+     */
+    public void setPretty(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    /**
+     * Processes one file.
+     *
+     * @param file Input file
+     * @return Written output file
+     * @throws IOException On read or write error
+     * @throws DotParseException On syntax error
+     */
+    @Override
+    public Path process(Path file) throws IOException, DotParseException {
+        List<DecomposedGraph> decomposedGraphs = facade.decomposeGraph(file);
+        operation.executeOnDecomposedGraphs(decomposedGraphs, null);
+        Path outputFile = getOutputFile(file);
+        try (OutputStream os = Files.newOutputStream(outputFile)) {
+            DotWriter writer = new DotWriter(os);
+            writer.setPretty(pretty);
+            writer.write(facade.composeGraph(decomposedGraphs));
+            writer.flush();
+        }
+        processed(file, decomposedGraphs, outputFile);
+        return outputFile;
+    }
+
+    /**
+     * Gets file the result of input file is written to.
+     *
+     * @param file Input file
+     * @return Output file
+     */
+    public Path getOutputFile(Path file) {
+        return outputDir.resolve(file.getFileName().toString());
+    }
+
+    /**
+     * Gets all files written for input file. Subclasses which write more
+     * files in processed method should add them.
+     *
+     * @param file Input file
+     * @return Output files
+     */
+    protected List<Path> getOutputFiles(Path file) {
+        List<Path> ret = new ArrayList<>();
+        ret.add(getOutputFile(file));
+        return ret;
+    }
+
+    /**
+     * Checks that no output file is written twice and that no input file is
+     * overwritten. Output files are named by input file names only, so files
+     * of the same name from different directories and output directory same
+     * as input directory are rejected.
+     *
+     * @param files Input files
+     * @throws IOException On error resolving paths
+     * @throws IllegalArgumentException When an output file collides
+     */
+    public void checkOutputFiles(List<Path> files) throws IOException {
+        Set<Path> inputs = new HashSet<>();
+        for (Path file : files) {
+            if (!inputs.add(file.toRealPath())) {
+                throw new IllegalArgumentException("File " + file + " is listed twice");
+            }
+        }
+        Map<Path, Path> outputs = new HashMap<>();
+        for (Path file : files) {
+            for (Path outputFile : getOutputFiles(file)) {
+                Path resolved = resolve(outputFile);
+                if (inputs.contains(resolved)) {
+                    throw new IllegalArgumentException("Output file " + outputFile + " would overwrite input file");
+                }
+                Path other = outputs.put(resolved, file);
+                if (other != null) {
+                    throw new IllegalArgumentException("Files " + other + " and " + file + " would be both written to " + outputFile);
+                }
+            }
+        }
+    }
+
+    private static Path resolve(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (Files.exists(dir)) {
+            dir = dir.toRealPath();
+        }
+        return dir.normalize().resolve(file.getFileName());
+    }
+
+    /**
+     * Called after output of a file was written, on the thread which
+     * processed it. Detected structures are available via
+     * DecomposedGraph.getStructure.
+     *
+     * @param file Input file
+     * @param decomposedGraphs Main graph and its subgraphs after detection
+     * @param outputFile Written output file
+     * @throws IOException On write error
+     */
+    protected void processed(Path file, List<DecomposedGraph> decomposedGraphs, Path outputFile) throws IOException {
+    }
+}
@@ -19,21 +19,38 @@ package com.jpexs.graphs.graphviz.graph.operations.codestructure;
 import com.jpexs.graphs.graphviz.graph.AttributesMap;
 import com.jpexs.graphs.graphviz.graph.Graph;
 import com.jpexs.graphs.graphviz.graph.operations.StepHandler;
+import com.jpexs.graphs.codestructure.CodeStructure;
 import com.jpexs.graphs.codestructure.DecisionList;
 import com.jpexs.graphs.codestructure.Edge;
 import com.jpexs.graphs.codestructure.nodes.EditableEndIfNode;
 import com.jpexs.graphs.codestructure.nodes.EditableJoinedNode;
 import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.JoinedNode;
 import com.jpexs.graphs.codestructure.nodes.Node;
 import com.jpexs.graphs.codestructure.operations.CodeStructureModifier;
 import com.jpexs.graphs.codestructure.operations.CodeStructureModifierProgressListener;
 import com.jpexs.graphs.codestructure.operations.DetectedEdgeType;
+import com.jpexs.graphs.codestructure.operations.DetectionBudget;
+import com.jpexs.graphs.codestructure.operations.EndIfNodeInjector;
+import com.jpexs.graphs.codestructure.operations.NodeJoiner;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
 import com.jpexs.graphs.graphviz.dot.parser.DotId;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *
@@ -42,8 +59,32 @@ import java.util.Set;
 public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation {
 
     private boolean displayDecisionLists = false;
+    private DetectionBudget budget;
 
-    private class Executor implements CodeStructureModifierProgressListener {
+    public void setDisplayDecisionLists(boolean displayDecisionLists) {
+        this.displayDecisionLists = displayDecisionLists;
+    }
+
+    public boolean isDisplayDecisionLists() {
+        return displayDecisionLists;
+    }
+
+    /**
+     * Sets budget of detection of each graph. When detection stops, the
+     * graph keeps structures detected so far, the reason is status of
+     * DecomposedGraph.getStructure.
+     *
+     * @param budget Budget or null for no limits
+     */
+    public void setBudget(DetectionBudget budget) {
+        this.budget = budget;
+    }
+
+    public DetectionBudget getBudget() {
+        return budget;
+    }
+
+    class Executor implements CodeStructureModifierProgressListener {
 
         private List<DecomposedGraph> decomposedGraphs;
         private EditableNode startNode;
@@ -53,7 +94,43 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
         private Map<Edge<EditableNode>, String> edgeCompassesMap;
         private StructuredGraphFacade f = new StructuredGraphFacade();
         private StepHandler stepHandler;
+        /**
+         * Composed graphs, valid when not dirty. They are composed only on
+         * step, when step handler is set. Without step handler (headless),
+         * executor never composes, it changes only maps of its graph, so it
+         * can run concurrently with others.
+         */
         private Graph currentGraph;
+        private boolean dirty;
+        private StepLog log;
+        private int graphIndex;
+        /**
+         * Nodes by id, used on replay.
+         */
+        private Map<String, EditableNode> nodesById;
+        private DetectionBudget budget = CodeStructureModifyOperation.this.budget;
+        /**
+         * Node currently highlighted. Colors from the source graph are cleared
+         * on first selection, then only this node needs to be cleared.
+         */
+        private Node hilightedNode;
+        private boolean hilightInitialized;
+        /**
+         * Nodes reachable from start node. Only these get true/false labels.
+         * While all node ids are unique, joining nodes and adding endifs does
+         * not change reachability of other nodes.
+         */
+        private Set<EditableNode> reachableNodes = new HashSet<>();
+        /**
+         * Some nodes have same id, for example endifs of switch. The walk from
+         * start node then visits only one of them, so true/false labels are
+         * marked by the walk.
+         */
+        private boolean duplicateIds;
+        /**
+         * Journal of replayed changes, null when not replaying.
+         */
+        private StepJournal journal;
 
         public Executor(List<DecomposedGraph> decomposedGraphs, StepHandler stepHandler, Set<EditableNode> nodes, Map<Node, AttributesMap> nodeAttributesMap, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap, Map<Edge<EditableNode>, String> edgeCompassesMap) {
             this.decomposedGraphs = decomposedGraphs;
@@ -66,22 +143,187 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
             regenerate();
         }
 
-        public void execute() {
+        public CodeStructure execute() {
             CodeStructureModifier mod = new CodeStructureModifier();
             mod.addListener(this);
-            markTrueFalseOrder(startNode, new LinkedHashSet<>(), edgeAttributesMap);
-            startNode = mod.execute(startNode, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+            mod.setBudget(budget);
+            begin();
+            CodeStructure structure = mod.detect(startNode);
+            startNode = structure.getHeads().isEmpty() ? null : structure.getHeads().get(0);
+            return structure;
+        }
+
+        void begin() {
+            record(StepDelta.Type.BEGIN);
+            markTrueFalseOrder(startNode, reachableNodes, edgeAttributesMap);
+        }
+
+        private void markTrueFalseOrderAfterChange(EditableNode node) {
+            if (duplicateIds) {
+                markTrueFalseOrder(startNode, new LinkedHashSet<>(), edgeAttributesMap);
+                return;
+            }
+            boolean reachable = node == startNode;
+            for (int i = 0; !reachable && i < node.getPrevCount(); i++) {
+                reachable = reachableNodes.contains(node.getPrev(i));
+            }
+            if (reachable) {
+                reachableNodes.add(node);
+            }
+            markTrueFalseOrderAround(startNode, node, reachableNodes, edgeAttributesMap);
+        }
+
+        private void record(StepDelta.Type type, String... arguments) {
+            if (log != null) {
+                log.add(new StepDelta(type, graphIndex, arguments));
+            }
+        }
+
+        private EditableNode nodeById(String id) {
+            EditableNode ret = nodesById.get(id);
+            if (ret == null) {
+                throw new IllegalArgumentException("Unknown node " + id + " in step log");
+            }
+            return ret;
+        }
+
+        /**
+         * Records changes of maps and nodes to the journal, so replayed
+         * deltas can be undone.
+         *
+         * @param journal Journal
+         */
+        void setJournal(StepJournal journal) {
+            this.journal = journal;
+            nodes = journal.wrap(nodes);
+            nodeAttributesMap = journal.wrap(nodeAttributesMap);
+            edgeAttributesMap = journal.wrap(edgeAttributesMap);
+            edgeCompassesMap = journal.wrap(edgeCompassesMap);
+            reachableNodes = journal.wrap(reachableNodes);
+        }
+
+        private void recordState() {
+            final EditableNode oldStartNode = startNode;
+            final Node oldHilightedNode = hilightedNode;
+            final boolean oldHilightInitialized = hilightInitialized;
+            final boolean oldDuplicateIds = duplicateIds;
+            journal.record(new StepJournal.Change() {
+                @Override
+                void undo() {
+                    startNode = oldStartNode;
+                    hilightedNode = oldHilightedNode;
+                    hilightInitialized = oldHilightInitialized;
+                    duplicateIds = oldDuplicateIds;
+                }
+            });
+        }
+
+        /**
+         * Applies recorded change.
+         *
+         * @param delta Delta
+         */
+        void replay(StepDelta delta) {
+            if (journal != null) {
+                recordState();
+            }
+            if (nodesById == null) {
+                //joined and endif nodes are added as they are created, replaced nodes stay
+                nodesById = new HashMap<>();
+                for (EditableNode node : nodes) {
+                    nodesById.put(node.getId(), node);
+                }
+            }
+            switch (delta.getType()) {
+                case BEGIN:
+                    begin();
+                    break;
+                case JOIN:
+                    List<EditableNode> subNodes = new ArrayList<>();
+                    for (int i = 0; i < delta.getArgumentCount(); i++) {
+                        subNodes.add(nodeById(delta.getArgument(i)));
+                    }
+                    if (journal != null) {
+                        EditableNode firstSubNode = subNodes.get(0);
+                        EditableNode lastSubNode = subNodes.get(subNodes.size() - 1);
+                        for (EditableNode prev : firstSubNode.getPrev()) {
+                            journal.recordLinks(prev);
+                        }
+                        for (EditableNode next : lastSubNode.getNext()) {
+                            journal.recordLinks(next);
+                        }
+                        journal.recordLinks(firstSubNode);
+                        journal.recordLinks(lastSubNode);
+                    }
+                    EditableJoinedNode joinedNode = new NodeJoiner().joinSubNodes(subNodes);
+                    nodesById.put(joinedNode.getId(), joinedNode);
+                    nodesJoined(joinedNode);
+                    break;
+                case ENDIF:
+                    EditableNode decisionNode = nodeById(delta.getArgument(0));
+                    EditableNode afterNode = nodeById(delta.getArgument(1));
+                    List<EditableNode> endBranchNodes = new ArrayList<>();
+                    for (int i = 2; i < delta.getArgumentCount(); i++) {
+                        endBranchNodes.add(nodeById(delta.getArgument(i)));
+                    }
+                    if (journal != null) {
+                        for (EditableNode endBranchNode : endBranchNodes) {
+                            journal.recordLinks(endBranchNode);
+                        }
+                        journal.recordLinks(afterNode);
+                    }
+                    EndIfNodeInjector<EditableNode> injector = new EndIfNodeInjector<>();
+                    injector.addListener(this);
+                    EditableEndIfNode endIfNode = injector.injectEndIf(decisionNode, endBranchNodes, afterNode);
+                    nodesById.put(endIfNode.getId(), endIfNode);
+                    break;
+                case EDGE:
+                    edgeMarked(new Edge<>(nodeById(delta.getArgument(0)), nodeById(delta.getArgument(1))), DetectedEdgeType.valueOf(delta.getArgument(2)));
+                    break;
+                case SELECT:
+                    nodeSelected(nodeById(delta.getArgument(0)));
+                    break;
+                case UNSELECT:
+                    noNodeSelected();
+                    break;
+                case DECISION_LISTS:
+                    Map<Edge<EditableNode>, String> labels = new LinkedHashMap<>();
+                    for (int i = 0; i + 2 < delta.getArgumentCount(); i += 3) {
+                        labels.put(new Edge<>(nodeById(delta.getArgument(i)), nodeById(delta.getArgument(i + 1))), delta.getArgument(i + 2));
+                    }
+                    CodeStructureModifyOperation.this.updateDecisionListLabels(labels, edgeAttributesMap);
+                    regenerate();
+                    break;
+                case STEP:
+                    break;
+            }
         }
 
         @Override
         public EditableNode endIfDetected(EditableNode decisionNode, List<EditableNode> endBranchNodes, EditableNode afterNode) {
+            if (log != null) {
+                String[] arguments = new String[2 + endBranchNodes.size()];
+                arguments[0] = decisionNode.getId();
+                arguments[1] = afterNode.getId();
+                for (int i = 0; i < endBranchNodes.size(); i++) {
+                    arguments[2 + i] = endBranchNodes.get(i).getId();
+                }
+                record(StepDelta.Type.ENDIF, arguments);
+            }
             return afterNode;
         }
 
         @Override
         public void step() {
-            CodeStructureModifyOperation.this.step(f.composeGraph(decomposedGraphs), stepHandler);
-            regenerate();
+            record(StepDelta.Type.STEP);
+            if (stepHandler == null) {
+                return;
+            }
+            if (dirty) {
+                currentGraph = f.composeGraph(decomposedGraphs);
+                dirty = false;
+            }
+            CodeStructureModifyOperation.this.step(currentGraph, stepHandler);
         }
 
         @Override
@@ -91,6 +333,7 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
             String compass;
             String compasses[];
             String newcompass;
+            record(StepDelta.Type.EDGE, edge.from.getId(), edge.to.getId(), edgeType.name());
             boolean alreadyHasColor = edgeAttributesMap.containsKey(edge) && edgeAttributesMap.get(edge).containsKey("color");
             switch (edgeType) {
                 case BACK:
@@ -131,25 +374,59 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
 
         @Override
         public void nodeSelected(EditableNode node) {
-            CodeStructureModifyOperation.this.hilightOneNode(nodes, nodeAttributesMap, node);
+            record(StepDelta.Type.SELECT, node.getId());
+            unhilight();
+            CodeStructureModifyOperation.this.markNode(nodeAttributesMap, node, "red");
+            hilightedNode = node;
             regenerate();
         }
 
         @Override
         public void updateDecisionLists(Map<Edge<EditableNode>, DecisionList<EditableNode>> decistionLists) {
-            CodeStructureModifyOperation.this.updateDecisionLists(currentGraph, decistionLists, edgeAttributesMap);
+            if (!displayDecisionLists) {
+                //labels are not shown, nothing visible changes
+                return;
+            }
+            Map<Edge<EditableNode>, String> labels = new LinkedHashMap<>();
+            for (Edge<EditableNode> edge : decistionLists.keySet()) {
+                labels.put(edge, decistionLists.get(edge).isEmpty() ? "(empty)" : decistionLists.get(edge).toString());
+            }
+            if (log != null) {
+                String[] arguments = new String[labels.size() * 3];
+                int pos = 0;
+                for (Edge<EditableNode> edge : labels.keySet()) {
+                    arguments[pos++] = edge.from.getId();
+                    arguments[pos++] = edge.to.getId();
+                    arguments[pos++] = labels.get(edge);
+                }
+                record(StepDelta.Type.DECISION_LISTS, arguments);
+            }
+            CodeStructureModifyOperation.this.updateDecisionListLabels(labels, edgeAttributesMap);
             regenerate();
         }
 
         @Override
         public void noNodeSelected() {
-            CodeStructureModifyOperation.this.hilightNoNode(nodes, nodeAttributesMap);
+            record(StepDelta.Type.UNSELECT);
+            unhilight();
             regenerate();
         }
 
+        private void unhilight() {
+            if (!hilightInitialized) {
+                CodeStructureModifyOperation.this.hilightNoNode(nodes, nodeAttributesMap);
+                hilightInitialized = true;
+            } else if (hilightedNode != null) {
+                CodeStructureModifyOperation.this.unmarkNode(nodeAttributesMap, hilightedNode);
+            }
+            hilightedNode = null;
+        }
+
         @Override
         public void endIfAdded(EditableEndIfNode endIfNode) {
-            nodes.add(endIfNode);
+            if (!nodes.add(endIfNode)) {
+                duplicateIds = true;
+            }
             for (EditableNode prev : endIfNode.getPrev()) {
                 edgeCompassesMap.put(new Edge<>(prev, endIfNode), "s:");
             }
@@ -199,18 +476,25 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
             if (!edgeAttributesMap.containsKey(onFalseFinishEdge)) {
                 edgeAttributesMap.put(onFalseFinishEdge, new AttributesMap());
             }
-            markTrueFalseOrder(startNode, new LinkedHashSet<>(), edgeAttributesMap);
+            markTrueFalseOrderAfterChange(endIfNode);
             regenerate();
         }
 
         private void regenerate() {
-            currentGraph = composeGraph(decomposedGraphs);
+            dirty = true;
         }
 
         @Override
         public void nodesJoined(EditableJoinedNode node) {
+            if (log != null) {
+                List<String> subIds = new ArrayList<>();
+                for (Node subNode : node.getAllSubNodes()) {
+                    subIds.add(subNode.getId());
+                }
+                record(StepDelta.Type.JOIN, subIds.toArray(new String[subIds.size()]));
+            }
             List<DotId> labels = new ArrayList<>();
-            DotId labelKey = new DotId("label", false);
+            DotId labelKey = DotId.valueOf("label");
             String shape;
             /*=null;*/
             for (Node subNode : node.getAllSubNodes()) {
@@ -242,13 +526,16 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
             AttributesMap nattr = new AttributesMap();
 
             if (!labels.isEmpty()) {
-                nattr.put(new DotId("label", false), DotId.join("\\l", labels));
+                nattr.put(DotId.valueOf("label"), DotId.join("\\l", labels));
                 nodeAttributesMap.put(node, nattr);
             }
             if (/*shape != null &&*/!shape.isEmpty()) {
                 nattr.put("shape", shape);
                 nodeAttributesMap.put(node, nattr);
             }
+            if (nodes.contains(node)) {
+                duplicateIds = true;
+            }
             if (node == startNode) {
                 //make startNode first again
                 List<com.jpexs.graphs.codestructure.nodes.EditableNode> oldCopy = new ArrayList<>(nodes);
@@ -258,26 +545,227 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
             } else {
                 nodes.add(node);
             }
-            markTrueFalseOrder(startNode, new LinkedHashSet<>(), edgeAttributesMap);
+            markTrueFalseOrderAfterChange(node);
+            regenerate();
         }
     }
 
+    /**
+     * Executes on all graphs. Without step handler, nobody sees intermediate
+     * graphs, so the main graph and subgraphs are processed concurrently,
+     * each one in its own maps.
+     *
+     * @param decomposedGraphs Graphs
+     * @param stepHandler Step handler or null
+     */
     @Override
     protected void executeOnDecomposedGraph(List<DecomposedGraph> decomposedGraphs, StepHandler stepHandler) {
+        if (stepHandler == null && decomposedGraphs.size() > 1) {
+            executeConcurrently(decomposedGraphs);
+            return;
+        }
         for (DecomposedGraph dg : decomposedGraphs) {
             Executor ex = new Executor(decomposedGraphs, stepHandler, dg.nodes, dg.nodeAttributesMap, dg.edgeAttributesMap, dg.edgeCompassesMap);
-            ex.execute();
+            dg.structure = ex.execute();
         }
     }
 
-    private void markTrueFalseOrder(EditableNode n, Set<EditableNode> visited, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap) {
-        if (visited.contains(n)) {
-            return;
+    /**
+     * Executes operation on the source and records all changes. Graphs are
+     * processed one after another, the same way as with step handler.
+     *
+     * @param source DOT source
+     * @return Log of changes
+     * @throws IOException On read error
+     * @throws DotParseException On syntax error
+     */
+    public StepLog record(String source) throws IOException, DotParseException {
+        List<DecomposedGraph> decomposedGraphs = facade.decomposeGraph(new StringReader(source));
+        StepLog log = new StepLog(source);
+        for (int i = 0; i < decomposedGraphs.size(); i++) {
+            Executor ex = createExecutor(decomposedGraphs, i);
+            ex.log = log;
+            decomposedGraphs.get(i).structure = ex.execute();
+        }
+        return log;
+    }
+
+    Executor createExecutor(List<DecomposedGraph> decomposedGraphs, int graphIndex) {
+        DecomposedGraph dg = decomposedGraphs.get(graphIndex);
+        Executor ex = new Executor(decomposedGraphs, null, dg.nodes, dg.nodeAttributesMap, dg.edgeAttributesMap, dg.edgeCompassesMap);
+        ex.graphIndex = graphIndex;
+        return ex;
+    }
+
+    private void executeConcurrently(final List<DecomposedGraph> decomposedGraphs) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        //workers do not see interruption of this thread, it cancels their budget
+        final DetectionBudget runBudget = budget == null ? new DetectionBudget() : new DetectionBudget(budget);
+        for (final DecomposedGraph dg : decomposedGraphs) {
+            tasks.add(ForkJoinPool.commonPool().submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    Executor ex = new Executor(decomposedGraphs, null, dg.nodes, dg.nodeAttributesMap, dg.edgeAttributesMap, dg.edgeCompassesMap);
+                    ex.budget = runBudget;
+                    dg.structure = ex.execute();
+                    return null;
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for (ForkJoinTask<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                    runBudget.cancel();
+                } catch (ExecutionException ex) {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    //rethrow original exception of the graph
+                    if (ex.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ex.getCause();
+                    }
+                    if (ex.getCause() instanceof Error) {
+                        throw (Error) ex.getCause();
+                    }
+                    throw new RuntimeException(ex.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void markTrueFalseOrder(EditableNode startNode, Set<EditableNode> visited, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap) {
+        //same order as recursive walk, without recursion per node
+        Deque<EditableNode> stack = new ArrayDeque<>();
+        stack.push(startNode);
+        while (!stack.isEmpty()) {
+            EditableNode n = stack.pop();
+            if (!visited.add(n)) {
+                continue;
+            }
+            markTrueFalseOrder(n, edgeAttributesMap);
+            for (int i = n.getNextCount() - 1; i >= 0; i--) {
+                stack.push(n.getNext(i));
+            }
+        }
+    }
+
+    /**
+     * Marks true/false order of edges, which changed when the node was
+     * added to the graph. Like the walk from start node, only reachable nodes
+     * are marked and they are marked in order of the walk.
+     *
+     * @param startNode Start node
+     * @param node Added node
+     * @param reachableNodes Nodes reachable from start node
+     * @param edgeAttributesMap Edge attributes
+     */
+    private void markTrueFalseOrderAround(EditableNode startNode, EditableNode node, Set<EditableNode> reachableNodes, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap) {
+        /*
+            Order matters only on new edges, which get both taillabel and headlabel:
+            from a node with two nexts to an endif. Decision node is always walked before its endif,
+            otherwise the walk from start node tells which one is first.
+         */
+        boolean reachable = reachableNodes.contains(node);
+        List<EditableNode> before = new ArrayList<>();
+        List<EditableNode> after = new ArrayList<>();
+        List<EditableNode> unknown = new ArrayList<>();
+        for (EditableNode prev : node.getPrev()) {
+            if (!reachableNodes.contains(prev)) {
+                continue;
+            }
+            if (reachable && hasBothLabels(prev, node) && !isDecisionOf(prev, (EditableEndIfNode) node)) {
+                unknown.add(prev);
+            } else {
+                before.add(prev);
+            }
+        }
+        for (EditableNode next : node.getNext()) {
+            if (!reachableNodes.contains(next)) {
+                continue;
+            }
+            if (reachable && hasBothLabels(node, next) && !isDecisionOf(node, (EditableEndIfNode) next)) {
+                unknown.add(next);
+            } else {
+                after.add(next);
+            }
         }
+        if (!unknown.isEmpty()) {
+            Set<EditableNode> walkedBefore = walkUntil(startNode, node);
+            for (EditableNode n : unknown) {
+                if (walkedBefore.contains(n)) {
+                    before.add(n);
+                } else {
+                    after.add(n);
+                }
+            }
+        }
+        for (EditableNode n : before) {
+            markTrueFalseOrder(n, edgeAttributesMap);
+        }
+        if (reachable) {
+            markTrueFalseOrder(node, edgeAttributesMap);
+        }
+        for (EditableNode n : after) {
+            markTrueFalseOrder(n, edgeAttributesMap);
+        }
+    }
+
+    private static boolean hasBothLabels(EditableNode from, EditableNode to) {
+        return from.getNextCount() == 2 && to instanceof EditableEndIfNode && to.getPrevCount() <= 2;
+    }
+
+    /**
+     * Checks whether the node is decision node of the endif, possibly joined
+     * with previous nodes.
+     */
+    private static boolean isDecisionOf(EditableNode node, EditableEndIfNode endIfNode) {
+        Node ifNode = endIfNode.getIfNode();
+        Node n = node;
+        while (n != ifNode && n instanceof JoinedNode) {
+            JoinedNode joinedNode = (JoinedNode) n;
+            n = joinedNode.getSubNode(joinedNode.getSubNodeCount() - 1);
+        }
+        return n == ifNode;
+    }
+
+    /**
+     * Walks from start node like markTrueFalseOrder, until the target node is
+     * reached.
+     *
+     * @return Walked nodes, including the target
+     */
+    private static Set<EditableNode> walkUntil(EditableNode startNode, EditableNode target) {
+        Set<EditableNode> visited = new HashSet<>();
+        Deque<EditableNode> stack = new ArrayDeque<>();
+        stack.push(startNode);
+        while (!stack.isEmpty()) {
+            EditableNode n = stack.pop();
+            if (!visited.add(n)) {
+                continue;
+            }
+            if (n == target) {
+                break;
+            }
+            for (int i = n.getNextCount() - 1; i >= 0; i--) {
+                stack.push(n.getNext(i));
+            }
+        }
+        return visited;
+    }
+
+    private void markTrueFalseOrder(EditableNode n, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap) {
         String branchLabels[] = new String[]{"+", "-"};
-        if (n instanceof EditableEndIfNode) {
-            for (int i = 0; i < n.getPrev().size(); i++) {
-                EditableNode prev = n.getPrev().get(i);
+        if (n instanceof EditableEndIfNode && n.getPrevCount() <= branchLabels.length) { //more than 2 = some of them are gotos
+            for (int i = 0; i < n.getPrevCount(); i++) {
+                EditableNode prev = n.getPrev(i);
                 Edge<EditableNode> edge = new Edge<>(prev, n);
                 if (!edgeAttributesMap.containsKey(edge)) {
                     edgeAttributesMap.put(edge, new AttributesMap());
@@ -285,10 +773,9 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
                 edgeAttributesMap.get(edge).put("headlabel", branchLabels[i]);
             }
         }
-        visited.add(n);
-        if (n.getNext().size() == 2) { //more than 2 = some of them are gotos
-            for (int i = 0; i < n.getNext().size(); i++) {
-                EditableNode next = n.getNext().get(i);
+        if (n.getNextCount() == 2) { //more than 2 = some of them are gotos
+            for (int i = 0; i < n.getNextCount(); i++) {
+                EditableNode next = n.getNext(i);
                 Edge<EditableNode> edge = new Edge<>(n, next);
                 if (!edgeAttributesMap.containsKey(edge)) {
                     edgeAttributesMap.put(edge, new AttributesMap());
@@ -296,20 +783,15 @@ public class CodeStructureModifyOperation extends BasicDecomposedGraphOperation
                 edgeAttributesMap.get(edge).put("taillabel", branchLabels[i]);
             }
         }
-        for (EditableNode next : n.getNext()) {
-            markTrueFalseOrder(next, visited, edgeAttributesMap);
-        }
     }
 
-    private void updateDecisionLists(Graph g, Map<Edge<EditableNode>, DecisionList<EditableNode>> decistionLists, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap) {
-        for (Edge<EditableNode> edge : decistionLists.keySet()) {
+    private void updateDecisionListLabels(Map<Edge<EditableNode>, String> labels, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap) {
+        for (Edge<EditableNode> edge : labels.keySet()) {
             if (!edgeAttributesMap.containsKey(edge)) {
                 edgeAttributesMap.put(edge, new AttributesMap());
             }
-            if (displayDecisionLists) {
-                edgeAttributesMap.get(edge).put("label", decistionLists.get(edge).isEmpty() ? "(empty)" : decistionLists.get(edge).toString());
-                edgeAttributesMap.get(edge).put("fontcolor", "red");
-            }
+            edgeAttributesMap.get(edge).put("label", labels.get(edge));
+            edgeAttributesMap.get(edge).put("fontcolor", "red");
         }
     }
 }
@@ -1,6 +1,7 @@
 package com.jpexs.graphs.graphviz.graph.operations.codestructure;
 
-import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.CodeStructure;
+import com.jpexs.graphs.codestructure.EdgeMap;
 import com.jpexs.graphs.codestructure.nodes.EditableNode;
 import com.jpexs.graphs.codestructure.nodes.Node;
 import com.jpexs.graphs.graphviz.dot.parser.DotId;
@@ -20,10 +21,15 @@ public class DecomposedGraph {
     Set<EditableNode> nodes;
 
     Map<Node, AttributesMap> nodeAttributesMap;
-    Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap;
-    Map<Edge<EditableNode>, String> edgeCompassesMap;
+    EdgeMap<EditableNode, AttributesMap> edgeAttributesMap;
+    EdgeMap<EditableNode, String> edgeCompassesMap;
 
-    public DecomposedGraph(DotId id, AttributesMap graphAttributes, Set<EditableNode> nodes, Map<Node, AttributesMap> nodeAttributesMap, Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap, Map<Edge<EditableNode>, String> edgeCompassesMap) {
+    /**
+     * Structure detected by CodeStructureModifyOperation.
+     */
+    CodeStructure structure;
+
+    public DecomposedGraph(DotId id, AttributesMap graphAttributes, Set<EditableNode> nodes, Map<Node, AttributesMap> nodeAttributesMap, EdgeMap<EditableNode, AttributesMap> edgeAttributesMap, EdgeMap<EditableNode, String> edgeCompassesMap) {
         this.id = id;
         this.graphAttributes = graphAttributes;
         this.nodes = nodes;
@@ -48,12 +54,22 @@ public class DecomposedGraph {
         return nodeAttributesMap;
     }
 
-    public Map<Edge<EditableNode>, AttributesMap> getEdgeAttributesMap() {
+    public EdgeMap<EditableNode, AttributesMap> getEdgeAttributesMap() {
         return edgeAttributesMap;
     }
 
-    public Map<Edge<EditableNode>, String> getEdgeCompassesMap() {
+    public EdgeMap<EditableNode, String> getEdgeCompassesMap() {
         return edgeCompassesMap;
     }
 
+    /**
+     * Gets structure detected by the last CodeStructureModifyOperation
+     * executed on this graph.
+     *
+     * @return Structure or null when no detection was executed
+     */
+    public CodeStructure getStructure() {
+        return structure;
+    }
+
 }
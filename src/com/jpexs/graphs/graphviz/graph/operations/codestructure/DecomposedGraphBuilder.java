@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.codestructure.BasicEditableNode;
+import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.EdgeMap;
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.Node;
+import com.jpexs.graphs.graphviz.dot.parser.DotId;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseListener;
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import com.jpexs.graphs.graphviz.graph.ConnectableObject;
+import com.jpexs.graphs.graphviz.graph.NodeId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds decomposed graphs directly from parse events, without creating
+ * Graph. Result is the same as StructuredGraphFacade.decomposeGraph of the
+ * parsed Graph.
+ *
+ * @author JPEXS
+ */
+class DecomposedGraphBuilder implements DotParseListener {
+
+    private static class OpenGraph {
+
+        DotId id;
+        AttributesMap graphAttributes = new AttributesMap();
+        Map<Node, AttributesMap> nodeAttributesMap = new LinkedHashMap<>();
+        EdgeMap<EditableNode, AttributesMap> edgeAttributesMap = new EdgeMap<>();
+        EdgeMap<EditableNode, String> edgeCompassesMap = new EdgeMap<>();
+        Set<EditableNode> orderedNodeSet = new LinkedHashSet<>();
+        Map<String, EditableNode> nameToNodeMap = new HashMap<>();
+        //nodes with attributes are added after the edges for start edge (its first node) to be first
+        List<NodeId> pendingNodes = new ArrayList<>();
+        List<AttributesMap> pendingNodeAttributes = new ArrayList<>();
+
+        OpenGraph(DotId id) {
+            this.id = id;
+        }
+
+        EditableNode getNode(String id) {
+            EditableNode node = nameToNodeMap.get(id);
+            if (node == null) {
+                node = new BasicEditableNode(id);
+                nameToNodeMap.put(id, node);
+            }
+            return node;
+        }
+
+        DecomposedGraph finish() {
+            for (int i = 0; i < pendingNodes.size(); i++) {
+                AttributesMap at = pendingNodeAttributes.get(i);
+                if (isIgnored(at)) {
+                    continue;
+                }
+                EditableNode node = getNode(pendingNodes.get(i).getId().toString());
+                nodeAttributesMap.put(node, at);
+                orderedNodeSet.add(node);
+            }
+            return new DecomposedGraph(id, graphAttributes, orderedNodeSet, nodeAttributesMap, edgeAttributesMap, edgeCompassesMap);
+        }
+    }
+
+    private final List<DecomposedGraph> graphs = new ArrayList<>();
+    private final List<OpenGraph> openGraphs = new ArrayList<>();
+
+    public List<DecomposedGraph> getGraphs() {
+        return graphs;
+    }
+
+    private OpenGraph current() {
+        return openGraphs.get(openGraphs.size() - 1);
+    }
+
+    /**
+     * Checks ignore attributes, clears attributes when they should be
+     * ignored.
+     *
+     * @param at Attributes
+     * @return True when whole object should be ignored
+     */
+    private static boolean isIgnored(AttributesMap at) {
+        if (at.containsKey(StructuredGraphFacade.IGNORE_ATTRIBUTE) && "true".equals(at.get(StructuredGraphFacade.IGNORE_ATTRIBUTE))) {
+            return true;
+        }
+        if (at.containsKey(StructuredGraphFacade.IGNORE_ATTRIBUTES_ATTRIBUTE) && "true".equals(at.get(StructuredGraphFacade.IGNORE_ATTRIBUTES_ATTRIBUTE))) {
+            at.clear();
+        }
+        return false;
+    }
+
+    @Override
+    public void graphBegin(boolean strict, boolean directed, DotId id) {
+        graphs.add(null); //main graph is first, it is set on its end
+        openGraphs.add(new OpenGraph(id));
+    }
+
+    @Override
+    public void graphEnd() {
+        graphs.set(0, openGraphs.remove(openGraphs.size() - 1).finish());
+    }
+
+    @Override
+    public void subgraphBegin(DotId id) {
+        openGraphs.add(new OpenGraph(id));
+    }
+
+    @Override
+    public ConnectableObject subgraphEnd() {
+        graphs.add(openGraphs.remove(openGraphs.size() - 1).finish());
+        return null;
+    }
+
+    @Override
+    public void graphAttribute(DotId key, DotId value) {
+        current().graphAttributes.put(key, value);
+    }
+
+    @Override
+    public void attributeStatement(String kind, AttributesMap attributes) {
+        if ("graph".equals(kind)) {
+            current().graphAttributes.putAll(attributes);
+        }
+    }
+
+    @Override
+    public void nodeStatement(NodeId node, AttributesMap attributes) {
+        OpenGraph g = current();
+        g.pendingNodes.add(node);
+        g.pendingNodeAttributes.add(attributes == null ? new AttributesMap() : attributes);
+    }
+
+    @Override
+    public void edge(ConnectableObject from, ConnectableObject to, AttributesMap attributes) {
+        if (!(from instanceof NodeId) || !(to instanceof NodeId)) {
+            return;
+        }
+        NodeId fromNodeId = (NodeId) from;
+        NodeId toNodeId = (NodeId) to;
+        AttributesMap at = attributes == null ? new AttributesMap() : attributes;
+        if (isIgnored(at)) {
+            return;
+        }
+        OpenGraph g = current();
+        EditableNode fromNode = g.getNode(fromNodeId.getId().toString());
+        EditableNode toNode = g.getNode(toNodeId.getId().toString());
+        Edge<EditableNode> targetEdge = new Edge<>(fromNode, toNode);
+
+        g.edgeAttributesMap.put(targetEdge, at);
+        String compassToSet = (fromNodeId.compassPt == null ? "" : fromNodeId.compassPt) + ":" + (toNodeId.compassPt == null ? "" : toNodeId.compassPt);
+        if (!compassToSet.equals(":")) {
+            g.edgeCompassesMap.put(targetEdge, compassToSet);
+        }
+        fromNode.addNext(toNode);
+        toNode.addPrev(fromNode);
+        g.orderedNodeSet.add(fromNode);
+        g.orderedNodeSet.add(toNode);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import java.util.Arrays;
+
+/**
+ * One change recorded by CodeStructureModifyOperation. Nodes are referenced
+ * by their ids.
+ *
+ * @author JPEXS
+ */
+public class StepDelta {
+
+    public static enum Type {
+        /**
+         * Start of processing of the graph, no arguments.
+         */
+        BEGIN,
+        /**
+         * Nodes joined, arguments are ids of joined nodes.
+         */
+        JOIN,
+        /**
+         * Endif injected, arguments are decision node, after node and end
+         * branch nodes.
+         */
+        ENDIF,
+        /**
+         * Edge marked, arguments are from node, to node and DetectedEdgeType.
+         */
+        EDGE,
+        /**
+         * Node highlighted, argument is the node.
+         */
+        SELECT,
+        /**
+         * Highlight removed, no arguments.
+         */
+        UNSELECT,
+        /**
+         * Decision list labels, arguments are triples from node, to node and
+         * label.
+         */
+        DECISION_LISTS,
+        /**
+         * Step boundary, no arguments.
+         */
+        STEP
+    }
+
+    private final Type type;
+    private final int graphIndex;
+    private final String[] arguments;
+
+    /**
+     * Creates delta.
+     *
+     * @param type Type
+     * @param graphIndex Index of decomposed graph, 0 is main graph
+     * @param arguments Arguments
+     */
+    public StepDelta(Type type, int graphIndex, String... arguments) {
+        this.type = type;
+        this.graphIndex = graphIndex;
+        this.arguments = arguments;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getGraphIndex() {
+        return graphIndex;
+    }
+
+    public int getArgumentCount() {
+        return arguments.length;
+    }
+
+    public String getArgument(int index) {
+        return arguments[index];
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + graphIndex + " " + Arrays.toString(arguments);
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Journal of changes made by replayed deltas, so StepReplayer can undo them
+ * instead of replaying from the start. Maps and node set of the executor are
+ * wrapped, the wrappers record previous values. Values got from attribute
+ * maps are recorded too, because they are modified in place.
+ *
+ * @author JPEXS
+ */
+class StepJournal {
+
+    /**
+     * Change which can be undone.
+     */
+    abstract static class Change {
+
+        abstract void undo();
+    }
+
+    /**
+     * Changes of one delta.
+     */
+    static class Entry {
+
+        private final List<Change> changes = new ArrayList<>();
+    }
+
+    private Entry current;
+    private final List<NodeSet> nodeSets = new ArrayList<>();
+
+    /**
+     * Starts recording changes of a delta.
+     */
+    void begin() {
+        current = new Entry();
+    }
+
+    /**
+     * Ends recording.
+     *
+     * @return Changes of the delta
+     */
+    Entry end() {
+        Entry ret = current;
+        current = null;
+        return ret;
+    }
+
+    void record(Change change) {
+        if (current != null) {
+            current.changes.add(change);
+        }
+    }
+
+    /**
+     * Undoes changes of a delta. Call finishUndo after last undone entry.
+     *
+     * @param entry Entry
+     */
+    void undo(Entry entry) {
+        for (int i = entry.changes.size() - 1; i >= 0; i--) {
+            entry.changes.get(i).undo();
+        }
+    }
+
+    /**
+     * Restores order of node sets after undo.
+     */
+    void finishUndo() {
+        for (NodeSet nodeSet : nodeSets) {
+            nodeSet.restoreOrder();
+        }
+    }
+
+    /**
+     * Records prev and next nodes of the node before it is reconnected.
+     *
+     * @param node Node
+     */
+    void recordLinks(final EditableNode node) {
+        final List<EditableNode> prev = new ArrayList<>(node.getPrev());
+        final List<EditableNode> next = new ArrayList<>(node.getNext());
+        record(new Change() {
+            @Override
+            void undo() {
+                while (node.getPrevCount() > 0) {
+                    node.removePrev(node.getPrev(0));
+                }
+                while (node.getNextCount() > 0) {
+                    node.removeNext(node.getNext(0));
+                }
+                for (EditableNode p : prev) {
+                    node.addPrev(p);
+                }
+                for (EditableNode n : next) {
+                    node.addNext(n);
+                }
+            }
+        });
+    }
+
+    <K, V> Map<K, V> wrap(Map<K, V> map) {
+        return new JournalMap<>(map);
+    }
+
+    Set<EditableNode> wrap(Set<EditableNode> nodes) {
+        final NodeSet ret = new NodeSet(nodes);
+        nodeSets.add(ret);
+        record(new Change() {
+            @Override
+            void undo() {
+                ret.restoreOrder();
+                nodeSets.remove(ret);
+            }
+        });
+        return ret;
+    }
+
+    private class JournalMap<K, V> extends AbstractMap<K, V> {
+
+        private final Map<K, V> map;
+        private StepJournal.Entry recordedEntry;
+        private final Set<K> recordedKeys = new HashSet<>();
+
+        JournalMap(Map<K, V> map) {
+            this.map = map;
+        }
+
+        private void recordKey(final K key) {
+            if (current == null) {
+                return;
+            }
+            if (recordedEntry != current) {
+                recordedEntry = current;
+                recordedKeys.clear();
+            }
+            if (!recordedKeys.add(key)) {
+                return;
+            }
+            final boolean present = map.containsKey(key);
+            final V value = map.get(key);
+            //attributes are modified in place, possibly shared by more keys
+            final AttributesMap attributes = value instanceof AttributesMap ? ((AttributesMap) value).clone() : null;
+            record(new Change() {
+                @Override
+                void undo() {
+                    if (attributes != null) {
+                        AttributesMap modified = (AttributesMap) value;
+                        modified.clear();
+                        modified.putAll(attributes);
+                    }
+                    if (present) {
+                        map.put(key, value);
+                    } else {
+                        map.remove(key);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            V value = map.get(key);
+            if (value instanceof AttributesMap) {
+                recordKey((K) key);
+            }
+            return value;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            recordKey(key);
+            return map.put(key, value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            if (map.containsKey(key)) {
+                recordKey((K) key);
+            }
+            return map.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return Collections.unmodifiableMap(map).entrySet();
+        }
+    }
+
+    /**
+     * Node set, which keeps insertion order. Each node has its insertion
+     * number, so the order can be restored after undo of removal.
+     */
+    private class NodeSet extends AbstractSet<EditableNode> {
+
+        private final Set<EditableNode> nodes;
+        private final Map<EditableNode, Long> insertions = new HashMap<>();
+        private long insertionCount = 0;
+        private boolean reordered = false;
+
+        NodeSet(Set<EditableNode> nodes) {
+            this.nodes = nodes;
+            for (EditableNode node : nodes) {
+                insertions.put(node, insertionCount++);
+            }
+        }
+
+        void restoreOrder() {
+            if (!reordered) {
+                return;
+            }
+            List<EditableNode> ordered = new ArrayList<>(nodes);
+            Collections.sort(ordered, new Comparator<EditableNode>() {
+                @Override
+                public int compare(EditableNode o1, EditableNode o2) {
+                    return Long.compare(insertions.get(o1), insertions.get(o2));
+                }
+            });
+            nodes.clear();
+            nodes.addAll(ordered);
+            reordered = false;
+        }
+
+        @Override
+        public boolean add(final EditableNode node) {
+            if (!nodes.add(node)) {
+                return false;
+            }
+            insertions.put(node, insertionCount++);
+            record(new Change() {
+                @Override
+                void undo() {
+                    nodes.remove(node);
+                    insertions.remove(node);
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!nodes.contains(o)) {
+                return false;
+            }
+            final EditableNode node = (EditableNode) o;
+            final Long insertion = insertions.remove(node);
+            nodes.remove(node);
+            record(new Change() {
+                @Override
+                void undo() {
+                    nodes.add(node);
+                    insertions.put(node, insertion);
+                    reordered = true;
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            for (EditableNode node : new ArrayList<>(nodes)) {
+                remove(node);
+            }
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return nodes.contains(o);
+        }
+
+        @Override
+        public Iterator<EditableNode> iterator() {
+            return Collections.unmodifiableSet(nodes).iterator();
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Log of changes made by CodeStructureModifyOperation together with its
+ * source graph. Any step can be reconstructed from it by StepReplayer, so
+ * the steps do not need to be stored as whole graphs.
+ *
+ * Text form has one line per delta: type, graph index and arguments
+ * separated by tabs. Tabs, line breaks and backslashes in values are
+ * escaped by backslash.
+ *
+ * @author JPEXS
+ */
+public class StepLog {
+
+    private static final String HEADER = "steplog\t1";
+    private static final String SOURCE = "source";
+
+    private final String source;
+    private final List<StepDelta> deltas = new ArrayList<>();
+    private int stepCount = 0;
+
+    /**
+     * Creates empty log.
+     *
+     * @param source Source DOT text
+     */
+    public StepLog(String source) {
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void add(StepDelta delta) {
+        deltas.add(delta);
+        if (delta.getType() == StepDelta.Type.STEP) {
+            stepCount++;
+        }
+    }
+
+    public List<StepDelta> getDeltas() {
+        return Collections.unmodifiableList(deltas);
+    }
+
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    public void write(Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(HEADER).append('\n');
+        sb.append(SOURCE).append('\t');
+        escape(sb, source);
+        sb.append('\n');
+        out.write(sb.toString());
+        for (StepDelta delta : deltas) {
+            sb.setLength(0);
+            sb.append(delta.getType().name()).append('\t').append(delta.getGraphIndex());
+            for (int i = 0; i < delta.getArgumentCount(); i++) {
+                sb.append('\t');
+                escape(sb, delta.getArgument(i));
+            }
+            sb.append('\n');
+            out.write(sb.toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads log written by write.
+     *
+     * @param in Input
+     * @return Log
+     * @throws IOException On read error or invalid format
+     */
+    public static StepLog read(Reader in) throws IOException {
+        BufferedReader br = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        if (!HEADER.equals(br.readLine())) {
+            throw new IOException("Not a step log");
+        }
+        List<String> sourceLine = split(br.readLine());
+        if (sourceLine.size() != 2 || !SOURCE.equals(sourceLine.get(0))) {
+            throw new IOException("Missing source of step log");
+        }
+        StepLog ret = new StepLog(sourceLine.get(1));
+        String line;
+        int lineNum = 2;
+        while ((line = br.readLine()) != null) {
+            lineNum++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            List<String> parts = split(line);
+            try {
+                StepDelta.Type type = StepDelta.Type.valueOf(parts.get(0));
+                int graphIndex = Integer.parseInt(parts.get(1));
+                List<String> arguments = parts.subList(2, parts.size());
+                ret.add(new StepDelta(type, graphIndex, arguments.toArray(new String[arguments.size()])));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+                throw new IOException("Invalid step log on line " + lineNum, ex);
+            }
+        }
+        return ret;
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private static List<String> split(String line) throws IOException {
+        if (line == null) {
+            throw new IOException("Unexpected end of step log");
+        }
+        List<String> ret = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                ret.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                i++;
+                switch (line.charAt(i)) {
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    default:
+                        sb.append(line.charAt(i));
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        ret.add(sb.toString());
+        return ret;
+    }
+}
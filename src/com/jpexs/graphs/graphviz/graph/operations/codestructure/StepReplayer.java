@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reconstructs steps of CodeStructureModifyOperation from StepLog. Only the
+ * current state is held in memory. Moving forward applies next deltas, their
+ * changes are journaled, so moving back undoes them.
+ *
+ * @author JPEXS
+ */
+public class StepReplayer {
+
+    private final StepLog log;
+    private final CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+    private final StructuredGraphFacade facade = new StructuredGraphFacade();
+    private List<DecomposedGraph> decomposedGraphs;
+    private List<CodeStructureModifyOperation.Executor> executors;
+    private int position;
+    private int currentStep;
+    private final StepJournal journal = new StepJournal();
+    /**
+     * Journal entries of applied deltas.
+     */
+    private final List<StepJournal.Entry> undoEntries = new ArrayList<>();
+
+    /**
+     * Creates replayer positioned before first step.
+     *
+     * @param log Log
+     * @throws IOException On read error
+     * @throws DotParseException When source of the log cannot be parsed
+     */
+    public StepReplayer(StepLog log) throws IOException, DotParseException {
+        this.log = log;
+        decomposedGraphs = facade.decomposeGraph(new StringReader(log.getSource()));
+        executors = new ArrayList<>();
+        for (int i = 0; i < decomposedGraphs.size(); i++) {
+            executors.add(null);
+        }
+        position = 0;
+        currentStep = -1;
+    }
+
+    public int getStepCount() {
+        return log.getStepCount();
+    }
+
+    /**
+     * Gets index of last replayed step.
+     *
+     * @return Step index, -1 when no step was replayed yet
+     */
+    public int getCurrentStep() {
+        return currentStep;
+    }
+
+    private void apply(StepDelta delta) {
+        final int graphIndex = delta.getGraphIndex();
+        journal.begin();
+        if (delta.getType() == StepDelta.Type.BEGIN) {
+            final CodeStructureModifyOperation.Executor previous = executors.get(graphIndex);
+            CodeStructureModifyOperation.Executor created = operation.createExecutor(decomposedGraphs, graphIndex);
+            created.setJournal(journal);
+            executors.set(graphIndex, created);
+            journal.record(new StepJournal.Change() {
+                @Override
+                void undo() {
+                    executors.set(graphIndex, previous);
+                }
+            });
+        }
+        CodeStructureModifyOperation.Executor executor = executors.get(graphIndex);
+        if (executor == null) {
+            journal.end();
+            throw new IllegalArgumentException("Delta for graph " + graphIndex + " before its begin");
+        }
+        executor.replay(delta);
+        undoEntries.add(journal.end());
+        position++;
+        if (delta.getType() == StepDelta.Type.STEP) {
+            currentStep++;
+        }
+    }
+
+    private void undo() {
+        position--;
+        journal.undo(undoEntries.remove(position));
+        if (log.getDeltas().get(position).getType() == StepDelta.Type.STEP) {
+            currentStep--;
+        }
+    }
+
+    /**
+     * Gets graph as it was passed to step handler.
+     *
+     * @param index Step index
+     * @return DOT text of the step
+     */
+    public String getStep(int index) {
+        if (index < 0 || index >= getStepCount()) {
+            throw new IndexOutOfBoundsException("Step " + index + " of " + getStepCount());
+        }
+        List<StepDelta> deltas = log.getDeltas();
+        boolean undone = false;
+        //back to the step delta, also after getResult
+        while (currentStep > index || (currentStep == index && deltas.get(position - 1).getType() != StepDelta.Type.STEP)) {
+            undo();
+            undone = true;
+        }
+        if (undone) {
+            journal.finishUndo();
+        }
+        while (currentStep < index) {
+            apply(deltas.get(position));
+        }
+        return toDot();
+    }
+
+    /**
+     * Replays all deltas.
+     *
+     * @return DOT text of the result, same as returned by execute
+     */
+    public String getResult() {
+        List<StepDelta> deltas = log.getDeltas();
+        while (position < deltas.size()) {
+            apply(deltas.get(position));
+        }
+        return toDot();
+    }
+
+    private String toDot() {
+        return facade.graphToString(facade.composeGraph(decomposedGraphs));
+    }
+}
@@ -19,11 +19,13 @@ package com.jpexs.graphs.graphviz.graph.operations.codestructure;
 import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
 import com.jpexs.graphs.graphviz.dot.parser.DotParser;
 import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import com.jpexs.graphs.graphviz.graph.DotWriter;
 import com.jpexs.graphs.graphviz.graph.Graph;
 import com.jpexs.graphs.graphviz.graph.NodeId;
 import com.jpexs.graphs.graphviz.graph.NodeIdToAttributes;
 import com.jpexs.graphs.codestructure.BasicEditableNode;
 import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.EdgeMap;
 import com.jpexs.graphs.codestructure.nodes.EditableNode;
 import com.jpexs.graphs.codestructure.nodes.JoinedNode;
 import com.jpexs.graphs.codestructure.nodes.Node;
@@ -32,7 +34,10 @@ import com.jpexs.graphs.graphviz.dot.parser.DotId;
 import com.jpexs.graphs.graphviz.graph.GraphBase;
 import com.jpexs.graphs.graphviz.graph.SubGraph;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -51,13 +56,55 @@ public class StructuredGraphFacade {
     public static final String IGNORE_ATTRIBUTES_ATTRIBUTE = "_ignoreattrib";
 
     public String recompose(String text) {
-        Graph g = graphFromString(text);
-        List<DecomposedGraph> graphs = decomposeGraph(g);
+        List<DecomposedGraph> graphs = decomposedGraphsFromString(text);
+        if (graphs == null) {
+            return null;
+        }
         String ret = graphToString(composeGraph(graphs));
         return ret;
 
     }
 
+    public List<DecomposedGraph> decomposedGraphsFromString(String text) {
+        try {
+            return decomposeGraph(new StringReader(text));
+        } catch (IOException ex) {
+            return null;
+        } catch (DotParseException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Parses DOT and decomposes it without building Graph. Result is the same
+     * as decomposeGraph of the parsed Graph.
+     *
+     * @param in Input
+     * @return Main graph and then all subgraphs
+     * @throws IOException On read error
+     * @throws DotParseException On syntax error
+     */
+    public List<DecomposedGraph> decomposeGraph(Reader in) throws IOException, DotParseException {
+        DecomposedGraphBuilder builder = new DecomposedGraphBuilder();
+        new DotParser().parse(in, builder);
+        return builder.getGraphs();
+    }
+
+    /**
+     * Parses UTF-8 DOT file through memory mapping and decomposes it.
+     *
+     * @param file File
+     * @return Main graph and then all subgraphs
+     * @throws IOException On read error
+     * @throws DotParseException On syntax error
+     */
+    public List<DecomposedGraph> decomposeGraph(Path file) throws IOException, DotParseException {
+        DecomposedGraphBuilder builder = new DecomposedGraphBuilder();
+        new DotParser().parse(file, builder);
+        return builder.getGraphs();
+    }
+
     public Graph graphFromString(String text) {
         try {
             DotParser parser = new DotParser();
@@ -71,15 +118,31 @@ public class StructuredGraphFacade {
         }
     }
 
-    private void populateEdges(EditableNode currentNode, Set<EditableNode> visited, Set<Edge<EditableNode>> orderedEdges) {
-        if (visited.contains(currentNode)) {
+    private void populateEdges(EditableNode startNode, Set<EditableNode> visited, Set<Edge<EditableNode>> orderedEdges) {
+        if (!visited.add(startNode)) {
             return;
         }
-        visited.add(currentNode);
-        for (com.jpexs.graphs.codestructure.nodes.EditableNode next : currentNode.getNext()) {
-            Edge<EditableNode> e = new Edge<>(currentNode, next);
-            orderedEdges.add(e);
-            populateEdges(next, visited, orderedEdges);
+        //depth first walk with explicit stack, same order as recursive walk
+        List<EditableNode> nodeStack = new ArrayList<>();
+        List<Integer> indexStack = new ArrayList<>();
+        nodeStack.add(startNode);
+        indexStack.add(0);
+        while (!nodeStack.isEmpty()) {
+            int top = nodeStack.size() - 1;
+            EditableNode currentNode = nodeStack.get(top);
+            int index = indexStack.get(top);
+            if (index >= currentNode.getNextCount()) {
+                nodeStack.remove(top);
+                indexStack.remove(top);
+                continue;
+            }
+            indexStack.set(top, index + 1);
+            EditableNode next = currentNode.getNext(index);
+            orderedEdges.add(new Edge<>(currentNode, next));
+            if (visited.add(next)) {
+                nodeStack.add(next);
+                indexStack.add(0);
+            }
         }
     }
 
@@ -149,11 +212,12 @@ public class StructuredGraphFacade {
             NodeId fromId = new NodeId(nodeToDotId(edge.from));
             NodeId toId = new NodeId(nodeToDotId(edge.to));
             com.jpexs.graphs.graphviz.graph.Edge newEdge = new com.jpexs.graphs.graphviz.graph.Edge(true, fromId, toId);
-            if (edgeAttributesMap.containsKey(edge)) {
-                newEdge.attributes = edgeAttributesMap.get(edge).clone();
+            AttributesMap edgeAttributes = edgeAttributesMap.get(edge);
+            if (edgeAttributes != null) {
+                newEdge.attributes = edgeAttributes.clone();
             }
-            if (edgeCompassesMap.containsKey(edge)) {
-                String compasses = edgeCompassesMap.get(edge);
+            String compasses = edgeCompassesMap.get(edge);
+            if (compasses != null) {
                 String compassArr[] = compasses.split(":");
                 if (compassArr.length > 0 && !compassArr[0].isEmpty()) {
                     fromId.compassPt = compassArr[0];
@@ -177,6 +241,20 @@ public class StructuredGraphFacade {
         return ret;
     }
 
+    /**
+     * Writes graph in DOT format without building its text in memory. Same
+     * text as graphToString.
+     *
+     * @param g Graph
+     * @param out Output, it is flushed but not closed
+     * @throws IOException On write error
+     */
+    public void writeGraph(Graph g, Writer out) throws IOException {
+        DotWriter writer = new DotWriter(out);
+        writer.write(g);
+        writer.flush();
+    }
+
     public List<DecomposedGraph> decomposeGraph(Graph fullGraph) {
         List<GraphBase> allGraphs = new ArrayList<>();
         allGraphs.add(fullGraph);
@@ -185,8 +263,8 @@ public class StructuredGraphFacade {
 
         for (GraphBase gb : allGraphs) {
             Map<Node, AttributesMap> nodeAttributesMap = new LinkedHashMap<>();
-            Map<Edge<EditableNode>, AttributesMap> edgeAttributesMap = new LinkedHashMap<>();
-            Map<Edge<EditableNode>, String> edgeCompassesMap = new LinkedHashMap<>();
+            EdgeMap<EditableNode, AttributesMap> edgeAttributesMap = new EdgeMap<>();
+            EdgeMap<EditableNode, String> edgeCompassesMap = new EdgeMap<>();
 
             Set<EditableNode> orderedNodeSet = new LinkedHashSet<>();
             Map<String, EditableNode> nameToNodeMap = new LinkedHashMap<>();
@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.tool;
+
+import com.jpexs.graphs.codestructure.CodeStructure;
+import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.Region;
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.Node;
+import com.jpexs.graphs.codestructure.operations.DetectionBudget;
+import com.jpexs.graphs.codestructure.operations.DetectionStatus;
+import com.jpexs.graphs.graphviz.dot.parser.DotBatchParser;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import com.jpexs.graphs.graphviz.graph.DotWriter;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.CodeStructureBatchProcessor;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.CodeStructureModifyOperation;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.DecomposedGraph;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.StructuredGraphFacade;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Headless structure detection of DOT files. Runs CodeStructureModifyOperation
+ * on files or standard input, writes resulting DOT and optionally JSON
+ * summary of detected structures to output directory.
+ *
+ * @author JPEXS
+ */
+public class BatchDetectionTool {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_PARTIAL = 3;
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: java -cp graphs.jar " + BatchDetectionTool.class.getName() + " [options] [file | directory | -]...");
+        out.println("Detects code structures of DOT graphs. Directories are searched for .gv and .dot files.");
+        out.println("Without input files or with -, standard input is read and result is written to standard output.");
+        out.println("Options:");
+        out.println("  -o <dir>            output directory, required for files");
+        out.println("  -t <count>          number of worker threads, default is number of processors");
+        out.println("  --json              write JSON summary of loops, gotos and endifs as <name>.json");
+        out.println("  --pretty            write DOT with one statement per line");
+        out.println("  --max-steps <n>     detection step limit for each graph");
+        out.println("  --max-time <ms>     detection time limit for each graph");
+        out.println("  -h, --help          print this help");
+        out.println("Exit code is 0 on success, 1 when some file failed, 2 on usage error and 3 when detection");
+        out.println("of some file was stopped by --max-steps or --max-time.");
+    }
+
+    /**
+     * Result of one file.
+     */
+    private static class FileReport {
+
+        long nanos;
+        Exception error;
+        DetectionStatus status = DetectionStatus.COMPLETE;
+    }
+
+    /**
+     * Gets status of the first graph whose detection did not complete.
+     *
+     * @param decomposedGraphs Graphs after detection
+     * @return Status
+     */
+    private static DetectionStatus getStatus(List<DecomposedGraph> decomposedGraphs) {
+        for (DecomposedGraph dg : decomposedGraphs) {
+            CodeStructure structure = dg.getStructure();
+            if (structure != null && structure.getStatus() != DetectionStatus.COMPLETE) {
+                return structure.getStatus();
+            }
+        }
+        return DetectionStatus.COMPLETE;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the tool.
+     *
+     * @param args Arguments
+     * @param in Standard input
+     * @param out Standard output
+     * @param err Error output, also used for reports when DOT goes to
+     * standard output
+     * @return Exit code, 0 on success, 1 when some file failed, 2 on usage
+     * error, 3 when detection of some file was stopped by budget
+     */
+    public static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        Path outputDir = null;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        boolean pretty = false;
+        DetectionBudget budget = null;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-h":
+                    case "--help":
+                        printUsage(out);
+                        return EXIT_OK;
+                    case "-o":
+                        outputDir = Paths.get(argValue(args, ++i, arg));
+                        break;
+                    case "-t":
+                        threadCount = Integer.parseInt(argValue(args, ++i, arg));
+                        if (threadCount < 1) {
+                            throw new IllegalArgumentException("Thread count must be positive");
+                        }
+                        break;
+                    case "--json":
+                        json = true;
+                        break;
+                    case "--pretty":
+                        pretty = true;
+                        break;
+                    case "--max-steps":
+                        if (budget == null) {
+                            budget = new DetectionBudget();
+                        }
+                        budget.setMaxSteps(Long.parseLong(argValue(args, ++i, arg)));
+                        break;
+                    case "--max-time":
+                        if (budget == null) {
+                            budget = new DetectionBudget();
+                        }
+                        budget.setMaxTime(Long.parseLong(argValue(args, ++i, arg)));
+                        break;
+                    default:
+                        if (arg.startsWith("-") && !arg.equals("-")) {
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                        }
+                        inputs.add(arg);
+                        break;
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            //NumberFormatException too
+            err.println("ERROR: " + ex.getMessage());
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        operation.setBudget(budget);
+
+        if (inputs.isEmpty() || (inputs.size() == 1 && inputs.get(0).equals("-"))) {
+            if (json && outputDir == null) {
+                err.println("ERROR: --json requires output directory");
+                return EXIT_USAGE;
+            }
+            return runStdin(operation, in, out, err, outputDir, json, pretty);
+        }
+        if (outputDir == null) {
+            err.println("ERROR: output directory is required for input files");
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+
+        List<Path> files = new ArrayList<>();
+        try {
+            for (String input : inputs) {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    if (Files.isDirectory(outputDir) && Files.isSameFile(path, outputDir)) {
+                        err.println("ERROR: output directory must differ from input directory " + input);
+                        return EXIT_USAGE;
+                    }
+                    files.addAll(DotBatchParser.listFiles(path));
+                } else if (Files.isRegularFile(path)) {
+                    files.add(path);
+                } else {
+                    err.println("ERROR: file not found: " + input);
+                    return EXIT_USAGE;
+                }
+            }
+        } catch (IOException ex) {
+            err.println("ERROR: " + ex);
+            return EXIT_FAILED;
+        }
+        Map<Path, DetectionStatus> statuses = new ConcurrentHashMap<>();
+        CodeStructureBatchProcessor processor = createProcessor(operation, outputDir, json, statuses);
+        processor.setPretty(pretty);
+        try {
+            processor.checkOutputFiles(files);
+            Files.createDirectories(outputDir);
+        } catch (IllegalArgumentException ex) {
+            err.println("ERROR: " + ex.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException ex) {
+            err.println("ERROR: " + ex);
+            return EXIT_FAILED;
+        }
+        return runFiles(processor, statuses, files, out, threadCount);
+    }
+
+    private static String argValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + option);
+        }
+        return args[index];
+    }
+
+    private static int runStdin(CodeStructureModifyOperation operation, InputStream in, PrintStream out, PrintStream err, Path outputDir, boolean json, boolean pretty) {
+        StructuredGraphFacade facade = new StructuredGraphFacade();
+        long start = System.nanoTime();
+        DetectionStatus status;
+        try {
+            List<DecomposedGraph> decomposedGraphs = facade.decomposeGraph(new InputStreamReader(in, StandardCharsets.UTF_8));
+            operation.executeOnDecomposedGraphs(decomposedGraphs, null);
+            OutputStream os = outputDir == null ? out : Files.newOutputStream(outputDir.resolve("stdin.gv"));
+            try {
+                DotWriter writer = new DotWriter(os);
+                writer.setPretty(pretty);
+                writer.write(facade.composeGraph(decomposedGraphs));
+                writer.flush();
+                if (os == out && !pretty) {
+                    out.println();
+                }
+            } finally {
+                if (os != out) {
+                    os.close();
+                }
+            }
+            if (json) {
+                writeSummary(outputDir.resolve("stdin.json"), "-", decomposedGraphs);
+            }
+            status = getStatus(decomposedGraphs);
+        } catch (IOException | DotParseException | RuntimeException ex) {
+            err.println("ERROR: stdin: " + ex);
+            return EXIT_FAILED;
+        }
+        if (status != DetectionStatus.COMPLETE) {
+            err.println("WARNING: stdin: detection stopped: " + status);
+        }
+        err.println(String.format("stdin: %d ms", (System.nanoTime() - start) / 1000000));
+        return status == DetectionStatus.COMPLETE ? EXIT_OK : EXIT_PARTIAL;
+    }
+
+    private static CodeStructureBatchProcessor createProcessor(CodeStructureModifyOperation operation, Path outputDir, final boolean json, final Map<Path, DetectionStatus> statuses) {
+        return new CodeStructureBatchProcessor(operation, outputDir) {
+            @Override
+            protected List<Path> getOutputFiles(Path file) {
+                List<Path> ret = super.getOutputFiles(file);
+                if (json) {
+                    ret.add(summaryFile(getOutputFile(file)));
+                }
+                return ret;
+            }
+
+            @Override
+            protected void processed(Path file, List<DecomposedGraph> decomposedGraphs, Path outputFile) throws IOException {
+                statuses.put(file, getStatus(decomposedGraphs));
+                if (json) {
+                    writeSummary(summaryFile(outputFile), file.toString(), decomposedGraphs);
+                }
+            }
+        };
+    }
+
+    private static int runFiles(final CodeStructureBatchProcessor processor, final Map<Path, DetectionStatus> statuses, List<Path> files, final PrintStream out, int threadCount) {
+        DotBatchParser batch = new DotBatchParser();
+        batch.setThreadCount(threadCount);
+        final int[] failed = new int[]{0};
+        final int[] partial = new int[]{0};
+        final long[] totalBytes = new long[]{0};
+        final long[] totalNanos = new long[]{0};
+        long start = System.nanoTime();
+        try {
+            batch.process(files, new DotBatchParser.FileProcessor<FileReport>() {
+                @Override
+                public FileReport process(Path file) throws IOException, DotParseException {
+                    FileReport report = new FileReport();
+                    long fileStart = System.nanoTime();
+                    try {
+                        processor.process(file);
+                    } catch (IOException | DotParseException | RuntimeException ex) {
+                        report.error = ex;
+                    }
+                    DetectionStatus status = statuses.remove(file);
+                    if (status != null) {
+                        report.status = status;
+                    }
+                    report.nanos = System.nanoTime() - fileStart;
+                    return report;
+                }
+            }, new DotBatchParser.ResultHandler<FileReport>() {
+                @Override
+                public void result(DotBatchParser.Result<FileReport> result) {
+                    FileReport report = result.getValue();
+                    totalNanos[0] += report.nanos;
+                    try {
+                        totalBytes[0] += Files.size(result.getFile());
+                    } catch (IOException ex) {
+                        //size is only for the statistics
+                    }
+                    if (report.error == null && report.status == DetectionStatus.COMPLETE) {
+                        out.println(String.format("OK     %8d ms  %s", report.nanos / 1000000, result.getFile()));
+                    } else if (report.error == null) {
+                        partial[0]++;
+                        out.println(String.format("PARTIAL%8d ms  %s: detection stopped: %s", report.nanos / 1000000, result.getFile(), report.status));
+                    } else {
+                        failed[0]++;
+                        out.println(String.format("ERROR  %8d ms  %s: %s", report.nanos / 1000000, result.getFile(), report.error));
+                    }
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            out.println("Interrupted");
+            return EXIT_FAILED;
+        }
+        long elapsed = System.nanoTime() - start;
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        out.println(String.format("%d files, %d failed, %d partial, %d threads, %d ms (%d ms in workers), %.1f files/s, %.2f MB/s",
+                files.size(), failed[0], partial[0], threadCount, elapsed / 1000000, totalNanos[0] / 1000000,
+                files.size() / seconds, totalBytes[0] / 1048576.0 / seconds));
+        if (failed[0] > 0) {
+            return EXIT_FAILED;
+        }
+        return partial[0] > 0 ? EXIT_PARTIAL : EXIT_OK;
+    }
+
+    private static Path summaryFile(Path outputFile) {
+        String name = outputFile.getFileName().toString();
+        int dotPos = name.lastIndexOf('.');
+        if (dotPos > 0) {
+            name = name.substring(0, dotPos);
+        }
+        return outputFile.resolveSibling(name + ".json");
+    }
+
+    private static void writeSummary(Path summaryFile, String source, List<DecomposedGraph> decomposedGraphs) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"file\": ");
+        jsonString(sb, source);
+        sb.append(",\n  \"graphs\": [");
+        for (int i = 0; i < decomposedGraphs.size(); i++) {
+            DecomposedGraph dg = decomposedGraphs.get(i);
+            CodeStructure structure = dg.getStructure();
+            sb.append(i > 0 ? ",\n" : "\n");
+            sb.append("    {\"id\": ");
+            if (dg.getId() == null) {
+                sb.append("null");
+            } else {
+                jsonString(sb, dg.getId().toString());
+            }
+            if (structure == null) {
+                sb.append("}");
+                continue;
+            }
+            sb.append(", \"status\": ");
+            jsonString(sb, structure.getStatus().name());
+            sb.append(", \"nodeCount\": ").append(structure.getNodes().size());
+
+            List<Node> loops = new ArrayList<>();
+            if (structure.getRegionTree() != null) {
+                collectLoops(structure.getRegionTree(), loops);
+            }
+            sb.append(",\n     \"loops\": ");
+            jsonNodes(sb, loops);
+            sb.append(",\n     \"endifs\": ");
+            jsonNodes(sb, new ArrayList<Node>(structure.getEndIfNodes()));
+            sb.append(",\n     \"gotos\": ");
+            jsonEdges(sb, structure.getGotoEdges());
+            sb.append(",\n     \"backEdges\": ");
+            jsonEdges(sb, structure.getBackEdges());
+            sb.append(",\n     \"exitIfs\": ");
+            jsonEdges(sb, structure.getExitIfEdges());
+            sb.append(",\n     \"loopContinues\": ");
+            jsonNodes(sb, structure.getLoopContinues());
+            sb.append("}");
+        }
+        sb.append("\n  ]\n}\n");
+        try (Writer w = Files.newBufferedWriter(summaryFile, StandardCharsets.UTF_8)) {
+            w.write(sb.toString());
+        }
+    }
+
+    private static void collectLoops(Region<EditableNode> region, List<Node> loops) {
+        if (region.getType() == Region.Type.LOOP && region.getNode() != null) {
+            loops.add(region.getNode());
+        }
+        for (Region<EditableNode> child : region.getChildren()) {
+            collectLoops(child, loops);
+        }
+    }
+
+    private static void jsonNodes(StringBuilder sb, List<? extends Node> nodes) {
+        sb.append("[");
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            jsonString(sb, nodes.get(i).getId());
+        }
+        sb.append("]");
+    }
+
+    private static void jsonEdges(StringBuilder sb, List<Edge<EditableNode>> edges) {
+        sb.append("[");
+        for (int i = 0; i < edges.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Edge<EditableNode> edge = edges.get(i);
+            sb.append("[");
+            jsonString(sb, edge.from.getId());
+            sb.append(", ");
+            jsonString(sb, edge.to.getId());
+            sb.append("]");
+        }
+        sb.append("]");
+    }
+
+    private static void jsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -140,6 +140,9 @@ public class GraphTool {
     static StepHandler handlerDoStep = new StepHandler() {
         @Override
         public void step(String currentGraph) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
             try {
                 setGraphImage(textToImage(currentGraph));
             } catch (IOException ex) {
@@ -148,8 +151,8 @@ public class GraphTool {
             try {
                 Thread.sleep(500);
             } catch (InterruptedException ex) {
-                Logger.getLogger(GraphTool.class.getName()).log(Level.SEVERE, null, ex);
-                //ignore
+                //cancelled, keep the flag for detection to stop
+                Thread.currentThread().interrupt();
             }
         }
     };
@@ -349,6 +352,9 @@ public class GraphTool {
                         try {
                             setOperation(new CodeStructureModifyOperation());
                             String newText = op.execute(runText, handlerDoStep);
+                            if (isCancelled()) {
+                                return null;
+                            }
                             try {
                                 setGraphImage(textToImage(newText));
                             } catch (IOException ex) {
@@ -380,6 +386,9 @@ public class GraphTool {
                         try {
                             setOperation(new CodeStructureModifyOperation());
                             String newText = op.execute(runText, null);
+                            if (isCancelled()) {
+                                return null;
+                            }
                             try {
                                 setGraphImage(textToImage(newText));
                             } catch (IOException ex) {
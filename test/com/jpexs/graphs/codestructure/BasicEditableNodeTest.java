@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class BasicEditableNodeTest {
+
+    @Test
+    public void testIndexedAccess() {
+        BasicEditableNode a = new BasicEditableNode("a");
+        BasicEditableNode b = new BasicEditableNode("b");
+        BasicEditableNode c = new BasicEditableNode("c");
+        a.addNext(b);
+        a.addNext(c);
+        b.addPrev(a);
+        c.addPrev(a);
+        Assert.assertEquals(a.getNextCount(), 2);
+        Assert.assertSame(a.getNext(0), b);
+        Assert.assertSame(a.getNext(1), c);
+        Assert.assertEquals(a.getPrevCount(), 0);
+        Assert.assertEquals(b.getPrevCount(), 1);
+        Assert.assertSame(b.getPrev(0), a);
+    }
+
+    @Test
+    public void testViewsAreLive() {
+        BasicEditableNode a = new BasicEditableNode("a");
+        BasicEditableNode b = new BasicEditableNode("b");
+        BasicEditableNode c = new BasicEditableNode("c");
+        List<? extends EditableNode> next = a.getNext();
+        Assert.assertTrue(next.isEmpty());
+        a.addNext(b);
+        a.addNext(0, c);
+        Assert.assertEquals(next.size(), 2);
+        Assert.assertSame(next.get(0), c);
+        a.setNext(0, b);
+        a.removeNext(b);
+        Assert.assertEquals(next.size(), 1);
+        Assert.assertSame(a.getNext(), next);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testNextViewIsReadOnly() {
+        BasicEditableNode a = new BasicEditableNode("a");
+        a.addNext(new BasicEditableNode("b"));
+        a.getNext().remove(0);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testPrevViewIsReadOnly() {
+        BasicEditableNode a = new BasicEditableNode("a");
+        a.getPrev().clear();
+    }
+}
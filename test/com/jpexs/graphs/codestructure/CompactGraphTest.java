@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.Node;
+import com.jpexs.graphs.codestructure.operations.CodeStructureDetector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CompactGraphTest {
+
+    private static SyntheticGraphGenerator createGenerator(long seed) {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(seed);
+        generator.setStatementCount(300);
+        generator.setIfCount(100);
+        generator.setWhileCount(30);
+        generator.setDoWhileCount(30);
+        generator.setForCount(30);
+        generator.setContinueCount(30);
+        return generator;
+    }
+
+    @Test
+    public void testFromNodes() {
+        BasicEditableNode a = new BasicEditableNode("a");
+        BasicEditableNode b = new BasicEditableNode("b");
+        BasicEditableNode c = new BasicEditableNode("c");
+        BasicEditableNode unreachable = new BasicEditableNode("x");
+        a.addNext(c);
+        c.addPrev(a);
+        a.addNext(b);
+        b.addPrev(a);
+        b.addNext(c);
+        c.addPrev(b);
+        unreachable.addNext(c);
+        c.addPrev(unreachable);
+
+        CompactGraph graph = new CompactGraph(Arrays.asList(a));
+        Assert.assertEquals(graph.getNodeCount(), 3);
+        Assert.assertEquals(graph.getEdgeCount(), 3);
+        Assert.assertEquals(graph.getId(0), "a");
+        Assert.assertEquals(graph.getId(1), "c");
+        Assert.assertEquals(graph.getId(2), "b");
+        Assert.assertEquals(graph.getNextCount(0), 2);
+        Assert.assertEquals(graph.getNext(0, 0), 1);
+        Assert.assertEquals(graph.getNext(0, 1), 2);
+        Assert.assertEquals(graph.getPrevCount(1), 2);
+        Assert.assertEquals(graph.getPrev(1, 0), 0);
+        Assert.assertEquals(graph.getPrev(1, 1), 2);
+        Assert.assertEquals(graph.getHeadCount(), 1);
+        Assert.assertEquals(graph.getHead(0), 0);
+        Assert.assertEquals(graph.indexOf("b"), 2);
+        Assert.assertEquals(graph.indexOf("x"), -1);
+    }
+
+    @Test
+    public void testFromArrays() {
+        CompactGraph graph = new CompactGraph(new String[]{"a", "b", "c"}, new int[]{0, 1, 0}, new int[]{2, 2, 1}, new int[]{0});
+        Assert.assertEquals(graph.getNextCount(0), 2);
+        Assert.assertEquals(graph.getNext(0, 0), 2);
+        Assert.assertEquals(graph.getNext(0, 1), 1);
+        Assert.assertEquals(graph.getNextCount(2), 0);
+        Assert.assertEquals(graph.getPrevCount(2), 2);
+        Assert.assertEquals(graph.getPrev(2, 0), 0);
+        Assert.assertEquals(graph.getPrev(2, 1), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidEdge() {
+        new CompactGraph(new String[]{"a", "b"}, new int[]{0}, new int[]{2}, new int[]{0});
+    }
+
+    @Test
+    public void testNodeAdapter() {
+        CompactGraph graph = new CompactGraph(new String[]{"a", "b", "c"}, new int[]{0, 0, 1}, new int[]{1, 2, 2}, new int[]{0});
+        CompactNode a = graph.getNode(0);
+        Assert.assertSame(graph.getNode(0), a);
+        Assert.assertSame(graph.getHeadNodes().get(0), a);
+        Assert.assertEquals(a.getId(), "a");
+        Assert.assertEquals(a.getNext().toString(), "[\"b\", \"c\"]");
+        Assert.assertSame(a.getNext(1), graph.getNode(2));
+        Assert.assertEquals(graph.getNode(2).getPrev().toString(), "[\"a\", \"b\"]");
+    }
+
+    @Test
+    public void testGeneratedGraphSameAsNodes() {
+        SyntheticGraphGenerator generator = createGenerator(1);
+        EditableNode start = generator.generate();
+        CompactGraph generated = generator.generateCompact();
+        CompactGraph fromNodes = new CompactGraph(Arrays.asList(start));
+        Assert.assertEquals(fromNodes.getNodeCount(), generated.getNodeCount());
+        Assert.assertEquals(fromNodes.getEdgeCount(), generated.getEdgeCount());
+        for (int i = 0; i < fromNodes.getNodeCount(); i++) {
+            CompactNode node = fromNodes.getNode(i);
+            CompactNode other = generated.getNode(generated.indexOf(node.getId()));
+            Assert.assertEquals(other.getNext().toString(), node.getNext().toString());
+            Assert.assertEquals(other.getPrev().toString(), node.getPrev().toString());
+        }
+    }
+
+    @Test
+    public void testLoopsSameAsNodes() {
+        SyntheticGraphGenerator generator = createGenerator(2);
+        EditableNode start = generator.generate();
+        CompactGraph graph = generator.generateCompact();
+        LoopNestingForest<EditableNode> forest = new LoopNestingForest<>(Arrays.asList(start));
+        LoopNestingForest<CompactNode> compactForest = new LoopNestingForest<>(graph.getHeadNodes());
+        Assert.assertEquals(compactForest.getLoops().size(), forest.getLoops().size());
+        for (int i = 0; i < forest.getLoops().size(); i++) {
+            Loop<EditableNode> loop = forest.getLoops().get(i);
+            Loop<CompactNode> compactLoop = compactForest.getLoops().get(i);
+            Assert.assertEquals(compactLoop.getHeader().getId(), loop.getHeader().getId());
+            Assert.assertEquals(compactLoop.getNodes().toString(), loop.getNodes().toString());
+            Assert.assertEquals(compactLoop.getBackEdges().toString(), loop.getBackEdges().toString());
+            Assert.assertEquals(compactLoop.getExitEdges().toString(), loop.getExitEdges().toString());
+        }
+        Assert.assertTrue(compactForest.contains(graph.getNode(0)));
+        Assert.assertFalse(compactForest.contains(new CompactGraph(Arrays.asList(start)).getNode(0)));
+    }
+
+    @Test
+    public void testDetectSameAsNodes() {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(3);
+        generator.setStatementCount(300);
+        generator.setWhileCount(30);
+        generator.setDoWhileCount(30);
+        generator.setForCount(30);
+        EditableNode start = generator.generate();
+        CompactGraph graph = generator.generateCompact();
+
+        List<Node> loopContinues = new ArrayList<>();
+        List<Edge<EditableNode>> gotoEdges = new ArrayList<>();
+        List<Edge<EditableNode>> backEdges = new ArrayList<>();
+        List<Edge<EditableNode>> exitIfEdges = new ArrayList<>();
+        new CodeStructureDetector<EditableNode>().detect(start, loopContinues, gotoEdges, backEdges, exitIfEdges);
+
+        List<Node> compactLoopContinues = new ArrayList<>();
+        List<Edge<CompactNode>> compactGotoEdges = new ArrayList<>();
+        List<Edge<CompactNode>> compactBackEdges = new ArrayList<>();
+        List<Edge<CompactNode>> compactExitIfEdges = new ArrayList<>();
+        new CodeStructureDetector<CompactNode>().detect(graph.getNode(0), compactLoopContinues, compactGotoEdges, compactBackEdges, compactExitIfEdges);
+
+        Assert.assertEquals(compactLoopContinues.toString(), loopContinues.toString());
+        Assert.assertEquals(compactGotoEdges.toString(), gotoEdges.toString());
+        Assert.assertEquals(compactBackEdges.toString(), backEdges.toString());
+        Assert.assertEquals(compactExitIfEdges.toString(), exitIfEdges.toString());
+        Assert.assertFalse(backEdges.isEmpty());
+    }
+}
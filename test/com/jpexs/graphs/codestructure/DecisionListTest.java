@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DecisionListTest {
+
+    private final EditableNode a = new BasicEditableNode("a");
+    private final EditableNode b = new BasicEditableNode("b");
+    private final EditableNode c = new BasicEditableNode("c");
+
+    @Test
+    public void testSharedPrefix() {
+        DecisionList<EditableNode> base = new DecisionList<>();
+        base.add(new Decision<>(a, 0));
+        base.add(new Decision<>(b, 1));
+        DecisionList<EditableNode> left = base.append(new Decision<>(c, 0));
+        DecisionList<EditableNode> right = base.append(new Decision<>(c, 1));
+        Assert.assertEquals(base.size(), 2);
+        Assert.assertEquals(left.size(), 3);
+        Assert.assertEquals(left.toString(), "[\"a\"|0, \"b\"|1, \"c\"|0]");
+        Assert.assertTrue(left.ifNodesEquals(right));
+        Assert.assertNotEquals(left, right);
+        Assert.assertEquals(left.withoutLast(), base);
+        Assert.assertEquals(left.withoutLast().hashCode(), base.hashCode());
+        Assert.assertEquals(left.prefix(1), Arrays.asList(new Decision<>(a, 0)));
+        Assert.assertEquals(left.prefix(0).size(), 0);
+        Assert.assertTrue(right.containsDecisionNode(c));
+        Assert.assertTrue(right.containsOneOfNodes(Arrays.asList(b)));
+        Assert.assertFalse(base.containsDecisionNode(c));
+    }
+
+    @Test
+    public void testListContract() {
+        List<Decision<EditableNode>> plain = new ArrayList<>();
+        plain.add(new Decision<>(a, 0));
+        plain.add(new Decision<>(b, 1));
+        DecisionList<EditableNode> list = new DecisionList<>(plain);
+        Assert.assertEquals(list, plain);
+        Assert.assertEquals(list.hashCode(), plain.hashCode());
+        DecisionList<EditableNode> copy = new DecisionList<>(list);
+        copy.remove(copy.size() - 1);
+        Assert.assertEquals(list.size(), 2);
+        Assert.assertEquals(copy.size(), 1);
+        copy.add(0, new Decision<>(c, 0));
+        Assert.assertEquals(copy.toString(), "[\"c\"|0, \"a\"|0]");
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testLocked() {
+        DecisionList<EditableNode> list = new DecisionList<>();
+        list.add(new Decision<>(a, 0));
+        list.lockForChanges().add(new Decision<>(b, 0));
+    }
+}
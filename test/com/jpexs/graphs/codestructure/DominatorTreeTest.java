@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DominatorTreeTest {
+
+    private Map<String, EditableNode> graph(String... edges) {
+        Map<String, EditableNode> ret = new LinkedHashMap<>();
+        for (String edge : edges) {
+            String[] parts = edge.split("->");
+            if (!ret.containsKey(parts[0])) {
+                ret.put(parts[0], new BasicEditableNode(parts[0]));
+            }
+            if (!ret.containsKey(parts[1])) {
+                ret.put(parts[1], new BasicEditableNode(parts[1]));
+            }
+            ret.get(parts[0]).addNext(ret.get(parts[1]));
+            ret.get(parts[1]).addPrev(ret.get(parts[0]));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testIfElse() {
+        Map<String, EditableNode> g = graph("start->if", "if->a", "if->b", "a->end", "b->end");
+        DominatorTree<EditableNode> dom = new DominatorTree<>(Arrays.asList(g.get("start")));
+        Assert.assertNull(dom.getImmediateDominator(g.get("start")));
+        Assert.assertEquals(dom.getImmediateDominator(g.get("if")), g.get("start"));
+        Assert.assertEquals(dom.getImmediateDominator(g.get("a")), g.get("if"));
+        Assert.assertEquals(dom.getImmediateDominator(g.get("end")), g.get("if"));
+        Assert.assertTrue(dom.dominates(g.get("start"), g.get("end")));
+        Assert.assertFalse(dom.dominates(g.get("a"), g.get("end")));
+        Assert.assertEquals(dom.getNearestCommonDominator(g.get("a"), g.get("b")), g.get("if"));
+
+        DominatorTree<EditableNode> postDom = new DominatorTree<>(Arrays.asList(g.get("start")), true);
+        Assert.assertEquals(postDom.getImmediateDominator(g.get("if")), g.get("end"));
+        Assert.assertEquals(postDom.getImmediateDominator(g.get("a")), g.get("end"));
+        Assert.assertNull(postDom.getImmediateDominator(g.get("end")));
+        Assert.assertTrue(postDom.dominates(g.get("end"), g.get("start")));
+    }
+
+    @Test
+    public void testLoop() {
+        Map<String, EditableNode> g = graph("start->header", "header->body", "body->header", "header->after", "body->after");
+        DominatorTree<EditableNode> dom = new DominatorTree<>(Arrays.asList(g.get("start")));
+        Assert.assertEquals(dom.getImmediateDominator(g.get("body")), g.get("header"));
+        Assert.assertEquals(dom.getImmediateDominator(g.get("after")), g.get("header"));
+        Assert.assertTrue(dom.strictlyDominates(g.get("header"), g.get("body")));
+        Assert.assertFalse(dom.strictlyDominates(g.get("body"), g.get("body")));
+
+        DominatorTree<EditableNode> postDom = new DominatorTree<>(Arrays.asList(g.get("start")), true);
+        Assert.assertEquals(postDom.getImmediateDominator(g.get("header")), g.get("after"));
+        Assert.assertEquals(postDom.getImmediateDominator(g.get("body")), g.get("after"));
+    }
+
+    @Test
+    public void testMultipleExits() {
+        Map<String, EditableNode> g = graph("start->if", "if->ret1", "if->ret2");
+        DominatorTree<EditableNode> postDom = new DominatorTree<>(Arrays.asList(g.get("start")), true);
+        Assert.assertNull(postDom.getImmediateDominator(g.get("if")));
+        Assert.assertEquals(postDom.getRoots().size(), 3); //ret1, ret2 and if
+        Assert.assertTrue(postDom.contains(g.get("start")));
+    }
+
+    @Test
+    public void testInfiniteLoopNotInPostDominatorTree() {
+        Map<String, EditableNode> g = graph("start->if", "if->loop", "loop->loop", "if->end");
+        DominatorTree<EditableNode> postDom = new DominatorTree<>(Arrays.asList(g.get("start")), true);
+        Assert.assertFalse(postDom.contains(g.get("loop")));
+        Assert.assertEquals(postDom.getImmediateDominator(g.get("if")), g.get("end"));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class EdgeMapTest {
+
+    @Test
+    public void testLookupByNodes() {
+        EditableNode a = new BasicEditableNode("a");
+        EditableNode b = new BasicEditableNode("b");
+        EdgeMap<EditableNode, String> map = new EdgeMap<>();
+        map.put(new Edge<>(a, b), "ab");
+        map.put(b, a, "ba");
+        Assert.assertEquals(map.get(a, b), "ab");
+        Assert.assertEquals(map.get(new Edge<>(b, a)), "ba");
+        //nodes are equal by id
+        Assert.assertEquals(map.get(new BasicEditableNode("a"), new BasicEditableNode("b")), "ab");
+        Assert.assertNull(map.get(a, a));
+        Assert.assertEquals(map.remove(b, a), "ba");
+        Assert.assertFalse(map.containsKey(b, a));
+        Assert.assertEquals(map.size(), 1);
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        List<EditableNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(new BasicEditableNode("n" + i));
+        }
+        EdgeMap<EditableNode, Integer> map = new EdgeMap<>();
+        for (int i = 99; i > 0; i--) {
+            map.put(nodes.get(i), nodes.get(i - 1), i);
+        }
+        Iterator<Map.Entry<Edge<EditableNode>, Integer>> it = map.entrySet().iterator();
+        int expected = 99;
+        while (it.hasNext()) {
+            Map.Entry<Edge<EditableNode>, Integer> entry = it.next();
+            Assert.assertEquals((int) entry.getValue(), expected--);
+            if (entry.getValue() % 2 == 0) {
+                it.remove();
+            }
+        }
+        Assert.assertEquals(map.size(), 50);
+        Assert.assertEquals(new ArrayList<>(map.values()).subList(0, 3), Arrays.asList(99, 97, 95));
+        Assert.assertNull(map.get(nodes.get(98), nodes.get(97)));
+    }
+
+    @Test
+    public void testEdgeSet() {
+        EditableNode a = new BasicEditableNode("a");
+        EditableNode b = new BasicEditableNode("b");
+        EdgeSet<EditableNode> set = new EdgeSet<>();
+        Assert.assertTrue(set.add(new Edge<>(a, b)));
+        Assert.assertFalse(set.add(new Edge<>(a, b)));
+        Assert.assertTrue(set.contains(a, b));
+        Assert.assertFalse(set.contains(b, a));
+        set.removeAll(Arrays.asList(new Edge<>(a, b)));
+        Assert.assertTrue(set.isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class LoopNestingForestTest {
+
+    private Map<String, EditableNode> graph(String... edges) {
+        Map<String, EditableNode> ret = new LinkedHashMap<>();
+        for (String edge : edges) {
+            String[] parts = edge.split("->");
+            if (!ret.containsKey(parts[0])) {
+                ret.put(parts[0], new BasicEditableNode(parts[0]));
+            }
+            if (!ret.containsKey(parts[1])) {
+                ret.put(parts[1], new BasicEditableNode(parts[1]));
+            }
+            ret.get(parts[0]).addNext(ret.get(parts[1]));
+            ret.get(parts[1]).addPrev(ret.get(parts[0]));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testNestedLoops() {
+        Map<String, EditableNode> g = graph("start->outer", "outer->inner", "inner->body", "body->inner", "inner->latch", "latch->outer", "outer->end");
+        LoopNestingForest<EditableNode> forest = new LoopNestingForest<>(Arrays.asList(g.get("start")));
+        Assert.assertEquals(forest.getLoops().size(), 2);
+        Assert.assertEquals(forest.getRootLoops().size(), 1);
+        Loop<EditableNode> outer = forest.getRootLoops().get(0);
+        Assert.assertEquals(outer.getHeader(), g.get("outer"));
+        Assert.assertEquals(outer.getBackEdges(), Arrays.asList(new Edge<>(g.get("latch"), g.get("outer"))));
+        Assert.assertEquals(outer.getExitEdges(), Arrays.asList(new Edge<>(g.get("outer"), g.get("end"))));
+        Loop<EditableNode> inner = forest.getInnermostLoop(g.get("body"));
+        Assert.assertEquals(inner.getHeader(), g.get("inner"));
+        Assert.assertEquals(inner.getParent(), outer);
+        Assert.assertEquals(inner.getDepth(), 2);
+        Assert.assertEquals(forest.getOutermostLoop(g.get("body")), outer);
+        Assert.assertTrue(forest.isLoopHeader(g.get("inner")));
+        Assert.assertFalse(forest.isInLoop(g.get("start")));
+        Assert.assertFalse(forest.isInLoop(g.get("end")));
+    }
+
+    @Test
+    public void testSelfLoop() {
+        Map<String, EditableNode> g = graph("start->a", "a->a", "a->end");
+        LoopNestingForest<EditableNode> forest = new LoopNestingForest<>(Arrays.asList(g.get("start")));
+        Assert.assertEquals(forest.getLoops().size(), 1);
+        Assert.assertEquals(forest.getInnermostLoop(g.get("a")).getNodes(), Arrays.asList(g.get("a")));
+    }
+
+    @Test
+    public void testIrreducibleLoop() {
+        Map<String, EditableNode> g = graph("start->a", "start->b", "a->b", "b->a", "b->end");
+        LoopNestingForest<EditableNode> forest = new LoopNestingForest<>(Arrays.asList(g.get("start")));
+        Assert.assertEquals(forest.getLoops().size(), 1);
+        Loop<EditableNode> loop = forest.getLoops().get(0);
+        Assert.assertTrue(loop.isIrreducible());
+        Assert.assertEquals(loop.getHeader(), g.get("a"));
+    }
+
+    @Test
+    public void testDeepGraph() {
+        int count = 200000;
+        BasicEditableNode first = new BasicEditableNode("n0");
+        BasicEditableNode prev = first;
+        for (int i = 1; i < count; i++) {
+            BasicEditableNode node = new BasicEditableNode("n" + i);
+            prev.addNext(node);
+            node.addPrev(prev);
+            prev = node;
+        }
+        prev.addNext(first);
+        first.addPrev(prev);
+        LoopNestingForest<EditableNode> forest = new LoopNestingForest<>(Arrays.asList((EditableNode) first));
+        Assert.assertEquals(forest.getLoops().size(), 1);
+        Assert.assertEquals(forest.getLoops().get(0).getNodes().size(), count);
+    }
+}
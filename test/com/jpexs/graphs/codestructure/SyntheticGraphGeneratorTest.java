@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.operations.CodeStructureModifier;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.DecomposedGraph;
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.StructuredGraphFacade;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SyntheticGraphGeneratorTest {
+
+    private static SyntheticGraphGenerator createGenerator(long seed, int scale) {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(seed);
+        generator.setStatementCount(10 * scale);
+        generator.setIfCount(5 * scale);
+        generator.setWhileCount(scale);
+        generator.setDoWhileCount(scale);
+        generator.setForCount(scale);
+        generator.setSwitchCount(scale);
+        generator.setBreakCount(scale);
+        generator.setContinueCount(scale);
+        return generator;
+    }
+
+    private static Set<EditableNode> reachable(EditableNode start) {
+        Set<EditableNode> visited = new HashSet<>();
+        Deque<EditableNode> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            EditableNode node = stack.pop();
+            if (visited.add(node)) {
+                for (EditableNode next : node.getNext()) {
+                    stack.push(next);
+                }
+            }
+        }
+        return visited;
+    }
+
+    @Test
+    public void testSameSeedSameGraph() {
+        String dot = createGenerator(5, 10).generateDot();
+        Assert.assertEquals(createGenerator(5, 10).generateDot(), dot);
+        Assert.assertNotEquals(createGenerator(6, 10).generateDot(), dot);
+    }
+
+    @Test
+    public void testCounts() {
+        SyntheticGraphGenerator generator = createGenerator(1, 10);
+        generator.setSwitchCaseCount(4);
+        generator.setGotoCount(7);
+        EditableNode start = generator.generate();
+        //start, end, statements, ifs with one statement, loops with 3 or 5 nodes, switches, jumps
+        int expectedNodes = 2 + 100 + 50 * 2 + 10 * 3 + 10 * 3 + 10 * 5 + 10 * 5 + 10 + 10 + 7;
+        Assert.assertEquals(generator.getNodeCount(), expectedNodes);
+        Set<EditableNode> nodes = reachable(start);
+        Assert.assertEquals(nodes.size(), expectedNodes);
+        int edges = 0;
+        for (EditableNode node : nodes) {
+            edges += node.getNext().size();
+            for (EditableNode next : node.getNext()) {
+                Assert.assertTrue(next.getPrev().contains(node));
+            }
+        }
+        Assert.assertEquals(edges, generator.getEdgeCount());
+        Assert.assertEquals(start.getId(), "start");
+    }
+
+    @Test
+    public void testNoLoopsNoBreaks() {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(1);
+        generator.setIfCount(3);
+        generator.setBreakCount(3);
+        generator.setContinueCount(3);
+        generator.generate();
+        Assert.assertEquals(generator.getNodeCount(), 2 + 3 * 2);
+    }
+
+    @Test
+    public void testDotMatchesNodes() {
+        SyntheticGraphGenerator generator = createGenerator(3, 20);
+        generator.setGotoCount(5);
+        EditableNode start = generator.generate();
+        List<DecomposedGraph> graphs = new StructuredGraphFacade().decomposedGraphsFromString(generator.generateDot());
+        Assert.assertNotNull(graphs);
+        Set<EditableNode> parsedNodes = graphs.get(0).getNodes();
+        Assert.assertEquals(parsedNodes.size(), generator.getNodeCount());
+        Assert.assertEquals(parsedNodes.iterator().next().getId(), "start");
+        for (EditableNode node : reachable(start)) {
+            EditableNode parsed = null;
+            for (EditableNode p : parsedNodes) {
+                if (p.equals(node)) {
+                    parsed = p;
+                    break;
+                }
+            }
+            Assert.assertNotNull(parsed, node.getId());
+            Assert.assertEquals(parsed.getNext().toString(), node.getNext().toString());
+        }
+    }
+
+    @DataProvider
+    public Object[][] provideSeeds() {
+        return new Object[][]{{1L}, {2L}, {3L}, {4L}};
+    }
+
+    private static void detect(SyntheticGraphGenerator generator) {
+        EditableNode start = generator.generate();
+        EditableNode head = new CodeStructureModifier().execute(start, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        Assert.assertNotNull(head);
+    }
+
+    @Test(dataProvider = "provideSeeds")
+    public void testDetectIfs(long seed) {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(seed);
+        generator.setStatementCount(400);
+        generator.setIfCount(200);
+        detect(generator);
+    }
+
+    @Test(dataProvider = "provideSeeds")
+    public void testDetectLoops(long seed) {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(seed);
+        generator.setStatementCount(400);
+        generator.setWhileCount(50);
+        generator.setDoWhileCount(50);
+        generator.setForCount(50);
+        generator.setContinueCount(50);
+        detect(generator);
+    }
+
+    @Test
+    public void testMillionNodes() {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(1);
+        generator.setStatementCount(500000);
+        generator.setIfCount(100000);
+        generator.setWhileCount(50000);
+        generator.setForCount(20000);
+        generator.setSwitchCount(20000);
+        generator.setBreakCount(20000);
+        generator.setContinueCount(20000);
+        String dot = generator.generateDot();
+        Assert.assertTrue(generator.getNodeCount() > 1000000);
+        Assert.assertTrue(dot.startsWith("digraph synthetic {\n  start -> "));
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.codestructure.operations;
+
+import com.jpexs.graphs.codestructure.BasicEditableNode;
+import com.jpexs.graphs.codestructure.CodeStructure;
+import com.jpexs.graphs.codestructure.Edge;
+import com.jpexs.graphs.codestructure.SyntheticGraphGenerator;
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.codestructure.nodes.Node;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CodeStructureModifierTest {
+
+    /**
+     * Copies graph, node ids get the prefix to be different from other
+     * graphs.
+     */
+    private static EditableNode copy(EditableNode head, String prefix) {
+        Map<EditableNode, EditableNode> copies = new HashMap<>();
+        List<EditableNode> stack = new ArrayList<>();
+        copies.put(head, new BasicEditableNode(prefix + head.getId()));
+        stack.add(head);
+        while (!stack.isEmpty()) {
+            EditableNode node = stack.remove(stack.size() - 1);
+            EditableNode nodeCopy = copies.get(node);
+            for (EditableNode next : node.getNext()) {
+                EditableNode nextCopy = copies.get(next);
+                if (nextCopy == null) {
+                    nextCopy = new BasicEditableNode(prefix + next.getId());
+                    copies.put(next, nextCopy);
+                    stack.add(next);
+                }
+                nodeCopy.addNext(nextCopy);
+            }
+            for (EditableNode prev : node.getPrev()) {
+                EditableNode prevCopy = copies.get(prev);
+                if (prevCopy == null) {
+                    prevCopy = new BasicEditableNode(prefix + prev.getId());
+                    copies.put(prev, prevCopy);
+                    stack.add(prev);
+                }
+                nodeCopy.addPrev(prevCopy);
+            }
+        }
+        return copies.get(head);
+    }
+
+    private static List<EditableNode> generateHeads(int count) {
+        List<EditableNode> heads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SyntheticGraphGenerator generator = new SyntheticGraphGenerator(i);
+            generator.setStatementCount(100);
+            if (i % 2 == 0) {
+                generator.setIfCount(40);
+            } else {
+                generator.setWhileCount(10);
+                generator.setForCount(10);
+                generator.setContinueCount(10);
+            }
+            heads.add(copy(generator.generate(), "m" + i + "_"));
+        }
+        return heads;
+    }
+
+    private static List<List<?>> execute(boolean parallel) {
+        List<Node> loopContinues = new ArrayList<>();
+        List<Edge<EditableNode>> gotoEdges = new ArrayList<>();
+        List<Edge<EditableNode>> backEdges = new ArrayList<>();
+        List<Edge<EditableNode>> exitIfEdges = new ArrayList<>();
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setParallel(parallel);
+        Collection<EditableNode> heads = modifier.execute(generateHeads(8), loopContinues, gotoEdges, backEdges, exitIfEdges);
+        Assert.assertEquals(heads.size(), 8);
+        List<List<?>> ret = new ArrayList<>();
+        ret.add(loopContinues);
+        ret.add(gotoEdges);
+        ret.add(backEdges);
+        ret.add(exitIfEdges);
+        return ret;
+    }
+
+    /**
+     * Detects each component alone, one after another.
+     */
+    private static List<List<?>> executeComponents() {
+        List<Node> loopContinues = new ArrayList<>();
+        List<Edge<EditableNode>> gotoEdges = new ArrayList<>();
+        List<Edge<EditableNode>> backEdges = new ArrayList<>();
+        List<Edge<EditableNode>> exitIfEdges = new ArrayList<>();
+        for (EditableNode head : generateHeads(8)) {
+            new CodeStructureModifier().execute(Collections.singletonList(head), loopContinues, gotoEdges, backEdges, exitIfEdges);
+        }
+        List<List<?>> ret = new ArrayList<>();
+        ret.add(loopContinues);
+        ret.add(gotoEdges);
+        ret.add(backEdges);
+        ret.add(exitIfEdges);
+        return ret;
+    }
+
+    @Test
+    public void testParallelSameAsComponents() {
+        List<List<?>> components = executeComponents();
+        Assert.assertFalse(components.get(0).isEmpty());
+        Assert.assertFalse(components.get(2).isEmpty());
+        Assert.assertEquals(execute(true).toString(), components.toString());
+    }
+
+    @Test
+    public void testParallelDeterministic() {
+        Assert.assertEquals(execute(true).toString(), execute(true).toString());
+    }
+
+    private static EditableNode generateLarge() {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(7);
+        generator.setStatementCount(2000);
+        generator.setIfCount(600);
+        return generator.generate();
+    }
+
+    @Test
+    public void testNoBudgetComplete() {
+        CodeStructure structure = new CodeStructureModifier().detect(generateLarge());
+        Assert.assertEquals(structure.getStatus(), DetectionStatus.COMPLETE);
+    }
+
+    @Test
+    public void testStepLimit() {
+        DetectionBudget budget = new DetectionBudget();
+        budget.setMaxSteps(100);
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setBudget(budget);
+        CodeStructure structure = modifier.detect(generateLarge());
+        Assert.assertEquals(structure.getStatus(), DetectionStatus.STEP_LIMIT);
+        Assert.assertEquals(modifier.getStatus(), DetectionStatus.STEP_LIMIT);
+        Assert.assertFalse(structure.getRegionTree().getChildren().isEmpty());
+    }
+
+    @Test
+    public void testParallelStepLimitShared() {
+        List<EditableNode> heads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            heads.add(copy(generateLarge(), "m" + i + "_"));
+        }
+        DetectionBudget budget = new DetectionBudget();
+        //each component alone takes less than half of it
+        budget.setMaxSteps(8192);
+        CodeStructureModifier single = new CodeStructureModifier();
+        single.setBudget(budget);
+        Assert.assertEquals(single.detect(generateLarge()).getStatus(), DetectionStatus.COMPLETE);
+
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setParallel(true);
+        modifier.setBudget(budget);
+        modifier.execute(heads, new ArrayList<Node>(), new ArrayList<Edge<EditableNode>>(), new ArrayList<Edge<EditableNode>>(), new ArrayList<Edge<EditableNode>>());
+        Assert.assertEquals(modifier.getStatus(), DetectionStatus.STEP_LIMIT);
+    }
+
+    @Test
+    public void testDecisionListLimit() {
+        DetectionBudget budget = new DetectionBudget();
+        budget.setMaxDecisionListEntries(50);
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setBudget(budget);
+        Assert.assertEquals(modifier.detect(generateLarge()).getStatus(), DetectionStatus.DECISION_LIST_LIMIT);
+    }
+
+    @Test
+    public void testCancel() {
+        DetectionBudget budget = new DetectionBudget();
+        budget.cancel();
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setBudget(new DetectionBudget(budget));
+        Assert.assertEquals(modifier.detect(generateLarge()).getStatus(), DetectionStatus.CANCELLED);
+    }
+
+    @Test
+    public void testInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            Assert.assertEquals(new CodeStructureModifier().detect(generateLarge()).getStatus(), DetectionStatus.CANCELLED);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testParallelCancel() {
+        DetectionBudget budget = new DetectionBudget();
+        budget.cancel();
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setParallel(true);
+        modifier.setBudget(budget);
+        Assert.assertEquals(modifier.detect(generateHeads(4)).getStatus(), DetectionStatus.CANCELLED);
+    }
+
+    private static EditableNode node(Map<String, EditableNode> nodes, String id) {
+        EditableNode node = nodes.get(id);
+        if (node == null) {
+            node = new BasicEditableNode(id);
+            nodes.put(id, node);
+        }
+        return node;
+    }
+
+    private static void edge(Map<String, EditableNode> nodes, String from, String to) {
+        node(nodes, from).addNext(node(nodes, to));
+        node(nodes, to).addPrev(node(nodes, from));
+    }
+
+    /**
+     * Creates graph from paths like "start>if>a>end".
+     *
+     * @return Nodes by id
+     */
+    private static Map<String, EditableNode> graph(String... paths) {
+        Map<String, EditableNode> nodes = new HashMap<>();
+        for (String path : paths) {
+            String[] ids = path.split(">");
+            for (int i = 0; i < ids.length - 1; i++) {
+                edge(nodes, ids[i], ids[i + 1]);
+            }
+        }
+        return nodes;
+    }
+
+    @DataProvider
+    public Object[][] provideRegionTrees() {
+        return new Object[][]{
+            //if without else
+            {new String[]{"start>if>a>join>end", "if>join"}, "{if start-if {a} {} join-end}", 0},
+            {new String[]{"start>if>join>end", "if>a>join"}, "{if start-if {} {a} join-end}", 0},
+            //switch
+            {new String[]{"start>sw>c1>join>end", "sw>c2>join", "sw>c3>join"}, "{switch start-sw {c1} {c2} {c3} join-end}", 0},
+            {new String[]{"start>sw>c1>c2>join>end", "sw>c2", "sw>c3>join"}, "{switch start-sw {c1 c2 join-end} {} {c3}}", 0},
+            //goto
+            {new String[]{"start>if1>a>x>end", "if1>b>c>x", "a>c"}, "{if start-if1 {if a {} {} goto x-end} {b} c x-end}", 1},
+            {new String[]{"start>if1>a>c>end", "if1>b>c", "b>a"}, "{if start-if1 {} {if b {} {} goto c-end} a c-end}", 1},
+            //nested loops
+            {new String[]{"start>w1>w2>a>w2", "w2>w1", "w1>end"}, "{start loop w1 {w1 loop w2 {w2 a}} end}", 0},
+            //sequential loops
+            {new String[]{"start>w1>a>w1>w2>b>w2>end"}, "{start loop w1 {w1 a} loop w2 {w2 b} end}", 0},
+            //loop exits
+            {new String[]{"start>w>if>a>w", "if>end"}, "{start loop w-if {w-if a} end}", 0},
+            {new String[]{"start>w>if>b>w", "if>brk>end", "w>end"}, "{start loop w {w if if {b} {brk}} end}", 0},
+            {new String[]{"start>w>if>end", "if>a>w", "w>end"}, "{start loop w {w if if {} {a}} end}", 0},
+            //continue
+            {new String[]{"start>w>if>w", "if>a>w", "w>end"}, "{start loop w {w if a} end}", 0},
+            {new String[]{"start>w>a>if>w", "if>b>w", "w>end"}, "{start loop w {w a-if b} end}", 0}
+        };
+    }
+
+    @Test(dataProvider = "provideRegionTrees")
+    public void testRegionTree(String[] paths, String expectedTree, int gotoCount) {
+        CodeStructure structure = new CodeStructureModifier().detect(graph(paths).get("start"));
+        Assert.assertEquals(structure.getStatus(), DetectionStatus.COMPLETE);
+        Assert.assertEquals(structure.getRegionTree().toString(), expectedTree);
+        Assert.assertEquals(structure.getGotoEdges().size(), gotoCount);
+    }
+
+    @Test
+    public void testParallelRegionTreeOrder() {
+        Map<String, EditableNode> nodes = graph("start1>if1>a1>end1", "if1>end1", "start2>w2>b2>w2", "w2>end2", "start3>c3>end3");
+        List<EditableNode> heads = new ArrayList<>();
+        heads.add(nodes.get("start1"));
+        heads.add(nodes.get("start2"));
+        heads.add(nodes.get("start3"));
+        CodeStructureModifier modifier = new CodeStructureModifier();
+        modifier.setParallel(true);
+        Assert.assertEquals(modifier.detect(heads).getRegionTree().toString(), "{if start1-if1 {a1} {} end1 start2 loop w2 {w2 b2} end2 start3-c3-end3}");
+    }
+
+    @Test
+    public void testDetectStructure() {
+        Map<String, EditableNode> nodes = new HashMap<>();
+        edge(nodes, "start", "while");
+        edge(nodes, "while", "if");
+        edge(nodes, "if", "a");
+        edge(nodes, "if", "b");
+        edge(nodes, "a", "c");
+        edge(nodes, "b", "c");
+        edge(nodes, "c", "while");
+        edge(nodes, "while", "end");
+        CodeStructure structure = new CodeStructureModifier().detect(nodes.get("start"));
+        Assert.assertEquals(structure.getHeads().size(), 1);
+        Assert.assertEquals(structure.getHeads().get(0), structure.getNodes().get(0));
+        Assert.assertEquals(structure.getEndIfNodes().size(), 1);
+        Assert.assertEquals(structure.getEndIfNodes().get(0).getIfNode().getId(), "if");
+        Assert.assertEquals(structure.getBackEdges().size(), 1);
+        Assert.assertEquals(structure.getBackEdges().get(0).to.getId(), "while");
+        Assert.assertTrue(structure.getGotoEdges().isEmpty());
+        Assert.assertTrue(structure.getNodes().containsAll(structure.getEndIfNodes()));
+        Assert.assertTrue(structure.getNodes().containsAll(structure.getJoinedNodes()));
+        Assert.assertEquals(structure.getRegionTree().toString(), "{start loop while {while if if {a} {b} c} end}");
+        Assert.assertEquals(structure.getStatus(), DetectionStatus.COMPLETE);
+    }
+
+    /**
+     * Chain of nested if/else, each if in true branch of the previous one.
+     */
+    private static EditableNode generateNested(int depth) {
+        Map<String, EditableNode> nodes = new HashMap<>();
+        edge(nodes, "start", "if0");
+        for (int i = 0; i < depth; i++) {
+            edge(nodes, "if" + i, i + 1 < depth ? "if" + (i + 1) : "a");
+            edge(nodes, "if" + i, "else" + i);
+        }
+        String join = "a";
+        for (int i = depth - 1; i >= 0; i--) {
+            edge(nodes, join, "join" + i);
+            edge(nodes, "else" + i, "join" + i);
+            join = "join" + i;
+        }
+        edge(nodes, join, "end");
+        return nodes.get("start");
+    }
+
+    @Test
+    public void testDeepNestingScales() throws InterruptedException {
+        final int depth = 3000;
+        final CodeStructure[] result = new CodeStructure[1];
+        final String[] tree = new String[1];
+        StringBuilder expectedTree = new StringBuilder("{if start-if0 ");
+        for (int i = 1; i < depth; i++) {
+            expectedTree.append("{if if").append(i).append(" ");
+        }
+        expectedTree.append("{a}");
+        for (int i = depth - 1; i > 0; i--) {
+            expectedTree.append(" {else").append(i).append("} join").append(i).append("}");
+        }
+        expectedTree.append(" {else0} join0-end}");
+        //joining and detection recurse per nesting level
+        Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                DetectionBudget budget = new DetectionBudget();
+                //takes about a second, work cubic in depth took minutes
+                budget.setMaxTime(30000);
+                CodeStructureModifier modifier = new CodeStructureModifier();
+                modifier.setBudget(budget);
+                result[0] = modifier.detect(generateNested(depth));
+                tree[0] = result[0].getRegionTree().toString();
+            }
+        }, "deep-nesting", 1L << 29);
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(result[0]);
+        Assert.assertEquals(result[0].getStatus(), DetectionStatus.COMPLETE);
+        Assert.assertEquals(result[0].getEndIfNodes().size(), depth);
+        Assert.assertEquals(tree[0], expectedTree.toString());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import com.jpexs.graphs.graphviz.graph.Graph;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DotBatchParserTest {
+
+    private Path dir;
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("batch");
+    }
+
+    @AfterMethod
+    public void deleteDir() throws IOException {
+        for (Path file : Files.newDirectoryStream(dir)) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private void write(String name, String text) throws IOException {
+        Files.write(dir.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testResultsInOrder() throws IOException, InterruptedException {
+        for (int i = 0; i < 30; i++) {
+            write(String.format("g%02d.gv", i), i == 7 ? "digraph { a -> }" : "digraph g" + i + " { a -> b; b -> c" + i + "; }");
+        }
+        write("readme.txt", "not a graph");
+        DotBatchParser batch = new DotBatchParser();
+        batch.setThreadCount(4);
+        List<DotBatchParser.Result<Graph>> results = batch.parseDirectory(dir);
+        Assert.assertEquals(results.size(), 30);
+        for (int i = 0; i < 30; i++) {
+            DotBatchParser.Result<Graph> result = results.get(i);
+            Assert.assertEquals(result.getFile().getFileName().toString(), String.format("g%02d.gv", i));
+            if (i == 7) {
+                Assert.assertFalse(result.isOk());
+                Assert.assertTrue(result.getError() instanceof DotParseException);
+                Assert.assertNull(result.getValue());
+            } else {
+                Assert.assertTrue(result.isOk());
+                Assert.assertEquals(result.getValue().getId().toString(), "g" + i);
+            }
+        }
+    }
+
+    @Test
+    public void testPendingBounded() throws InterruptedException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            files.add(dir.resolve("f" + i + ".gv"));
+        }
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger handled = new AtomicInteger();
+        final AtomicInteger maxAhead = new AtomicInteger();
+        DotBatchParser batch = new DotBatchParser();
+        batch.setThreadCount(3);
+        batch.setMaxPending(5);
+        batch.process(files, new DotBatchParser.FileProcessor<Integer>() {
+            @Override
+            public Integer process(Path file) {
+                int ahead = started.incrementAndGet() - handled.get();
+                synchronized (maxAhead) {
+                    maxAhead.set(Math.max(maxAhead.get(), ahead));
+                }
+                return Integer.parseInt(file.getFileName().toString().replaceAll("[^0-9]", ""));
+            }
+        }, new DotBatchParser.ResultHandler<Integer>() {
+            @Override
+            public void result(DotBatchParser.Result<Integer> result) {
+                Assert.assertEquals((int) result.getValue(), handled.get());
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException ex) {
+                    //ignore
+                }
+                handled.incrementAndGet();
+            }
+        });
+        Assert.assertEquals(handled.get(), 50);
+        Assert.assertTrue(maxAhead.get() <= 5, "max ahead " + maxAhead.get());
+    }
+}
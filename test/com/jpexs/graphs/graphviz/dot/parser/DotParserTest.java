@@ -16,6 +16,11 @@
  */
 package com.jpexs.graphs.graphviz.dot.parser;
 
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import com.jpexs.graphs.graphviz.graph.ConnectableObject;
+import com.jpexs.graphs.graphviz.graph.Edge;
+import com.jpexs.graphs.graphviz.graph.Graph;
+import com.jpexs.graphs.graphviz.graph.NodeId;
 import com.jpexs.graphs.graphviz.graph.SubGraph;
 import java.io.IOException;
 import java.io.StringReader;
@@ -173,6 +178,127 @@ public class DotParserTest {
         parse("graph {a;a--b;c}");
     }
 
+    @Test
+    public void testLongStatementList() throws IOException, DotParseException {
+        int count = 1000000;
+        StringBuilder sb = new StringBuilder("digraph {\n");
+        for (int i = 0; i < count; i++) {
+            if (i % 100 == 0) {
+                sb.append("n").append(i).append(" -> n").append(i + 1).append(" -> n").append(i + 2).append(" [a=1, b=2; c=3][d=4];\n");
+            } else {
+                sb.append("n").append(i).append(";\n");
+            }
+        }
+        sb.append("}");
+        Graph graph = new DotParser().parse(new StringReader(sb.toString()));
+        Assert.assertEquals(graph.nodes.size(), count - count / 100);
+        Assert.assertEquals(graph.edges.size(), 2 * count / 100);
+        Assert.assertEquals(graph.edges.get(1).attributes.size(), 4);
+    }
+
+    @Test
+    public void testListener() throws IOException, DotParseException {
+        final StringBuilder events = new StringBuilder();
+        new DotParser().parse(new StringReader("digraph g {k=v; node[shape=box]; a [color=red]; a -> {b -> c} -> d [label=x]}"), new DotParseAdapter() {
+            @Override
+            public void graphBegin(boolean strict, boolean directed, DotId id) {
+                events.append("begin ").append(id).append(";");
+            }
+
+            @Override
+            public void graphAttribute(DotId key, DotId value) {
+                events.append(key).append("=").append(value).append(";");
+            }
+
+            @Override
+            public void attributeStatement(String kind, AttributesMap attributes) {
+                events.append(kind).append(attributes).append(";");
+            }
+
+            @Override
+            public void nodeStatement(NodeId node, AttributesMap attributes) {
+                events.append(node).append(attributes).append(";");
+            }
+
+            @Override
+            public void subgraphBegin(DotId id) {
+                events.append("{;");
+            }
+
+            @Override
+            public ConnectableObject subgraphEnd() {
+                events.append("};");
+                return new NodeId(new DotId("sub", false));
+            }
+
+            @Override
+            public void edge(ConnectableObject from, ConnectableObject to, AttributesMap attributes) {
+                events.append(from).append("->").append(to).append(attributes == null ? "" : attributes).append(";");
+            }
+
+            @Override
+            public void graphEnd() {
+                events.append("end");
+            }
+        });
+        Assert.assertEquals(events.toString(), "begin g;k=v;node[shape=box];a[color=red];{;b->c;};a->sub;sub->d[label=x];end");
+    }
+
+    @Test
+    public void testFlyweightLexer() throws IOException, DotParseException {
+        String sample = "digraph G {\n a -> b [label=\"x\\\"y\"];\n /* c\n */ b -> a [label=<<b>x</b>>]; a; b -- 1.5 }";
+        DotLexer plain = lexerFor(sample);
+        DotLexer flyweight = lexerFor(sample);
+        flyweight.setFlyweight(true);
+        DotParsedSymbol expected;
+        do {
+            expected = plain.lex();
+            DotParsedSymbol actual = flyweight.lex();
+            Assert.assertEquals(actual.type, expected.type);
+            Assert.assertEquals(actual.idtype, expected.idtype);
+            Assert.assertEquals(actual.getValueAsString(), expected.getValueAsString());
+            Assert.assertEquals(flyweight.symbolLine(), plain.symbolLine());
+        } while (expected.type != DotParsedSymbol.TYPE_EOF);
+    }
+
+    @Test
+    public void testLexerTextOffsets() throws IOException, DotParseException {
+        StringBuilder sb = new StringBuilder("Digraph G {\r\n");
+        for (int i = 0; i < 300; i++) {
+            sb.append(" n").append(i).append(" -> \"long\\l label\r\n").append(i).append("\" [w=-").append(i).append(".5 x=\"q\\\"r\" y=<b>]\n");
+        }
+        sb.append("}");
+        DotLexer plain = lexerFor(sb.toString());
+        DotLexer flyweight = lexerFor(sb.toString());
+        flyweight.setFlyweight(true);
+        DotParsedSymbol expected;
+        int ids = 0;
+        do {
+            expected = plain.lex();
+            DotParsedSymbol actual = flyweight.lex();
+            Assert.assertEquals(actual.type, expected.type);
+            Assert.assertEquals(flyweight.symbolLine(), plain.symbolLine());
+            if (expected.type == DotParsedSymbol.TYPE_ID) {
+                Assert.assertEquals(actual.getValueAsString(), expected.getValueAsString());
+                Assert.assertEquals(new String(plain.textBuffer(), plain.textStart(), plain.textLength()), expected.getValueAsString());
+                Assert.assertEquals(new String(flyweight.textBuffer(), flyweight.textStart(), flyweight.textLength()), expected.getValueAsString());
+                ids++;
+            }
+        } while (expected.type != DotParsedSymbol.TYPE_EOF);
+        Assert.assertEquals(ids, 1 + 300 * 8);
+        Assert.assertEquals(plain.symbolLine(), 1 + 300 * 2 + 1);
+    }
+
+    @Test
+    public void testErrorLine() throws IOException {
+        try {
+            parser.parse(new StringReader("digraph {\n a -> b;\n /* x\n */ \"c\nd\" -> e;\n f -- g;\n}"));
+            Assert.fail("-- for digraph allowed");
+        } catch (DotParseException ex) {
+            Assert.assertTrue(ex.getMessage().endsWith("on line 6"), ex.getMessage());
+        }
+    }
+
     @Test
     public void testGraphCannotUseArrowEdgeOp() throws IOException, DotParseException {
         String sample = "a->b";
@@ -191,6 +317,31 @@ public class DotParserTest {
         }
     }
 
+    @Test
+    public void testIdsInterned() throws IOException, DotParseException {
+        Graph g = new DotParser().parse(new StringReader("digraph { a -> b [label=\"x y\"]; b -> a [label=\"x y\"]; \"a\" -> <a> }"));
+        Edge first = g.edges.get(0);
+        Edge second = g.edges.get(1);
+        Edge third = g.edges.get(2);
+        Assert.assertSame(((NodeId) first.from).getId(), ((NodeId) second.to).getId());
+        Assert.assertSame(((NodeId) first.from).getId(), ((NodeId) third.from).getId());
+        Assert.assertNotSame(((NodeId) first.from).getId(), ((NodeId) third.to).getId());
+        Assert.assertEquals(((NodeId) third.to).getId().toString(), "<a>");
+        Assert.assertSame(first.attributes.keySet().iterator().next(), DotId.valueOf("label"));
+        Assert.assertSame(first.attributes.get(DotId.valueOf("label")), second.attributes.get(DotId.valueOf("label")));
+        Assert.assertEquals(first.attributes.get("label"), "\"x y\"");
+    }
+
+    @Test
+    public void testDotIdToString() {
+        Assert.assertEquals(new DotId("graph", false).toString(), "\"graph\"");
+        Assert.assertEquals(new DotId("-1.5", false).toString(), "-1.5");
+        Assert.assertEquals(new DotId("a_1", false).toString(), "a_1");
+        Assert.assertEquals(new DotId("a\"b", false).toString(), "\"a\\\"b\"");
+        Assert.assertEquals(DotId.valueOf("label"), new DotId("label", false));
+        Assert.assertEquals(DotId.valueOf("label").hashCode(), new DotId("label", false).hashCode());
+    }
+
     @Test
     public void testDiGraphCannotUseMinusMinusEdgeOp() throws IOException, DotParseException {
         String sample = "a--b";
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.dot.parser;
+
+import com.jpexs.graphs.graphviz.graph.Graph;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class MappedDotReaderTest {
+
+    private Path file;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        file = Files.createTempFile("mapped", ".gv");
+    }
+
+    @AfterMethod
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private String readAll(long windowSize, int bufferSize) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[bufferSize];
+        try (Reader reader = new MappedDotReader(file, windowSize)) {
+            int count;
+            while ((count = reader.read(buf, 0, buf.length)) != -1) {
+                sb.append(buf, 0, count);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testDecodeSameAsCharset() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write("digraph { a -> b [label=\"".getBytes(StandardCharsets.UTF_8));
+        baos.write("žluťoučký € 😀 end".getBytes(StandardCharsets.UTF_8));
+        //malformed: lone continuation, truncated sequence, overlong form, surrogate, invalid lead
+        baos.write(new byte[]{(byte) 0x80, 'x', (byte) 0xE2, (byte) 0x82, 'y', (byte) 0xC0, (byte) 0xAF, (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xE0, (byte) 0x9F, (byte) 0xFF});
+        baos.write("\"] }".getBytes(StandardCharsets.UTF_8));
+        baos.write(new byte[]{(byte) 0xF0, (byte) 0x9F});
+        byte[] data = baos.toByteArray();
+        Files.write(file, data);
+        String expected = new String(data, StandardCharsets.UTF_8);
+        Assert.assertEquals(readAll(1L << 20, 8192), expected);
+        for (int windowSize = 1; windowSize < 8; windowSize++) {
+            for (int bufferSize = 1; bufferSize < 4; bufferSize++) {
+                Assert.assertEquals(readAll(windowSize, bufferSize), expected, "window " + windowSize + ", buffer " + bufferSize);
+            }
+        }
+    }
+
+    @Test
+    public void testByteOrderMarkAndEmptyFile() throws IOException {
+        Assert.assertEquals(readAll(1024, 16), "");
+        Files.write(file, new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', 'b'});
+        Assert.assertEquals(readAll(1024, 16), "ab");
+        for (int windowSize = 1; windowSize < 5; windowSize++) {
+            Assert.assertEquals(readAll(windowSize, 16), "ab", "window " + windowSize);
+        }
+        Files.write(file, new byte[]{(byte) 0xEF, (byte) 0xBB});
+        Assert.assertEquals(readAll(1, 16), "\uFFFD");
+    }
+
+    @Test
+    public void testParseFileWithByteOrderMarkSmallWindow() throws IOException, DotParseException {
+        String text = "digraph G { a -> b; }";
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        baos.write(text.getBytes(StandardCharsets.UTF_8));
+        Files.write(file, baos.toByteArray());
+        Graph fromString = new DotParser().parse(new StringReader(text));
+        for (int windowSize = 1; windowSize < 4; windowSize++) {
+            try (Reader reader = new MappedDotReader(file, windowSize)) {
+                Assert.assertEquals(new DotParser().parse(reader).toString(), fromString.toString(), "window " + windowSize);
+            }
+        }
+    }
+
+    @Test
+    public void testParseFile() throws IOException, DotParseException {
+        String text = "digraph G { a [label=\"č\"]; a -> b -> c [color=red]; subgraph s { c -> a; } }";
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        Graph fromFile = new DotParser().parse(file);
+        Graph fromString = new DotParser().parse(new StringReader(text));
+        Assert.assertEquals(fromFile.toString(), fromString.toString());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class AttributesMapTest {
+
+    @Test
+    public void testInsertionOrder() {
+        AttributesMap map = new AttributesMap();
+        for (int i = 0; i < 20; i++) {
+            map.put("k" + i, "v" + i);
+        }
+        map.put("k3", "x");
+        Assert.assertEquals(map.remove("k0"), "v0");
+        Assert.assertNull(map.remove("k0"));
+        Assert.assertEquals(map.size(), 19);
+        Assert.assertEquals(new ArrayList<>(map.stringKeySet()).subList(0, 3), Arrays.asList("k1", "k2", "k3"));
+        Assert.assertEquals(new ArrayList<>(map.stringValues()).subList(0, 3), Arrays.asList("v1", "v2", "x"));
+        Assert.assertEquals(map.get(new DotId("k19", false)), new DotId("v19", false));
+        Assert.assertTrue(map.containsValue(new DotId("x", false)));
+    }
+
+    @Test
+    public void testCloneIsIndependent() {
+        AttributesMap map = new AttributesMap();
+        map.put("label", "a");
+        map.put("color", "red");
+        AttributesMap copy = map.clone();
+        AttributesMap copy2 = copy.clone();
+        copy.put("label", "b");
+        copy.put("shape", "box");
+        map.remove("color");
+        Assert.assertEquals(map.toString(), "[label=a]");
+        Assert.assertEquals(copy.toString(), "[label=b color=red shape=box]");
+        Assert.assertEquals(copy2.toString(), "[label=a color=red]");
+
+        AttributesMap target = new AttributesMap();
+        target.putAll(copy2);
+        target.clear();
+        Assert.assertTrue(target.isEmpty());
+        Assert.assertEquals(copy2.size(), 2);
+    }
+
+    @Test
+    public void testViews() {
+        AttributesMap map = new AttributesMap();
+        map.put("label", "a");
+        map.put("color", "red");
+        map.put("style", "dashed");
+        AttributesMap copy = map.clone();
+        Iterator<DotId> it = map.keySet().iterator();
+        it.next();
+        it.remove();
+        for (Map.Entry<DotId, DotId> entry : map.entrySet()) {
+            entry.setValue(DotId.valueOf("blue"));
+        }
+        Assert.assertTrue(map.keySet().remove(DotId.valueOf("style")));
+        Assert.assertEquals(map.toString(), "[color=blue]");
+        Assert.assertEquals(copy.toString(), "[label=a color=red style=dashed]");
+    }
+}
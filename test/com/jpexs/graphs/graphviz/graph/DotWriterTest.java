@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import com.jpexs.graphs.graphviz.dot.parser.DotParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DotWriterTest {
+
+    private static final String SOURCE = "digraph G { rankdir=TB; a [shape=box]; a -> b [label=\"x y\", color=red]; b -> c; subgraph s { c -> d; } }";
+
+    private Graph parse(String text) throws IOException, DotParseException {
+        return new DotParser().parse(new StringReader(text));
+    }
+
+    @Test
+    public void testCompactSameAsToString() throws IOException, DotParseException {
+        Graph g = parse(SOURCE);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DotWriter writer = new DotWriter(baos, 16);
+        writer.write(g);
+        writer.flush();
+        Assert.assertEquals(baos.toString("UTF-8"), g.toString());
+        Assert.assertEquals(g.toString(), "digraph G{rankdir=TB;a[shape=box];\r\na->b[label=\"x y\" color=red];\r\nb->c;subgraph s{c->d};\r\n}");
+    }
+
+    @Test
+    public void testPretty() throws IOException, DotParseException {
+        Graph g = parse(SOURCE);
+        StringWriter sw = new StringWriter();
+        DotWriter writer = new DotWriter(sw);
+        writer.setPretty(true);
+        writer.write(g);
+        writer.flush();
+        String expected = "digraph G {\r\n"
+                + "    rankdir=TB;\r\n"
+                + "    a [shape=box];\r\n"
+                + "    a -> b [label=\"x y\", color=red];\r\n"
+                + "    b -> c;\r\n"
+                + "    subgraph s {\r\n"
+                + "        c -> d;\r\n"
+                + "    };\r\n"
+                + "}\r\n";
+        Assert.assertEquals(sw.toString(), expected);
+        Assert.assertEquals(parse(sw.toString()).toString(), g.toString());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.codestructure.nodes.EditableNode;
+import com.jpexs.graphs.graphviz.graph.AttributesMap;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CodeGraphBuilderTest {
+
+    private static final String SOURCE = "digraph {\n"
+            + "  start -> while; while -> if; if -> a; if -> b; a -> c; b -> c; c -> while; while -> \"the end\" [color=\"blue\"];\n"
+            + "}\n";
+
+    @Test
+    public void testBranchOrder() {
+        CodeGraphBuilder builder = new CodeGraphBuilder();
+        builder.addEdge("if", "b", 1);
+        builder.addEdge("if", "a", 0);
+        builder.addEdge("if", "c");
+        EditableNode ifNode = builder.getNode("if");
+        Assert.assertEquals(ifNode.getNextCount(), 3);
+        Assert.assertEquals(ifNode.getNext(0).getId(), "a");
+        Assert.assertEquals(ifNode.getNext(1).getId(), "b");
+        Assert.assertEquals(ifNode.getNext(2).getId(), "c");
+        Assert.assertNull(builder.getNode("d"));
+    }
+
+    @Test
+    public void testSameAsDot() {
+        AttributesMap attributes = new AttributesMap();
+        attributes.put("color", "blue");
+        CodeGraphBuilder builder = new CodeGraphBuilder();
+        builder.addEdge("start", "while");
+        builder.addEdge("while", "the end", 1, attributes);
+        builder.addEdge("while", "if", 0);
+        builder.addEdge("if", "b", 1);
+        builder.addEdge("if", "a", 0);
+        builder.addEdge("a", "c");
+        builder.addEdge("b", "c");
+        builder.addEdge("c", "while");
+        Assert.assertNotNull(builder.getNode("the end"));
+        List<DecomposedGraph> built = new ArrayList<>();
+        built.add(builder.build());
+
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        operation.executeOnDecomposedGraphs(built, null);
+        StructuredGraphFacade facade = new StructuredGraphFacade();
+        Assert.assertEquals(facade.graphToString(facade.composeGraph(built)), new CodeStructureModifyOperation().execute(SOURCE, null));
+    }
+}
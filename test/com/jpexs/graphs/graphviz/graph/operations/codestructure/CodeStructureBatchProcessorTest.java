@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.graphviz.dot.parser.DotBatchParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CodeStructureBatchProcessorTest {
+
+    @Test
+    public void testSameAsExecute() throws IOException, InterruptedException {
+        List<Path> files = DotBatchParser.listFiles(Paths.get("graphs"));
+        Assert.assertFalse(files.isEmpty());
+        Path outputDir = Files.createTempDirectory("detected");
+        try {
+            CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+            final List<DotBatchParser.Result<Path>> results = new ArrayList<>();
+            new DotBatchParser().process(files, new CodeStructureBatchProcessor(operation, outputDir), new DotBatchParser.ResultHandler<Path>() {
+                @Override
+                public void result(DotBatchParser.Result<Path> result) {
+                    results.add(result);
+                }
+            });
+            Assert.assertEquals(results.size(), files.size());
+            for (int i = 0; i < files.size(); i++) {
+                DotBatchParser.Result<Path> result = results.get(i);
+                Assert.assertTrue(result.isOk(), result.toString());
+                String source = new String(Files.readAllBytes(files.get(i)), StandardCharsets.UTF_8);
+                String expected = new CodeStructureModifyOperation().execute(source, null);
+                Assert.assertEquals(new String(Files.readAllBytes(result.getValue()), StandardCharsets.UTF_8), expected, files.get(i).toString());
+            }
+        } finally {
+            for (Path file : Files.newDirectoryStream(outputDir)) {
+                Files.delete(file);
+            }
+            Files.delete(outputDir);
+        }
+    }
+
+    @Test
+    public void testCheckOutputFiles() throws IOException {
+        List<Path> files = DotBatchParser.listFiles(Paths.get("graphs"));
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        new CodeStructureBatchProcessor(operation, Paths.get("build", "detected")).checkOutputFiles(files);
+        try {
+            new CodeStructureBatchProcessor(operation, Paths.get("graphs")).checkOutputFiles(files);
+            Assert.fail("Output directory same as input accepted");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+        List<Path> twice = new ArrayList<>(files);
+        twice.add(Paths.get("graphs", "..", "graphs", files.get(0).getFileName().toString()));
+        try {
+            new CodeStructureBatchProcessor(operation, Paths.get("build", "detected")).checkOutputFiles(twice);
+            Assert.fail("File listed twice accepted");
+        } catch (IllegalArgumentException ex) {
+            //expected
+        }
+    }
+}
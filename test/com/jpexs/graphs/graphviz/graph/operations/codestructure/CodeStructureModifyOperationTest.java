@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.codestructure.SyntheticGraphGenerator;
+import com.jpexs.graphs.codestructure.operations.CodeStructureModifier;
+import com.jpexs.graphs.graphviz.graph.operations.StepHandler;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CodeStructureModifyOperationTest {
+
+    private static String createSource(int subgraphCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("digraph main {\n");
+        sb.append("  start -> if1; if1 -> a; if1 -> b; a -> end; b -> end;\n");
+        for (int i = 0; i < subgraphCount; i++) {
+            String p = "f" + i + "_";
+            sb.append("  subgraph function").append(i).append(" {\n");
+            sb.append("    ").append(p).append("start -> ").append(p).append("while;\n");
+            sb.append("    ").append(p).append("while -> ").append(p).append("if;\n");
+            sb.append("    ").append(p).append("if -> ").append(p).append("a;\n");
+            sb.append("    ").append(p).append("if -> ").append(p).append("b;\n");
+            sb.append("    ").append(p).append("a -> ").append(p).append("c;\n");
+            sb.append("    ").append(p).append("b -> ").append(p).append("c;\n");
+            sb.append("    ").append(p).append("c -> ").append(p).append("while;\n");
+            sb.append("    ").append(p).append("while -> ").append(p).append("end;\n");
+            sb.append("  }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    @Test
+    public void testHeadlessSameAsSteps() {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(1);
+        generator.setStatementCount(60);
+        generator.setIfCount(20);
+        generator.setWhileCount(5);
+        String source = generator.generateDot();
+        final List<String> steps = new ArrayList<>();
+        String withSteps = new CodeStructureModifyOperation().execute(source, new StepHandler() {
+            @Override
+            public void step(String currentStep) {
+                steps.add(currentStep);
+            }
+        });
+        Assert.assertFalse(steps.isEmpty());
+        Assert.assertEquals(new CodeStructureModifyOperation().execute(source, null), withSteps);
+    }
+
+    @Test
+    public void testConcurrentSameAsSequential() {
+        String source = createSource(8);
+        String sequential = new CodeStructureModifyOperation().execute(source, new StepHandler() {
+            @Override
+            public void step(String currentStep) {
+            }
+        });
+        Assert.assertNotNull(sequential);
+        Assert.assertTrue(sequential.contains("endif"));
+        Assert.assertEquals(new CodeStructureModifyOperation().execute(source, null), sequential);
+    }
+
+    private static int count(String s, String sub) {
+        int ret = 0;
+        for (int pos = s.indexOf(sub); pos != -1; pos = s.indexOf(sub, pos + 1)) {
+            ret++;
+        }
+        return ret;
+    }
+
+    @Test(timeOut = 30000)
+    public void testHeadlessScales() throws InterruptedException {
+        final SyntheticGraphGenerator generator = new SyntheticGraphGenerator(7);
+        generator.setStatementCount(8000);
+        generator.setIfCount(2000);
+        final String[] result = new String[1];
+        final int[] endIfCount = new int[1];
+        //detection recurses per node on the path
+        Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                endIfCount[0] = new CodeStructureModifier().detect(generator.generate()).getEndIfNodes().size();
+                //takes about two seconds, walking whole graph on each event took about a minute
+                result[0] = new CodeStructureModifyOperation().execute(generator.generateDot(), null);
+            }
+        }, "headless", 1L << 28);
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(result[0]);
+        Assert.assertTrue(endIfCount[0] > 0);
+        Assert.assertEquals(count(result[0], "headlabel=\"+\""), endIfCount[0]);
+        Assert.assertEquals(count(result[0], "headlabel=\"-\""), endIfCount[0]);
+    }
+
+    private static String sha1(MessageDigest digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Break and switch graphs, some of them with gotos. Switch endifs share
+     * the same id. Digests of output and steps are from the walk from start
+     * node after each change.
+     */
+    @DataProvider
+    public Object[][] provideBreakSwitchGraphs() {
+        return new Object[][]{
+            {31L, 0, 58, "6745a7f2ec75071c0f92aadc66227568f5520503", "3c34b1f498897cd986e6ad59be2cdc8610d45c92"},
+            {37L, 0, 60, "7957792c9999e7d534e9762842f86b0c64751eb8", "6f7e5e28960b87178ab87921ae62d425063f1882"},
+            {39L, 0, 63, "03e25bfc2ca820e300a9a51ca8447a9f51a043af", "415b6b0782046c9f6dea3c1fddb479ea01481429"},
+            {30L, 2, 64, "d4fd158726162a62736be10f22b3724f9c9d110e", "850591a03df062c9927c5fd90cdb5460f0f94b80"},
+            {39L, 2, 66, "d8538b877ee086c7be866114ca13b97101dc0c95", "c59c53887be96fdc6cecf2fb0877298af41390d7"}
+        };
+    }
+
+    @Test(dataProvider = "provideBreakSwitchGraphs")
+    public void testTrueFalseLabelsSameAsWalk(long seed, int gotoCount, int stepCount, String expectedOutput, String expectedSteps) throws NoSuchAlgorithmException {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(seed);
+        generator.setStatementCount(20);
+        generator.setIfCount(8);
+        generator.setWhileCount(2);
+        generator.setDoWhileCount(1);
+        generator.setForCount(1);
+        generator.setContinueCount(2);
+        generator.setBreakCount(2);
+        generator.setSwitchCount(1);
+        generator.setSwitchCaseCount(3);
+        generator.setGotoCount(gotoCount);
+        String source = generator.generateDot();
+        final MessageDigest stepsDigest = MessageDigest.getInstance("SHA-1");
+        final int[] steps = new int[1];
+        String result = new CodeStructureModifyOperation().execute(source, new StepHandler() {
+            @Override
+            public void step(String currentStep) {
+                stepsDigest.update(currentStep.getBytes(StandardCharsets.UTF_8));
+                steps[0]++;
+            }
+        });
+        MessageDigest outputDigest = MessageDigest.getInstance("SHA-1");
+        outputDigest.update(result.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(steps[0], stepCount);
+        Assert.assertEquals(sha1(outputDigest), expectedOutput);
+        Assert.assertEquals(sha1(stepsDigest), expectedSteps);
+        Assert.assertEquals(new CodeStructureModifyOperation().execute(source, null), result);
+    }
+}
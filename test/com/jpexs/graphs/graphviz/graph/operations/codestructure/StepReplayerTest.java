@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.graphviz.graph.operations.codestructure;
+
+import com.jpexs.graphs.codestructure.SyntheticGraphGenerator;
+import com.jpexs.graphs.graphviz.dot.parser.DotParseException;
+import com.jpexs.graphs.graphviz.graph.operations.StepHandler;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class StepReplayerTest {
+
+    private static final String SOURCE = "digraph main {\n"
+            + "  start -> if1; if1 -> a; if1 -> b; a -> end; b -> end;\n"
+            + "  subgraph f {\n"
+            + "    f_start -> f_while; f_while -> f_if; f_if -> f_a; f_if -> f_b;\n"
+            + "    f_a -> f_c; f_b -> f_c; f_c -> f_while; f_while -> f_end;\n"
+            + "  }\n"
+            + "}\n";
+
+    private static String createSource() {
+        SyntheticGraphGenerator generator = new SyntheticGraphGenerator(3);
+        generator.setStatementCount(40);
+        generator.setIfCount(12);
+        generator.setWhileCount(4);
+        return generator.generateDot();
+    }
+
+    private static List<String> executeWithSteps(CodeStructureModifyOperation operation, String source) {
+        final List<String> steps = new ArrayList<>();
+        operation.execute(source, new StepHandler() {
+            @Override
+            public void step(String currentStep) {
+                steps.add(currentStep);
+            }
+        });
+        return steps;
+    }
+
+    private void assertReplaysSteps(CodeStructureModifyOperation operation, String source) throws IOException, DotParseException {
+        List<String> steps = executeWithSteps(operation, source);
+        StepLog log = operation.record(source);
+        Assert.assertEquals(log.getStepCount(), steps.size());
+        StepReplayer replayer = new StepReplayer(log);
+        for (int i = 0; i < steps.size(); i++) {
+            Assert.assertEquals(replayer.getStep(i), steps.get(i), "step " + i);
+        }
+        Assert.assertEquals(replayer.getResult(), operation.execute(source, null));
+    }
+
+    @Test
+    public void testStepsSameAsStepHandler() throws IOException, DotParseException {
+        assertReplaysSteps(new CodeStructureModifyOperation(), SOURCE);
+        assertReplaysSteps(new CodeStructureModifyOperation(), createSource());
+    }
+
+    @Test
+    public void testDecisionLists() throws IOException, DotParseException {
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        operation.setDisplayDecisionLists(true);
+        assertReplaysSteps(operation, createSource());
+    }
+
+    @Test
+    public void testBackward() throws IOException, DotParseException {
+        String source = createSource();
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        List<String> steps = executeWithSteps(operation, source);
+        StepReplayer replayer = new StepReplayer(operation.record(source));
+        Assert.assertEquals(replayer.getCurrentStep(), -1);
+        int last = steps.size() - 1;
+        Assert.assertEquals(replayer.getStep(last), steps.get(last));
+        Assert.assertEquals(replayer.getCurrentStep(), last);
+        Assert.assertEquals(replayer.getStep(last / 2), steps.get(last / 2));
+        Assert.assertEquals(replayer.getStep(0), steps.get(0));
+        Assert.assertEquals(replayer.getCurrentStep(), 0);
+    }
+
+    @Test
+    public void testUndo() throws IOException, DotParseException {
+        String source = createSource();
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        operation.setDisplayDecisionLists(true);
+        List<String> steps = executeWithSteps(operation, source);
+        StepReplayer replayer = new StepReplayer(operation.record(source));
+        String result = replayer.getResult();
+        int last = steps.size() - 1;
+        for (int i = last; i >= 0; i--) {
+            Assert.assertEquals(replayer.getStep(i), steps.get(i), "step " + i);
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            int index = random.nextInt(steps.size());
+            Assert.assertEquals(replayer.getStep(index), steps.get(index), "step " + index);
+        }
+        Assert.assertEquals(replayer.getResult(), result);
+        Assert.assertEquals(replayer.getStep(last), steps.get(last));
+    }
+
+    @Test
+    public void testWriteRead() throws IOException, DotParseException {
+        String source = createSource();
+        CodeStructureModifyOperation operation = new CodeStructureModifyOperation();
+        operation.setDisplayDecisionLists(true);
+        StepLog log = operation.record(source);
+        StringWriter sw = new StringWriter();
+        log.write(sw);
+        StepLog read = StepLog.read(new StringReader(sw.toString()));
+        Assert.assertEquals(read.getSource(), source);
+        Assert.assertEquals(read.getStepCount(), log.getStepCount());
+        Assert.assertEquals(read.getDeltas().toString(), log.getDeltas().toString());
+        Assert.assertEquals(new StepReplayer(read).getResult(), operation.execute(source, null));
+    }
+}
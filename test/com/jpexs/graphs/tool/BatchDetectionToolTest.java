@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.graphs.tool;
+
+import com.jpexs.graphs.graphviz.graph.operations.codestructure.CodeStructureModifyOperation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class BatchDetectionToolTest {
+
+    private static final String LOOP_SOURCE = "digraph { start -> while; while -> body; body -> while; while -> end; }";
+
+    private Path dir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("tool");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @AfterMethod
+    public void deleteDir() throws IOException {
+        delete(dir);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            for (Path child : Files.newDirectoryStream(path)) {
+                delete(child);
+            }
+        }
+        Files.delete(path);
+    }
+
+    private int run(String input, String... args) {
+        return BatchDetectionTool.run(args, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), new PrintStream(out), new PrintStream(err));
+    }
+
+    @Test
+    public void testFiles() throws IOException {
+        Path in = Files.createDirectory(dir.resolve("in"));
+        Path outDir = dir.resolve("out");
+        Files.write(in.resolve("loop.gv"), LOOP_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Files.write(in.resolve("broken.gv"), "digraph { a -> ".getBytes(StandardCharsets.UTF_8));
+        int exitCode = run("", "-t", "2", "--json", "-o", outDir.toString(), in.toString());
+        Assert.assertEquals(exitCode, 1);
+        String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(report.contains("ERROR"), report);
+        Assert.assertTrue(report.contains("2 files, 1 failed, 0 partial"), report);
+
+        String detected = new String(Files.readAllBytes(outDir.resolve("loop.gv")), StandardCharsets.UTF_8);
+        Assert.assertEquals(detected, new CodeStructureModifyOperation().execute(LOOP_SOURCE, null));
+        String summary = new String(Files.readAllBytes(outDir.resolve("loop.json")), StandardCharsets.UTF_8);
+        Assert.assertTrue(summary.contains("\"loops\": [\"while\"]"), summary);
+        Assert.assertTrue(summary.contains("\"backEdges\": [[\"body\", \"while\"]]"), summary);
+        Assert.assertFalse(Files.exists(outDir.resolve("broken.gv")));
+    }
+
+    @Test
+    public void testStdin() {
+        Assert.assertEquals(run(LOOP_SOURCE), 0);
+        Assert.assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8).trim(), new CodeStructureModifyOperation().execute(LOOP_SOURCE, null));
+    }
+
+    @Test
+    public void testStepLimit() throws IOException {
+        Path in = Files.createDirectory(dir.resolve("in"));
+        Path outDir = dir.resolve("out");
+        Files.write(in.resolve("loop.gv"), LOOP_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(run("", "--max-steps", "1", "-o", outDir.toString(), in.toString()), 3);
+        String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(report.startsWith("PARTIAL"), report);
+        Assert.assertTrue(report.contains("STEP_LIMIT"), report);
+        Assert.assertTrue(report.contains("1 files, 0 failed, 1 partial"), report);
+        Assert.assertTrue(Files.exists(outDir.resolve("loop.gv")));
+
+        Assert.assertEquals(run(LOOP_SOURCE, "--max-steps", "1"), 3);
+        Assert.assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("WARNING: stdin: detection stopped: STEP_LIMIT"));
+    }
+
+    @Test
+    public void testUsageErrors() {
+        Assert.assertEquals(run("", "--unknown"), 2);
+        Assert.assertEquals(run("", "-t"), 2);
+        Assert.assertEquals(run("", dir.toString()), 2);
+        Assert.assertEquals(run(LOOP_SOURCE, "--json"), 2);
+    }
+
+    @Test
+    public void testOutputCollisions() throws IOException {
+        Path in1 = Files.createDirectory(dir.resolve("in1"));
+        Path in2 = Files.createDirectory(dir.resolve("in2"));
+        Path outDir = dir.resolve("out");
+        Files.write(in1.resolve("loop.gv"), LOOP_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Files.write(in2.resolve("loop.gv"), LOOP_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Files.write(in2.resolve("loop.dot"), LOOP_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(run("", "-o", outDir.toString(), in1.toString(), in2.toString()), 2);
+        Assert.assertFalse(Files.exists(outDir));
+        //loop.gv and loop.dot have the same summary file
+        Assert.assertEquals(run("", "--json", "-o", outDir.toString(), in2.toString()), 2);
+        Assert.assertEquals(run("", "-o", in1.toString(), in1.toString()), 2);
+        Assert.assertEquals(run("", "-o", in1.toString(), in1.resolve("loop.gv").toString()), 2);
+        Assert.assertEquals(new String(Files.readAllBytes(in1.resolve("loop.gv")), StandardCharsets.UTF_8), LOOP_SOURCE);
+        Assert.assertEquals(run("", "-o", outDir.toString(), in2.toString()), 0);
+    }
+}